@@ -0,0 +1,81 @@
+package com.miro.dev.widgets.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time and allocation of writing page of widgets as JSON by mapper configured the same way as Spring Boot does
+ * and in WidgetBinaryFormat, allocation per page is reported by GC profiler: -prof gc.
+ * Bytes per widget of both formats are printed at setup.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WidgetSerializationBenchmark {
+
+    @Param({"500"})
+    private int limit;
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json()
+            .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+
+    private ObjectWriter writer;
+
+    private List<Widget> widgets;
+
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream(1 << 20);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        writer = objectMapper.writerFor(objectMapper.getTypeFactory().constructCollectionType(List.class, Widget.class));
+        LocalDateTime now = LocalDateTime.now();
+        widgets = new ArrayList<>(limit);
+        for (int i = 1; i <= limit; i++) {
+            widgets.add(Widget.builder()
+                    .id((long) i)
+                    .xIndex(i * 16)
+                    .yIndex(-i * 8)
+                    .zIndex(i)
+                    .width(100)
+                    .height(50)
+                    .modifiedAt(now.plusNanos(i * 1_000L))
+                    .version(1760726400000000L + i)
+                    .build());
+        }
+        try {
+            System.out.printf("JSON: %.1f bytes per widget, binary: %.1f bytes per widget%n",
+                    (double) writePage() / limit, (double) writePageBinary() / limit);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Benchmark
+    public int writePage() throws IOException {
+        output.reset();
+        writer.writeValue(output, widgets);
+        return output.size();
+    }
+
+    @Benchmark
+    public int writePageBinary() throws IOException {
+        output.reset();
+        WidgetBinaryFormat.write(widgets, output);
+        return output.size();
+    }
+}
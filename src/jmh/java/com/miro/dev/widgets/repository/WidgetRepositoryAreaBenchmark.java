@@ -0,0 +1,56 @@
+package com.miro.dev.widgets.repository;
+
+import com.miro.dev.widgets.model.Area;
+import com.miro.dev.widgets.model.Limit;
+import com.miro.dev.widgets.model.Widget;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of viewport request on boards of different size.
+ * Widgets are spread over a square of fixed density,
+ * so viewport cost should depend on widgets near it, not on board size.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WidgetRepositoryAreaBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int boardSize;
+
+    private WidgetRepositoryInMemoryImpl repository;
+
+    private Area area;
+
+    private Limit limit;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        repository = new WidgetRepositoryInMemoryImpl();
+        Random random = new Random(1);
+        int side = (int) Math.sqrt(boardSize) * 100;
+        for (int i = 1; i <= boardSize; i++) {
+            repository.create(Widget.builder()
+                    .xIndex(random.nextInt(side))
+                    .yIndex(random.nextInt(side))
+                    .zIndex(i)
+                    .width(10 + random.nextInt(90))
+                    .height(10 + random.nextInt(90))
+                    .build());
+        }
+        area = new Area(side / 2, side / 2, side / 2 + 1000, side / 2 + 1000);
+        limit = new Limit(500, 0);
+    }
+
+    @Benchmark
+    public List<Widget> getAllInArea() {
+        return repository.getAllInArea(area, limit);
+    }
+}
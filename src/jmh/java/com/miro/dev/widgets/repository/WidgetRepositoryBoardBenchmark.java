@@ -0,0 +1,65 @@
+package com.miro.dev.widgets.repository;
+
+import com.miro.dev.widgets.model.Widget;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Throughput of updates of Z index by 4 threads writing to one shared board
+ * or every thread to its own board. Boards are routed by LocalBoardRouter,
+ * so the only difference is contention for locks of one store.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class WidgetRepositoryBoardBenchmark {
+
+    @Param({"10000"})
+    private int boardSize;
+
+    @Param({"true", "false"})
+    private boolean shared;
+
+    private LocalBoardRouter router;
+
+    private final AtomicInteger threads = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        router = new LocalBoardRouter(boardId -> {
+            WidgetRepository repository = new WidgetRepositoryInMemoryImpl();
+            for (int i = 1; i <= boardSize; i++) {
+                repository.create(Widget.builder().xIndex(i).yIndex(i).width(10).height(10).zIndex(i).build());
+            }
+            return repository;
+        });
+    }
+
+    @State(Scope.Thread)
+    public static class Board {
+        private WidgetRepository repository;
+
+        @Setup(Level.Trial)
+        public void setUp(WidgetRepositoryBoardBenchmark benchmark) {
+            String boardId = benchmark.shared ? "shared" : "board-" + benchmark.threads.incrementAndGet();
+            repository = benchmark.router.route(boardId);
+        }
+    }
+
+    @Benchmark
+    public Widget updateZIndex(Board board) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Widget widget = board.repository.getById(1L + random.nextInt(boardSize)).orElseThrow();
+        widget.setZIndex(1 + random.nextInt(boardSize));
+        // version is cleared, so concurrent updates of the same widget are not rejected as conflicts
+        widget.setVersion(null);
+        return board.repository.update(widget);
+    }
+}
@@ -0,0 +1,88 @@
+package com.miro.dev.widgets.repository;
+
+import com.miro.dev.widgets.model.Limit;
+import com.miro.dev.widgets.model.Widget;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of mixed workload on shared repository for 1, 4, 16 and 64 threads:
+ * creates at random Z index, updates of geometry, updates of Z index and page reads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WidgetRepositoryConcurrencyBenchmark {
+
+    @Param({"100000"})
+    private int boardSize;
+
+    private WidgetRepositoryInMemoryImpl repository;
+
+    private final Limit limit = new Limit(10, 100);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        repository = new WidgetRepositoryInMemoryImpl();
+        for (int i = 1; i <= boardSize; i++) {
+            repository.create(widget((long) i, i));
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Object threads1() {
+        return mixedOperation();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object threads4() {
+        return mixedOperation();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public Object threads16() {
+        return mixedOperation();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public Object threads64() {
+        return mixedOperation();
+    }
+
+    private Object mixedOperation() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long id = 1 + random.nextInt(boardSize);
+        switch (random.nextInt(4)) {
+            case 0:
+                return repository.create(widget(null, 1 + random.nextInt(boardSize)));
+            case 1:
+                // version is cleared, so concurrent updates of the same widget are not rejected as conflicts
+                return repository.getById(id)
+                        .map(widget -> repository.update(widget.toBuilder().xIndex(random.nextInt()).version(null).build()));
+            case 2:
+                return repository.update(widget(id, 1 + random.nextInt(boardSize)));
+            default:
+                return repository.getAll(limit);
+        }
+    }
+
+    private static Widget widget(Long id, int zIndex) {
+        return Widget.builder()
+                .id(id)
+                .xIndex(0)
+                .yIndex(0)
+                .zIndex(zIndex)
+                .width(10)
+                .height(10)
+                .build();
+    }
+}
@@ -0,0 +1,74 @@
+package com.miro.dev.widgets.repository;
+
+import com.miro.dev.widgets.model.Widget;
+import com.miro.dev.widgets.service.WidgetService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of dragging widgets, moving random widget by few points, through service.
+ * Drag is sent as PUT of whole widget keeping its Z index, as PUT without Z index,
+ * which moves widget to foreground, and as PATCH of x and y only.
+ * Widget i is created at Z index i, drags keep Z indexes, so PUT knows Z index of dragged widget.
+ * Thread count is set by -t option, all threads share one board.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WidgetRepositoryDragBenchmark {
+
+    @Param({"1000", "100000"})
+    private int boardSize;
+
+    private WidgetService service;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        service = new WidgetService(new WidgetRepositoryInMemoryImpl());
+        for (int i = 1; i <= boardSize; i++) {
+            service.create(widget(null, i * 16, i));
+        }
+    }
+
+    @Benchmark
+    public Widget updateKeepingZIndex() {
+        int id = randomId();
+        return service.update(widget((long) id, id * 16 + step(), id));
+    }
+
+    @Benchmark
+    public Widget updateWithoutZIndex() {
+        int id = randomId();
+        return service.update(widget((long) id, id * 16 + step(), null));
+    }
+
+    @Benchmark
+    public Widget patch() {
+        int id = randomId();
+        return service.patch((long) id, Widget.builder().xIndex(id * 16 + step()).yIndex(step()).build());
+    }
+
+    private int randomId() {
+        return ThreadLocalRandom.current().nextInt(boardSize) + 1;
+    }
+
+    private static int step() {
+        return ThreadLocalRandom.current().nextInt(4);
+    }
+
+    private static Widget widget(Long id, int xIndex, Integer zIndex) {
+        return Widget.builder()
+                .id(id)
+                .xIndex(xIndex)
+                .yIndex(step())
+                .zIndex(zIndex)
+                .width(10)
+                .height(10)
+                .build();
+    }
+}
@@ -0,0 +1,89 @@
+package com.miro.dev.widgets.repository;
+
+import com.miro.dev.widgets.model.Widget;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Heap and direct memory taken by repository per stored widget,
+ * reported as bytesPerWidget and directBytesPerWidget counters.
+ * Score is time of filling the board, iteration is short enough to fill it once.
+ * Boards of 10M widgets need larger heap: -jvmArgs -Xmx8g.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1, time = 1, timeUnit = TimeUnit.MILLISECONDS)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WidgetRepositoryFootprintBenchmark {
+
+    @Param({"1000000"})
+    private int boardSize;
+
+    @Param({"map", "array", "offheap"})
+    private String type;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Footprint {
+        public long bytesPerWidget;
+        public long directBytesPerWidget;
+    }
+
+    @Benchmark
+    public WidgetRepository fill(Footprint footprint) {
+        long before = usedHeap();
+        long directBefore = usedDirect();
+        WidgetRepository repository = create();
+        Random random = new Random(1);
+        for (int i = 0; i < boardSize; i++) {
+            repository.create(Widget.builder()
+                    .xIndex(random.nextInt(1_000_000))
+                    .yIndex(random.nextInt(1_000_000))
+                    .width(10 + random.nextInt(100))
+                    .height(10 + random.nextInt(100))
+                    .build());
+        }
+        footprint.bytesPerWidget = (usedHeap() - before) / boardSize;
+        footprint.directBytesPerWidget = (usedDirect() - directBefore) / boardSize;
+        return repository;
+    }
+
+    private WidgetRepository create() {
+        switch (type) {
+            case "array":
+                return new WidgetRepositoryArrayImpl();
+            case "offheap":
+                return new WidgetRepositoryOffHeapImpl();
+            default:
+                return new WidgetRepositoryInMemoryImpl();
+        }
+    }
+
+    private static long usedDirect() {
+        return ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class).stream()
+                .filter(pool -> "direct".equals(pool.getName()))
+                .mapToLong(BufferPoolMXBean::getMemoryUsed)
+                .sum();
+    }
+
+    /**
+     * Collects garbage and waits for cleaner to free direct buffers of collected objects
+     */
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        try {
+            Thread.sleep(500);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,45 @@
+package com.miro.dev.widgets.repository;
+
+import com.miro.dev.widgets.model.Widget;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of creating widgets without Z index,
+ * which are put in foreground above the max Z index.
+ * Throughput should stay flat as board grows.
+ * Boards of millions of widgets take about 1KB of heap per widget, so they are not run by default:
+ * -p boardSize=5000000 -jvmArgs -Xmx8g.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WidgetRepositoryForegroundCreateBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int boardSize;
+
+    private WidgetRepositoryInMemoryImpl repository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        repository = new WidgetRepositoryInMemoryImpl();
+        for (int i = 0; i < boardSize; i++) {
+            createInForeground();
+        }
+    }
+
+    @Benchmark
+    public Widget createInForeground() {
+        return repository.create(Widget.builder()
+                .xIndex(0)
+                .yIndex(0)
+                .width(10)
+                .height(10)
+                .build());
+    }
+}
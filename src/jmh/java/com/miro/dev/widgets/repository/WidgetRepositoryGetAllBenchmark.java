@@ -0,0 +1,62 @@
+package com.miro.dev.widgets.repository;
+
+import com.miro.dev.widgets.model.Cursor;
+import com.miro.dev.widgets.model.Limit;
+import com.miro.dev.widgets.model.Widget;
+import com.miro.dev.widgets.model.WidgetPage;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of getAll page request on boards of different size.
+ * Page cost should not depend on board size,
+ * page by cursor should not depend on depth of page either.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WidgetRepositoryGetAllBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int boardSize;
+
+    @Param({"0", "500"})
+    private int offset;
+
+    private WidgetRepositoryInMemoryImpl repository;
+
+    private Limit limit;
+
+    private Cursor cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        repository = new WidgetRepositoryInMemoryImpl();
+        for (int i = 1; i <= boardSize; i++) {
+            repository.create(Widget.builder()
+                    .xIndex(i)
+                    .yIndex(i)
+                    .zIndex(i)
+                    .width(10)
+                    .height(10)
+                    .build());
+        }
+        limit = new Limit(10, offset);
+        cursor = offset == 0 ? null : repository.getPage(null, new Limit(offset, 0)).getNext();
+    }
+
+    @Benchmark
+    public List<Widget> getAllPage() {
+        return repository.getAll(limit);
+    }
+
+    @Benchmark
+    public WidgetPage getPageByCursor() {
+        return repository.getPage(cursor, limit);
+    }
+}
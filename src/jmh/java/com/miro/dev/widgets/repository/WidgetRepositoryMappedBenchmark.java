@@ -0,0 +1,65 @@
+package com.miro.dev.widgets.repository;
+
+import com.miro.dev.widgets.model.Widget;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Time of opening store kept in memory-mapped files, files stay in page cache between openings.
+ * Closed store only maps ids to slots, store left open by crash is checked by walking its tree.
+ * Files are created in fresh directory in java.io.tmpdir.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx3g"})
+@State(Scope.Benchmark)
+public class WidgetRepositoryMappedBenchmark {
+
+    @Param({"1000000"})
+    private int boardSize;
+
+    @Param({"true", "false"})
+    private boolean closed;
+
+    private Path directory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("widgets-mapped");
+        WidgetRepositoryMappedImpl repository = new WidgetRepositoryMappedImpl(directory.toString());
+        Random random = new Random(1);
+        for (int i = 0; i < boardSize; i++) {
+            repository.create(Widget.builder()
+                    .xIndex(random.nextInt(1_000_000))
+                    .yIndex(random.nextInt(1_000_000))
+                    .width(10 + random.nextInt(100))
+                    .height(10 + random.nextInt(100))
+                    .zIndex(random.nextInt(boardSize))
+                    .build());
+        }
+        if (closed) repository.close();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public WidgetRepository open() {
+        WidgetRepositoryMappedImpl repository = new WidgetRepositoryMappedImpl(directory.toString());
+        if (closed) repository.close();
+        return repository;
+    }
+}
@@ -0,0 +1,61 @@
+package com.miro.dev.widgets.repository;
+
+import com.miro.dev.widgets.model.Limit;
+import com.miro.dev.widgets.model.Widget;
+import com.miro.dev.widgets.service.WidgetService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of reads through repository and service for boards of different size:
+ * random widget by id and page of 10 widgets at random offset.
+ * Thread count is set by -t option, all threads share one board.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WidgetRepositoryReadBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int boardSize;
+
+    private WidgetRepositoryInMemoryImpl repository;
+
+    private WidgetService service;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        repository = new WidgetRepositoryInMemoryImpl();
+        service = new WidgetService(repository);
+        for (int i = 1; i <= boardSize; i++) {
+            repository.create(Widget.builder()
+                    .xIndex(i)
+                    .yIndex(i)
+                    .width(10)
+                    .height(10)
+                    .build());
+        }
+    }
+
+    @Benchmark
+    public Optional<Widget> getById() {
+        return repository.getById(ThreadLocalRandom.current().nextLong(boardSize) + 1);
+    }
+
+    @Benchmark
+    public List<Widget> getAllPage() {
+        return repository.getAll(new Limit(10, ThreadLocalRandom.current().nextInt(boardSize)));
+    }
+
+    @Benchmark
+    public Widget serviceGetById() {
+        return service.getById(ThreadLocalRandom.current().nextLong(boardSize) + 1);
+    }
+}
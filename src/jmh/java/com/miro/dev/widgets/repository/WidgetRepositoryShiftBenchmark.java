@@ -0,0 +1,50 @@
+package com.miro.dev.widgets.repository;
+
+import com.miro.dev.widgets.model.Widget;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of creating widget at the bottom of board,
+ * which shifts Z index of every other widget.
+ * Cost should not depend on board size.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WidgetRepositoryShiftBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int boardSize;
+
+    private WidgetRepositoryInMemoryImpl repository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        repository = new WidgetRepositoryInMemoryImpl();
+        for (int i = 1; i <= boardSize; i++) {
+            repository.create(Widget.builder()
+                    .xIndex(i)
+                    .yIndex(i)
+                    .zIndex(i)
+                    .width(10)
+                    .height(10)
+                    .build());
+        }
+    }
+
+    @Benchmark
+    public Widget createAtBottom() {
+        return repository.create(Widget.builder()
+                .xIndex(0)
+                .yIndex(0)
+                .zIndex(1)
+                .width(10)
+                .height(10)
+                .build());
+    }
+}
@@ -0,0 +1,93 @@
+package com.miro.dev.widgets.repository;
+
+import com.miro.dev.widgets.model.Widget;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time of snapshot stages for boards of different size:
+ * copy is the time writers wait, write is encoding and fsync of file done after copy,
+ * restore is loading of file and building of store done on start.
+ * Snapshot is written to fresh file in java.io.tmpdir.
+ * Boards of 10M widgets fit only array and offheap stores: -p boardSize=10000000 -p type=array,offheap.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx5g", "-XX:MaxDirectMemorySize=5g"})
+@State(Scope.Benchmark)
+public class WidgetRepositorySnapshotBenchmark {
+
+    @Param({"1000000"})
+    private int boardSize;
+
+    @Param({"map", "array", "offheap"})
+    private String type;
+
+    private Path directory;
+
+    private SnapshotStore snapshots;
+
+    private WidgetRepository repository;
+
+    private WidgetSnapshot snapshot;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("widgets-snapshot");
+        snapshots = new SnapshotStore(directory.resolve("widgets.snapshot"), Duration.ofMinutes(1));
+        repository = create();
+        Random random = new Random(1);
+        for (int i = 0; i < boardSize; i++) {
+            repository.create(Widget.builder()
+                    .xIndex(random.nextInt(1_000_000))
+                    .yIndex(random.nextInt(1_000_000))
+                    .width(10 + random.nextInt(100))
+                    .height(10 + random.nextInt(100))
+                    .build());
+        }
+        snapshot = repository.snapshot();
+        snapshots.write(snapshot);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.delete(directory.resolve("widgets.snapshot"));
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    public WidgetSnapshot copy() {
+        return repository.snapshot();
+    }
+
+    @Benchmark
+    public void write() {
+        snapshots.write(snapshot);
+    }
+
+    @Benchmark
+    public WidgetRepository restore() {
+        WidgetRepository restored = create();
+        restored.restore(snapshots.load().get());
+        return restored;
+    }
+
+    private WidgetRepository create() {
+        switch (type) {
+            case "array":
+                return new WidgetRepositoryArrayImpl();
+            case "offheap":
+                return new WidgetRepositoryOffHeapImpl();
+            default:
+                return new WidgetRepositoryInMemoryImpl();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.miro.dev.widgets.repository;
+
+import com.miro.dev.widgets.model.Widget;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of creates through write-ahead log for each durability
+ * compared with store without log.
+ * Log is written to fresh file in java.io.tmpdir, which must be on the disk being measured.
+ * Thread count is set by -t option, with more threads SYNC writers share fsync.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WidgetRepositoryWalBenchmark {
+
+    @Param({"NONE", "SYNC", "BATCH", "ASYNC"})
+    private String durability;
+
+    private Path directory;
+
+    private WriteAheadLog log;
+
+    private WidgetRepository repository;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        repository = new WidgetRepositoryInMemoryImpl();
+        if ("NONE".equals(durability)) return;
+
+        directory = Files.createTempDirectory("widgets-wal");
+        log = new WriteAheadLog(directory.resolve("widgets.wal"),
+                WriteAheadLog.Durability.valueOf(durability), Duration.ofMillis(5));
+        log.replay(repository);
+        repository = new WidgetRepositoryWalImpl(repository, log);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (log == null) return;
+        log.close();
+        Files.delete(directory.resolve("widgets.wal"));
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    public Widget create() {
+        return repository.create(Widget.builder()
+                .xIndex(0)
+                .yIndex(0)
+                .width(10)
+                .height(10)
+                .build());
+    }
+}
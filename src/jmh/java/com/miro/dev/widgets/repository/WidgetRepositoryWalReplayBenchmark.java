@@ -0,0 +1,80 @@
+package com.miro.dev.widgets.repository;
+
+import com.miro.dev.widgets.model.Widget;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time of restoring store from write-ahead log on start.
+ * Log holds creates of boardSize widgets with random Z indexes
+ * followed by the same number of updates, so replay shifts widgets like real writes did.
+ * Replay speed in records per second is 2 * boardSize / time.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+@State(Scope.Benchmark)
+public class WidgetRepositoryWalReplayBenchmark {
+
+    @Param({"100000", "1000000"})
+    private int boardSize;
+
+    @Param({"map", "array"})
+    private String type;
+
+    private Path directory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("widgets-wal");
+        WidgetRepositoryInMemoryImpl store = new WidgetRepositoryInMemoryImpl();
+        WriteAheadLog log = open();
+        log.replay(store);
+        WidgetRepository repository = new WidgetRepositoryWalImpl(store, log);
+        for (int i = 1; i <= boardSize; i++) {
+            repository.create(widget(null, ThreadLocalRandom.current().nextInt(boardSize)));
+        }
+        for (int i = 1; i <= boardSize; i++) {
+            repository.update(widget((long) i, ThreadLocalRandom.current().nextInt(boardSize)));
+        }
+        log.close();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.delete(directory.resolve("widgets.wal"));
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    public WidgetRepository replay() {
+        WidgetRepository store = "map".equals(type) ? new WidgetRepositoryInMemoryImpl() : new WidgetRepositoryArrayImpl();
+        WriteAheadLog log = open();
+        log.replay(store);
+        log.close();
+        return store;
+    }
+
+    private WriteAheadLog open() {
+        return new WriteAheadLog(directory.resolve("widgets.wal"), WriteAheadLog.Durability.ASYNC, Duration.ofMillis(5));
+    }
+
+    private static Widget widget(Long id, Integer zIndex) {
+        return Widget.builder()
+                .id(id)
+                .xIndex(zIndex)
+                .yIndex(0)
+                .zIndex(zIndex)
+                .width(10)
+                .height(10)
+                .build();
+    }
+}
@@ -0,0 +1,78 @@
+package com.miro.dev.widgets.repository;
+
+import com.miro.dev.widgets.model.Widget;
+import com.miro.dev.widgets.service.WidgetService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of writes through repository and service
+ * for boards of different size and patterns of Z indexes.
+ * Updates move random widget to Z index taken by other one, so board size stays the same,
+ * creates grow board by number of measured operations.
+ * Thread count is set by -t option, all threads share one board.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WidgetRepositoryWriteBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int boardSize;
+
+    @Param({"TOP", "BOTTOM", "RANDOM"})
+    private ZIndexDistribution distribution;
+
+    private WidgetRepositoryInMemoryImpl repository;
+
+    private WidgetService service;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        repository = new WidgetRepositoryInMemoryImpl();
+        service = new WidgetService(repository);
+        for (int i = 1; i <= boardSize; i++) {
+            repository.create(widget(null, i));
+        }
+    }
+
+    @Benchmark
+    public Widget create() {
+        return repository.create(widget(null, distribution.next(boardSize)));
+    }
+
+    @Benchmark
+    public Widget update() {
+        return repository.update(widget(randomId(), distribution.next(boardSize)));
+    }
+
+    @Benchmark
+    public Widget serviceCreate() {
+        return service.create(widget(null, distribution.next(boardSize)));
+    }
+
+    @Benchmark
+    public Widget serviceUpdate() {
+        return service.update(widget(randomId(), distribution.next(boardSize)));
+    }
+
+    private long randomId() {
+        return ThreadLocalRandom.current().nextInt(boardSize) + 1;
+    }
+
+    private static Widget widget(Long id, Integer zIndex) {
+        return Widget.builder()
+                .id(id)
+                .xIndex(0)
+                .yIndex(0)
+                .zIndex(zIndex)
+                .width(10)
+                .height(10)
+                .build();
+    }
+}
@@ -0,0 +1,80 @@
+package com.miro.dev.widgets.repository;
+
+import com.miro.dev.widgets.model.BatchOperation;
+import com.miro.dev.widgets.model.BatchResult;
+import com.miro.dev.widgets.model.Widget;
+import com.miro.dev.widgets.service.WidgetService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of importing widgets through service one by one
+ * and by batches of the same size. Score is widgets per second.
+ * Every import puts widgets at random Z indexes, so most of them shift others.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+@OperationsPerInvocation(WidgetServiceBatchBenchmark.BATCH_SIZE)
+public class WidgetServiceBatchBenchmark {
+
+    static final int BATCH_SIZE = 1000;
+
+    @Param({"100000"})
+    private int boardSize;
+
+    private WidgetRepositoryInMemoryImpl repository;
+
+    private WidgetService service;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        repository = new WidgetRepositoryInMemoryImpl();
+        service = new WidgetService(repository);
+        for (int i = 1; i <= boardSize; i++) {
+            repository.create(widget(i));
+        }
+    }
+
+    @Benchmark
+    public Widget singleCreates() {
+        Widget last = null;
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            last = service.create(widget(randomZIndex()));
+        }
+        return last;
+    }
+
+    @Benchmark
+    public List<BatchResult> batchCreate() {
+        List<BatchOperation> operations = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            operations.add(BatchOperation.builder()
+                    .type(BatchOperation.Type.CREATE)
+                    .widget(widget(randomZIndex()))
+                    .build());
+        }
+        return service.batch(operations);
+    }
+
+    private int randomZIndex() {
+        return ThreadLocalRandom.current().nextInt(boardSize) + 1;
+    }
+
+    private static Widget widget(int zIndex) {
+        return Widget.builder()
+                .xIndex(zIndex)
+                .yIndex(zIndex)
+                .zIndex(zIndex)
+                .width(10)
+                .height(10)
+                .build();
+    }
+}
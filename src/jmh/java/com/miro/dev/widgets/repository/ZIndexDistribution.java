@@ -0,0 +1,36 @@
+package com.miro.dev.widgets.repository;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Patterns of Z indexes given to written widgets
+ */
+public enum ZIndexDistribution {
+    /**
+     * No Z index, widget goes above all others
+     */
+    TOP,
+    /**
+     * Z index 1, widget goes below all others and shifts them
+     */
+    BOTTOM,
+    /**
+     * Random Z index taken by other widget, shifts part of board
+     */
+    RANDOM;
+
+    /**
+     * @param boardSize number of widgets with Z indexes from 1 to boardSize
+     * @return Z index for next written widget
+     */
+    Integer next(int boardSize) {
+        switch (this) {
+            case BOTTOM:
+                return 1;
+            case RANDOM:
+                return ThreadLocalRandom.current().nextInt(boardSize) + 1;
+            default:
+                return null;
+        }
+    }
+}
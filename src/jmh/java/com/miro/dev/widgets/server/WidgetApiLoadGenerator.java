@@ -0,0 +1,108 @@
+package com.miro.dev.widgets.server;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Load generator for running server: every connection sends creates of widgets one after another
+ * for given time, then throughput and latency percentiles of responses are printed.
+ * Requests are sent asynchronously, so thousands of connections are held by a few client threads.
+ * It is not a JMH benchmark, run it against server started separately:
+ * java -cp target/test-classes com.miro.dev.widgets.server.WidgetApiLoadGenerator http://localhost:8080 10000 30
+ */
+public final class WidgetApiLoadGenerator {
+
+    private static final int MAX_SAMPLES = 1 << 24;
+
+    private final HttpClient client;
+
+    private final URI uri;
+
+    private final long deadline;
+
+    private final long[] latencies = new long[MAX_SAMPLES];
+
+    private final AtomicInteger samples = new AtomicInteger();
+
+    private final AtomicLong errors = new AtomicLong();
+
+    private WidgetApiLoadGenerator(HttpClient client, URI uri, long deadline) {
+        this.client = client;
+        this.uri = uri;
+        this.deadline = deadline;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        String server = args.length > 0 ? args[0] : "http://localhost:8080";
+        int connections = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(60))
+                .executor(executor)
+                .build();
+        long started = System.nanoTime();
+        WidgetApiLoadGenerator generator = new WidgetApiLoadGenerator(client,
+                URI.create(server + "/api/v1/widgets"), started + Duration.ofSeconds(seconds).toNanos());
+
+        CountDownLatch done = new CountDownLatch(connections);
+        for (int i = 0; i < connections; i++) {
+            generator.send(done);
+        }
+        done.await();
+        executor.shutdown();
+
+        generator.report(connections, System.nanoTime() - started);
+    }
+
+    /**
+     * Sends create and the next one after response until deadline
+     */
+    private void send(CountDownLatch done) {
+        if (System.nanoTime() > deadline) {
+            done.countDown();
+            return;
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .header("Content-Type", "application/json")
+                .timeout(Duration.ofMinutes(1))
+                .POST(HttpRequest.BodyPublishers.ofString("{\"x\":" + random.nextInt(10_000)
+                        + ",\"y\":" + random.nextInt(10_000) + ",\"width\":10,\"height\":10}"))
+                .build();
+        long sent = System.nanoTime();
+        client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, e) -> {
+                    if (e != null || response.statusCode() != 200) {
+                        errors.incrementAndGet();
+                    } else {
+                        int sample = samples.getAndIncrement();
+                        if (sample < MAX_SAMPLES) latencies[sample] = System.nanoTime() - sent;
+                    }
+                    send(done);
+                });
+    }
+
+    private void report(int connections, long elapsed) {
+        int count = Math.min(samples.get(), MAX_SAMPLES);
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        System.out.printf("connections %d, responses %d, errors %d, throughput %.0f/s%n",
+                connections, samples.get(), errors.get(), samples.get() / (elapsed / 1e9));
+        if (count == 0) return;
+        System.out.printf("latency p50 %.1f ms, p99 %.1f ms, max %.1f ms%n",
+                sorted[count / 2] / 1e6, sorted[(int) (count * 0.99)] / 1e6, sorted[count - 1] / 1e6);
+    }
+}
@@ -0,0 +1,21 @@
+package com.miro.dev.widgets.controller;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Class for serving widgets in compact binary format to clients asking for it by Accept header.
+ * Converter is appended to configured ones instead of being declared as bean, Spring Boot puts
+ * converter beans before JSON, so clients accepting any type would get binary widgets.
+ */
+@Configuration
+public class WidgetBinaryConfig implements WebMvcConfigurer {
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(new WidgetBinaryMessageConverter());
+    }
+}
@@ -0,0 +1,112 @@
+package com.miro.dev.widgets.controller;
+
+import com.miro.dev.widgets.model.Widget;
+import com.miro.dev.widgets.model.WidgetBinaryFormat;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.lang.Nullable;
+
+import java.io.IOException;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Writes widget and list of widgets in WidgetBinaryFormat when client accepts application/x-widgets.
+ * Converter is added after JSON converter, so clients accepting any type still get JSON.
+ * Other bodies, like results of batch, are served only as JSON.
+ */
+public class WidgetBinaryMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+
+    public static final MediaType WIDGETS = MediaType.parseMediaType(WidgetBinaryFormat.MEDIA_TYPE);
+
+    /**
+     * Types widgets are written as, in order of converters
+     */
+    private static final List<MediaType> PRODUCIBLE = List.of(MediaType.APPLICATION_JSON, WIDGETS);
+
+    public WidgetBinaryMessageConverter() {
+        super(WIDGETS);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return Widget.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    public boolean canRead(Type type, @Nullable Class<?> contextClass, @Nullable MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public boolean canRead(Class<?> clazz, @Nullable MediaType mediaType) {
+        return false;
+    }
+
+    /**
+     * @return true for Widget and List of Widget
+     */
+    @Override
+    public boolean canWrite(@Nullable Type type, Class<?> clazz, @Nullable MediaType mediaType) {
+        if (!canWrite(mediaType)) return false;
+        if (type instanceof ParameterizedType) {
+            ParameterizedType parameterized = (ParameterizedType) type;
+            return parameterized.getRawType() == List.class
+                    && parameterized.getActualTypeArguments()[0] == Widget.class;
+        }
+        return supports(clazz);
+    }
+
+    /**
+     * Tells whether widgets are written in binary format for given Accept header.
+     * Mirrors selection of Spring MVC: accepted types compatible with producible ones are sorted
+     * by specificity and quality, the first one wins and JSON wins ties with wildcards, as its converter comes first.
+     * @param accept value of Accept header, null when there is none
+     * @return true when binary format is selected
+     */
+    static boolean isSelected(@Nullable String accept) {
+        if (Objects.isNull(accept)) return false;
+        List<MediaType> accepted;
+        try {
+            accepted = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            return false;
+        }
+        MediaType.sortBySpecificityAndQuality(accepted);
+        List<MediaType> selectable = new ArrayList<>();
+        for (MediaType requested : accepted) {
+            for (MediaType producible : PRODUCIBLE) {
+                if (requested.isCompatibleWith(producible)) selectable.add(producible.copyQualityValue(requested));
+            }
+        }
+        MediaType.sortBySpecificityAndQuality(selectable);
+        return !selectable.isEmpty() && WIDGETS.equalsTypeAndSubtype(selectable.get(0));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected void writeInternal(Object body, @Nullable Type type, HttpOutputMessage output) throws IOException {
+        if (body instanceof Widget) {
+            WidgetBinaryFormat.write((Widget) body, output.getBody());
+        } else {
+            WidgetBinaryFormat.write((List<Widget>) body, output.getBody());
+        }
+    }
+
+    @Override
+    public Object read(Type type, @Nullable Class<?> contextClass, HttpInputMessage input) {
+        throw new HttpMessageNotReadableException("Widgets are read only from JSON", input);
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage input) {
+        throw new HttpMessageNotReadableException("Widgets are read only from JSON", input);
+    }
+}
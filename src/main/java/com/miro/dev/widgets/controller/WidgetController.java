@@ -1,49 +1,394 @@
 package com.miro.dev.widgets.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.miro.dev.widgets.model.Area;
+import com.miro.dev.widgets.model.BatchOperation;
+import com.miro.dev.widgets.model.BatchResult;
+import com.miro.dev.widgets.model.Cursor;
 import com.miro.dev.widgets.model.Limit;
 import com.miro.dev.widgets.model.Widget;
+import com.miro.dev.widgets.model.WidgetBinaryFormat;
+import com.miro.dev.widgets.model.WidgetChanges;
+import com.miro.dev.widgets.model.WidgetEvent;
+import com.miro.dev.widgets.model.WidgetPage;
+import com.miro.dev.widgets.service.BoardService;
 import com.miro.dev.widgets.service.WidgetService;
+import io.swagger.annotations.ApiImplicitParam;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+import io.swagger.annotations.ResponseHeader;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
 
+/**
+ * Widgets of default board are served by /api/v1/widgets,
+ * widgets of other boards by /api/v1/boards/{boardId}/widgets
+ */
 @RestController
-@RequestMapping("/api/v1/widgets")
+@RequestMapping({"/api/v1/widgets", "/api/v1/boards/{boardId}/widgets"})
 public class WidgetController {
 
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    static final String NDJSON = "application/x-ndjson";
+
+    static final String BINARY_ETAG_SUFFIX = "-b";
+
+    private static final String BOARD_NOT_FOUND = "Board not found, only writes creating widgets create board";
+
+    private static final String WIDGET_NOT_FOUND = "Widget or board not found";
+
+    private static final String BOARD_LIMIT = "Board not created, widgets.boards.max boards exist";
+
+    private static final String NOT_MODIFIED = "Not modified since ETag given in If-None-Match";
+
+    /**
+     * Media types of widgets selected by content negotiation, documented only, so errors are still written as JSON
+     */
+    private static final String WIDGET_MEDIA_TYPES = MediaType.APPLICATION_JSON_VALUE + "," + WidgetBinaryFormat.MEDIA_TYPE;
+
+    /**
+     * Stream is written to socket by pages of about this size instead of chunks of servlet buffer
+     */
+    private static final int STREAM_BUFFER = 1 << 16;
+
+    /**
+     * Comment sent to stream of events when nothing changed for this time, so broken connections are found
+     */
+    private static final long HEARTBEAT_MS = 15_000;
+
+    private static final byte[] HEARTBEAT = ":\n\n".getBytes(StandardCharsets.US_ASCII);
+
     private final WidgetService service;
 
-    public WidgetController(WidgetService service) {
+    private final BoardService boards;
+
+    /**
+     * Writer of widgets separated by new lines, keeps serializer of Widget resolved once
+     */
+    private final ObjectWriter lines;
+
+    /**
+     * Writer of changes and widgets to stream of events, leaves flushing to the end of events read at once
+     */
+    private final ObjectWriter events;
+
+    /**
+     * Writer of widgets separated by commas, keeps serializer of Widget resolved once
+     */
+    private final ObjectWriter items;
+
+    /**
+     * Time in milliseconds stream of events is kept open, it is closed before async request times out
+     */
+    private final long eventsDuration;
+
+    public WidgetController(WidgetService service, BoardService boards, ObjectMapper objectMapper,
+                            @Value("${widgets.events.duration-ms:240000}") long eventsDuration) {
         this.service = service;
+        this.boards = boards;
+        this.lines = objectMapper.writerFor(Widget.class)
+                .withRootValueSeparator("\n")
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        this.events = objectMapper.writerFor(WidgetEvent.class)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .without(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+        this.items = objectMapper.writerFor(Widget.class)
+                .withRootValueSeparator(",")
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .without(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+        this.eventsDuration = eventsDuration;
     }
 
+    /**
+     * Retrieves page of widgets. ETag of response is version of board, it is checked before widgets are read,
+     * so request with If-None-Match holding it gets 304 without reading and serializing widgets.
+     * Version is taken before widgets, so widgets are never older than their ETag.
+     * Widgets are written as JSON or in WidgetBinaryFormat to clients accepting application/x-widgets.
+     */
     @GetMapping()
+    @ApiOperation(value = "", produces = WIDGET_MEDIA_TYPES)
+    @ApiImplicitParam(name = HttpHeaders.IF_NONE_MATCH, paramType = "header", dataTypeClass = String.class)
+    @ApiResponses({
+            @ApiResponse(code = 200, message = "OK", responseHeaders = {
+                    @ResponseHeader(name = NEXT_CURSOR_HEADER,
+                            description = "Cursor of the next page, absent on the last page", response = String.class),
+                    @ResponseHeader(name = HttpHeaders.ETAG, description = "Version of board", response = String.class)
+            }),
+            @ApiResponse(code = 304, message = NOT_MODIFIED),
+            @ApiResponse(code = 404, message = BOARD_NOT_FOUND)
+    })
     public ResponseEntity<List<Widget>> getAll(
+            WebRequest request,
+            @PathVariable(required = false) final String boardId,
             @RequestParam(name = "limit", required = false) final Integer limit,
-            @RequestParam(name = "offset", required = false) final Integer offset
+            @RequestParam(name = "offset", required = false) final Integer offset,
+            @RequestParam(name = "cursor", required = false) final String cursor,
+            @RequestParam(name = "x1", required = false) final Integer x1,
+            @RequestParam(name = "y1", required = false) final Integer y1,
+            @RequestParam(name = "x2", required = false) final Integer x2,
+            @RequestParam(name = "y2", required = false) final Integer y2
     ) {
-        return ResponseEntity.ok(service.getAll(new Limit(limit, offset)));
+        WidgetService widgets = service(boardId);
+        if (request.checkNotModified(etag(request, widgets.getVersion()))) return notModified();
+
+        if (Stream.of(x1, y1, x2, y2).anyMatch(Objects::nonNull)) {
+            return ResponseEntity.ok().varyBy(HttpHeaders.ACCEPT)
+                    .body(widgets.getAllInArea(new Area(x1, y1, x2, y2), new Limit(limit, offset)));
+        }
+        if (Objects.nonNull(offset)) {
+            return ResponseEntity.ok().varyBy(HttpHeaders.ACCEPT).body(widgets.getAll(new Limit(limit, offset)));
+        }
+
+        WidgetPage page = widgets.getPage(Objects.isNull(cursor) ? null : Cursor.parse(cursor), new Limit(limit, 0));
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().varyBy(HttpHeaders.ACCEPT);
+        if (Objects.nonNull(page.getNext())) {
+            response.header(NEXT_CURSOR_HEADER, page.getNext().encode());
+        }
+        return response.body(page.getWidgets());
     }
 
+    /**
+     * Streams all widgets ordered by Z index as newline delimited JSON.
+     * Widgets are read from repository and written page by page on async thread,
+     * so memory taken by request does not depend on number of widgets and servlet thread is released.
+     */
+    @GetMapping(value = "stream", produces = NDJSON)
+    @ApiResponses(@ApiResponse(code = 404, message = BOARD_NOT_FOUND))
+    public ResponseEntity<StreamingResponseBody> stream(@PathVariable(required = false) String boardId) {
+        WidgetService widgets = service(boardId);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NDJSON))
+                .body(response -> {
+                    OutputStream output = new BufferedOutputStream(response, STREAM_BUFFER);
+                    SequenceWriter writer = lines.writeValues(output);
+                    boolean[] written = {false};
+                    try {
+                        widgets.forEachPage(page -> {
+                            try {
+                                writer.writeAll(page).flush();
+                                written[0] |= !page.isEmpty();
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                        });
+                    } catch (UncheckedIOException e) {
+                        throw e.getCause();
+                    }
+                    writer.close();
+                    if (written[0]) output.write('\n');
+                    output.flush();
+                });
+    }
+
+    /**
+     * Streams changes of widgets as server-sent events, id of event is sequence number of change.
+     * Client resuming with Last-Event-ID header or since parameter gets changes following it,
+     * new client and client behind kept changes get RESET event with all widgets first.
+     * Stream is closed after widgets.events.duration-ms, client reconnects and resumes from the last id.
+     */
+    @GetMapping(value = "events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @ApiResponses(@ApiResponse(code = 404, message = BOARD_NOT_FOUND))
+    public ResponseEntity<StreamingResponseBody> events(
+            @PathVariable(required = false) String boardId,
+            @RequestHeader(name = "Last-Event-ID", required = false) final Long lastEventId,
+            @RequestParam(name = "since", required = false) final Long since
+    ) {
+        WidgetService widgets = service(boardId);
+        Long from = Objects.nonNull(lastEventId) ? lastEventId : since;
+        return ResponseEntity.ok()
+                .contentType(MediaType.TEXT_EVENT_STREAM)
+                .cacheControl(CacheControl.noCache())
+                .body(response -> follow(widgets, from, new BufferedOutputStream(response, STREAM_BUFFER)));
+    }
+
+    /**
+     * Retrieves widgets changed after version and ids of deleted widgets,
+     * responds with 410 when changes since version are not kept and widgets have to be read again
+     */
+    @GetMapping("changes")
+    @ApiResponses({
+            @ApiResponse(code = 404, message = BOARD_NOT_FOUND),
+            @ApiResponse(code = 410, message = "Changes since version are not kept, widgets have to be read again")
+    })
+    public ResponseEntity<WidgetChanges> getChanges(@PathVariable(required = false) String boardId,
+                                                    @RequestParam(name = "since") final Long since) {
+        return ResponseEntity.ok(service(boardId).getChangesSince(since));
+    }
+
+    /**
+     * Retrieves widget by id. ETag of response is version of widget with its Z index, shifts change Z index
+     * keeping version and only increment it, so ETag changes with every change of widget.
+     * Request with If-None-Match holding it gets 304 without serializing widget.
+     */
     @GetMapping("{id}")
-    public ResponseEntity<Widget> getById(@PathVariable Long id) {
-        return ResponseEntity.ok(service.getById(id));
+    @ApiOperation(value = "", produces = WIDGET_MEDIA_TYPES)
+    @ApiImplicitParam(name = HttpHeaders.IF_NONE_MATCH, paramType = "header", dataTypeClass = String.class)
+    @ApiResponses({
+            @ApiResponse(code = 200, message = "OK", responseHeaders = @ResponseHeader(name = HttpHeaders.ETAG,
+                    description = "Version of widget with its Z index", response = String.class)),
+            @ApiResponse(code = 304, message = NOT_MODIFIED),
+            @ApiResponse(code = 404, message = WIDGET_NOT_FOUND)
+    })
+    public ResponseEntity<Widget> getById(WebRequest request,
+                                          @PathVariable(required = false) String boardId, @PathVariable Long id) {
+        Widget widget = service(boardId).getById(id);
+        if (request.checkNotModified(etag(request, widget.getVersion() + "-" + widget.getZIndex()))) {
+            return notModified();
+        }
+        return ResponseEntity.ok().varyBy(HttpHeaders.ACCEPT).body(widget);
     }
 
     @PostMapping()
-    public ResponseEntity<Widget> create(@RequestBody Widget widget) {
-        return ResponseEntity.ok(service.create(widget));
+    @ApiResponses(@ApiResponse(code = 403, message = BOARD_LIMIT))
+    public ResponseEntity<Widget> create(@PathVariable(required = false) String boardId, @RequestBody Widget widget) {
+        return ResponseEntity.ok(serviceOrCreate(boardId).create(widget));
+    }
+
+    @PostMapping("batch")
+    @ApiResponses(@ApiResponse(code = 403, message = BOARD_LIMIT))
+    public ResponseEntity<List<BatchResult>> batch(@PathVariable(required = false) String boardId,
+                                                   @RequestBody List<BatchOperation> operations) {
+        return ResponseEntity.ok(serviceOrCreate(boardId).batch(operations));
     }
 
     @PutMapping()
-    public ResponseEntity<Widget> update(@RequestBody Widget widget) {
-        return ResponseEntity.ok(service.update(widget));
+    @ApiResponses({
+            @ApiResponse(code = 404, message = WIDGET_NOT_FOUND),
+            @ApiResponse(code = 409, message = "Widget was changed after version given in body, nothing is changed")
+    })
+    public ResponseEntity<Widget> update(@PathVariable(required = false) String boardId, @RequestBody Widget widget) {
+        return ResponseEntity.ok(service(boardId).update(widget));
+    }
+
+    /**
+     * Changes only values given in body, others are kept, so dragging widget sends only x and y
+     */
+    @PatchMapping("{id}")
+    @ApiResponses(@ApiResponse(code = 404, message = WIDGET_NOT_FOUND))
+    public ResponseEntity<Widget> patch(@PathVariable(required = false) String boardId, @PathVariable Long id,
+                                        @RequestBody Widget patch) {
+        return ResponseEntity.ok(service(boardId).patch(id, patch));
     }
 
     @DeleteMapping("{id}")
-    public ResponseEntity<Void> delete(@PathVariable Long id) {
-        return ResponseEntity.ok(service.delete(id));
+    @ApiResponses(@ApiResponse(code = 404, message = WIDGET_NOT_FOUND))
+    public ResponseEntity<Void> delete(@PathVariable(required = false) String boardId, @PathVariable Long id) {
+        return ResponseEntity.ok(service(boardId).delete(id));
+    }
+
+    /**
+     * Writes changes following sequence number until stream duration is over, every read of changes is flushed
+     * @param widgets service of board
+     * @param from sequence number of the last change seen by client, null for new client
+     * @param output buffered output of response
+     */
+    private void follow(WidgetService widgets, Long from, OutputStream output) throws IOException {
+        long deadline = System.currentTimeMillis() + eventsDuration;
+        long after = Objects.isNull(from) ? reset(widgets, 0, output) : from;
+        try {
+            for (long left = eventsDuration; left > 0; left = deadline - System.currentTimeMillis()) {
+                List<WidgetEvent> changes = widgets.getChanges(after, Math.min(left, HEARTBEAT_MS));
+                if (changes.isEmpty()) output.write(HEARTBEAT);
+                for (WidgetEvent change : changes) {
+                    if (change.getType() == WidgetEvent.Type.RESET) {
+                        after = reset(widgets, change.getSequence(), output);
+                        break;
+                    }
+                    output.write(("id: " + change.getSequence() + "\ndata: ").getBytes(StandardCharsets.US_ASCII));
+                    events.writeValue(output, change);
+                    output.write('\n');
+                    output.write('\n');
+                    after = change.getSequence();
+                }
+                output.flush();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        output.flush();
+    }
+
+    /**
+     * Writes RESET event holding all widgets of board in order of Z index.
+     * Widgets are written while they are walked, so sequence number follows them in event.
+     * @param after sequence number of change widgets have to cover, copy of widgets shared with other clients
+     *              is taken again when it is older
+     * @return sequence number of the last change covered by widgets
+     */
+    private long reset(WidgetService widgets, long after, OutputStream output) throws IOException {
+        output.write("data: {\"type\":\"RESET\",\"widgets\":[".getBytes(StandardCharsets.US_ASCII));
+        SequenceWriter writer = items.writeValues(output);
+        long sequence;
+        try {
+            sequence = widgets.forEachWidget(after, widget -> {
+                try {
+                    writer.write(widget);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.close();
+        output.write(("],\"sequence\":" + sequence + "}\nid: " + sequence + "\n\n").getBytes(StandardCharsets.US_ASCII));
+        output.flush();
+        return sequence;
+    }
+
+    /**
+     * JSON and binary widgets are different representations, so they get different strong ETags.
+     * ETag is checked before body is written, so representation is found from Accept header
+     * the same way content negotiation selects it.
+     * @return strong ETag of version for representation selected by Accept header
+     */
+    private static String etag(WebRequest request, Object version) {
+        boolean binary = WidgetBinaryMessageConverter.isSelected(request.getHeader(HttpHeaders.ACCEPT));
+        return "\"" + version + (binary ? BINARY_ETAG_SUFFIX : "") + "\"";
+    }
+
+    /**
+     * Response to request with matching ETag, status and ETag are already set by checkNotModified
+     */
+    private static <T> ResponseEntity<T> notModified() {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).varyBy(HttpHeaders.ACCEPT).build();
+    }
+
+    /**
+     * @param boardId id of board from path, null for default board
+     * @return service of existing board, reads of board not created yet get 404
+     */
+    private WidgetService service(String boardId) {
+        return Objects.isNull(boardId) ? service : boards.board(boardId);
+    }
+
+    /**
+     * @param boardId id of board from path, null for default board
+     * @return service of board, board is created when it is not created yet
+     */
+    private WidgetService serviceOrCreate(String boardId) {
+        return Objects.isNull(boardId) ? service : boards.boardOrCreate(boardId);
     }
 
 }
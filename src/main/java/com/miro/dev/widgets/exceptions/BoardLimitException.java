@@ -0,0 +1,7 @@
+package com.miro.dev.widgets.exceptions;
+
+public class BoardLimitException extends RuntimeException {
+    public BoardLimitException() {
+        super("Too many boards!");
+    }
+}
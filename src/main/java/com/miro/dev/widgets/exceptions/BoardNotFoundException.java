@@ -0,0 +1,7 @@
+package com.miro.dev.widgets.exceptions;
+
+public class BoardNotFoundException extends RuntimeException {
+    public BoardNotFoundException() {
+        super("Board not found!");
+    }
+}
@@ -19,4 +19,44 @@ public class CustomExceptionHandler extends ResponseEntityExceptionHandler {
     public void springHandleInvalidWidget(HttpServletResponse response) throws IOException {
         response.sendError(HttpStatus.BAD_REQUEST.value());
     }
+
+    @ExceptionHandler(InvalidAreaException.class)
+    public void springHandleInvalidArea(HttpServletResponse response) throws IOException {
+        response.sendError(HttpStatus.BAD_REQUEST.value());
+    }
+
+    @ExceptionHandler(InvalidCursorException.class)
+    public void springHandleInvalidCursor(HttpServletResponse response) throws IOException {
+        response.sendError(HttpStatus.BAD_REQUEST.value());
+    }
+
+    @ExceptionHandler(InvalidBatchException.class)
+    public void springHandleInvalidBatch(HttpServletResponse response) throws IOException {
+        response.sendError(HttpStatus.BAD_REQUEST.value());
+    }
+
+    @ExceptionHandler(InvalidBoardException.class)
+    public void springHandleInvalidBoard(HttpServletResponse response) throws IOException {
+        response.sendError(HttpStatus.BAD_REQUEST.value());
+    }
+
+    @ExceptionHandler(BoardNotFoundException.class)
+    public void springHandleBoardNotFound(HttpServletResponse response) throws IOException {
+        response.sendError(HttpStatus.NOT_FOUND.value());
+    }
+
+    @ExceptionHandler(BoardLimitException.class)
+    public void springHandleBoardLimit(HttpServletResponse response) throws IOException {
+        response.sendError(HttpStatus.FORBIDDEN.value());
+    }
+
+    @ExceptionHandler(VersionExpiredException.class)
+    public void springHandleVersionExpired(HttpServletResponse response) throws IOException {
+        response.sendError(HttpStatus.GONE.value());
+    }
+
+    @ExceptionHandler(VersionConflictException.class)
+    public void springHandleVersionConflict(HttpServletResponse response) throws IOException {
+        response.sendError(HttpStatus.CONFLICT.value());
+    }
 }
@@ -0,0 +1,7 @@
+package com.miro.dev.widgets.exceptions;
+
+public class InvalidAreaException extends RuntimeException {
+    public InvalidAreaException() {
+        super("Invalid area params!");
+    }
+}
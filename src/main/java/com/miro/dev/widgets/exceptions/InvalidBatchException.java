@@ -0,0 +1,7 @@
+package com.miro.dev.widgets.exceptions;
+
+public class InvalidBatchException extends RuntimeException {
+    public InvalidBatchException() {
+        super("Invalid batch!");
+    }
+}
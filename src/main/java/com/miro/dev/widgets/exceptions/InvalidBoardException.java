@@ -0,0 +1,7 @@
+package com.miro.dev.widgets.exceptions;
+
+public class InvalidBoardException extends RuntimeException {
+    public InvalidBoardException() {
+        super("Invalid board!");
+    }
+}
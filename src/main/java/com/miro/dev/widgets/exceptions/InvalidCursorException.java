@@ -0,0 +1,7 @@
+package com.miro.dev.widgets.exceptions;
+
+public class InvalidCursorException extends RuntimeException {
+    public InvalidCursorException() {
+        super("Invalid cursor!");
+    }
+}
@@ -0,0 +1,7 @@
+package com.miro.dev.widgets.exceptions;
+
+public class VersionConflictException extends RuntimeException {
+    public VersionConflictException() {
+        super("Widget was changed after given version!");
+    }
+}
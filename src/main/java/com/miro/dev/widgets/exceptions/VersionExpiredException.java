@@ -0,0 +1,7 @@
+package com.miro.dev.widgets.exceptions;
+
+public class VersionExpiredException extends RuntimeException {
+    public VersionExpiredException() {
+        super("Changes since version are not kept!");
+    }
+}
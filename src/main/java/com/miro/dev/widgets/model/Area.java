@@ -0,0 +1,34 @@
+package com.miro.dev.widgets.model;
+
+import lombok.Getter;
+
+/**
+ * Rectangular area of board given by two corners,
+ * used for looking up widgets intersecting it
+ */
+@Getter
+public class Area {
+    private final Integer x1;
+    private final Integer y1;
+    private final Integer x2;
+    private final Integer y2;
+
+    public Area(Integer x1, Integer y1, Integer x2, Integer y2) {
+        this.x1 = x1;
+        this.y1 = y1;
+        this.x2 = x2;
+        this.y2 = y2;
+    }
+
+    /**
+     * Checks that rectangle intersects area, touching borders counts as intersection
+     * @param x left coordinate of rectangle
+     * @param y bottom coordinate of rectangle
+     * @param width width of rectangle
+     * @param height height of rectangle
+     * @return true when rectangle and area have common points
+     */
+    public boolean intersects(long x, long y, long width, long height) {
+        return x <= x2 && x + width >= x1 && y <= y2 && y + height >= y1;
+    }
+}
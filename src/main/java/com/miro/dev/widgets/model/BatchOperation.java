@@ -0,0 +1,29 @@
+package com.miro.dev.widgets.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Single item of batch request
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchOperation {
+    public enum Type {
+        CREATE, UPDATE, DELETE
+    }
+
+    private Type type;
+    /**
+     * Widget to create or update
+     */
+    private Widget widget;
+    /**
+     * Id of widget to delete
+     */
+    private Long id;
+}
@@ -0,0 +1,40 @@
+package com.miro.dev.widgets.model;
+
+import lombok.Getter;
+
+/**
+ * Result of single item of batch request
+ */
+@Getter
+public class BatchResult {
+    public enum Status {
+        OK, INVALID, NOT_FOUND, CONFLICT
+    }
+
+    private final Status status;
+    /**
+     * Created or updated widget, null for deleted widget and failed items
+     */
+    private final Widget widget;
+
+    private BatchResult(Status status, Widget widget) {
+        this.status = status;
+        this.widget = widget;
+    }
+
+    public static BatchResult ok(Widget widget) {
+        return new BatchResult(Status.OK, widget);
+    }
+
+    public static BatchResult invalid() {
+        return new BatchResult(Status.INVALID, null);
+    }
+
+    public static BatchResult notFound() {
+        return new BatchResult(Status.NOT_FOUND, null);
+    }
+
+    public static BatchResult conflict() {
+        return new BatchResult(Status.CONFLICT, null);
+    }
+}
@@ -0,0 +1,54 @@
+package com.miro.dev.widgets.model;
+
+import com.miro.dev.widgets.exceptions.InvalidCursorException;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+
+/**
+ * Position in list of widgets ordered by Z index.
+ * Holds Z index of the last returned widget and version of Z indexes
+ * it was taken at, so position can be moved through later shifts.
+ * Passed to clients as opaque string.
+ */
+@Getter
+@EqualsAndHashCode
+public class Cursor {
+    private static final int BYTES = Long.BYTES + Integer.BYTES;
+
+    private final long version;
+    private final int zIndex;
+
+    public Cursor(long version, int zIndex) {
+        this.version = version;
+        this.zIndex = zIndex;
+    }
+
+    /**
+     * Decodes cursor given by client
+     * @param value opaque string returned by encode
+     * @return instance of Cursor
+     */
+    public static Cursor parse(String value) {
+        byte[] bytes;
+        try {
+            bytes = Base64.getUrlDecoder().decode(value);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException();
+        }
+        if (bytes.length != BYTES) throw new InvalidCursorException();
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new Cursor(buffer.getLong(), buffer.getInt());
+    }
+
+    /**
+     * @return opaque string safe to use in URL
+     */
+    public String encode() {
+        byte[] bytes = ByteBuffer.allocate(BYTES).putLong(version).putInt(zIndex).array();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+}
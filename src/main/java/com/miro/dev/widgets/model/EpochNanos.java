@@ -0,0 +1,27 @@
+package com.miro.dev.widgets.model;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Conversion of modification dates to nanoseconds since epoch in UTC,
+ * used where dates are kept in primitive columns or written in binary form
+ */
+public final class EpochNanos {
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private EpochNanos() {}
+
+    /**
+     * @throws ArithmeticException when date is too far from epoch to fit nanoseconds in long
+     */
+    public static long of(LocalDateTime time) {
+        return Math.addExact(Math.multiplyExact(time.toEpochSecond(ZoneOffset.UTC), NANOS_PER_SECOND), time.getNano());
+    }
+
+    public static LocalDateTime toDateTime(long nanos) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(nanos, NANOS_PER_SECOND),
+                (int) Math.floorMod(nanos, NANOS_PER_SECOND), ZoneOffset.UTC);
+    }
+}
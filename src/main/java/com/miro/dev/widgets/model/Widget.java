@@ -1,13 +1,16 @@
 package com.miro.dev.widgets.model;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import lombok.Builder;
 import lombok.Data;
 
 import java.time.LocalDateTime;
+import java.util.Objects;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
+@JsonSerialize(using = WidgetSerializer.class)
 public class Widget {
     private Long id;
     @JsonProperty("x")
@@ -19,6 +22,24 @@ public class Widget {
     private Integer width;
     private Integer height;
     private LocalDateTime modifiedAt;
+    /**
+     * Version of board at the last change of widget, set by repository
+     */
+    private Long version;
 
-    public void incrementZIndex() { zIndex++; }
+    /**
+     * Copies widget replacing its values by values given in patch, null values of patch keep values of widget.
+     * Id, modification date and version are kept.
+     * @param patch values to change
+     * @return patched copy of widget
+     */
+    public Widget patched(Widget patch) {
+        return toBuilder()
+                .xIndex(Objects.requireNonNullElse(patch.getXIndex(), xIndex))
+                .yIndex(Objects.requireNonNullElse(patch.getYIndex(), yIndex))
+                .zIndex(Objects.requireNonNullElse(patch.getZIndex(), zIndex))
+                .width(Objects.requireNonNullElse(patch.getWidth(), width))
+                .height(Objects.requireNonNullElse(patch.getHeight(), height))
+                .build();
+    }
 }
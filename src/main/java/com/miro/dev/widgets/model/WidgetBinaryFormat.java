@@ -0,0 +1,159 @@
+package com.miro.dev.widgets.model;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact binary representation of widgets served as application/x-widgets.
+ * Widget is a byte of present values followed by present values in order id, x, y, z, width, height,
+ * modifiedAt, version, bit i of the first byte is set when value i is present.
+ * Every value is zigzag encoded variable length integer: 7 bits per byte, lowest bits first,
+ * high bit set on all bytes but the last. Modification date is nanoseconds since epoch in UTC,
+ * so dates are read back exactly. List of widgets is number of widgets followed by widgets.
+ */
+public final class WidgetBinaryFormat {
+
+    public static final String MEDIA_TYPE = "application/x-widgets";
+
+    private static final int VALUES = 8;
+
+    /**
+     * Max length of widget: byte of present values and 10 bytes of every value
+     */
+    private static final int MAX_WIDGET_LENGTH = 1 + VALUES * 10;
+
+    /**
+     * Widgets are encoded into buffer of about this size and written to stream by buffer
+     */
+    private static final int BUFFER = 1 << 13;
+
+    private WidgetBinaryFormat() {
+    }
+
+    public static void write(Widget widget, OutputStream output) throws IOException {
+        byte[] buffer = new byte[MAX_WIDGET_LENGTH];
+        output.write(buffer, 0, encode(widget, buffer, 0));
+    }
+
+    public static void write(List<Widget> widgets, OutputStream output) throws IOException {
+        byte[] buffer = new byte[BUFFER + MAX_WIDGET_LENGTH];
+        int position = putLong(buffer, 0, widgets.size());
+        for (Widget widget : widgets) {
+            position = encode(widget, buffer, position);
+            if (position >= BUFFER) {
+                output.write(buffer, 0, position);
+                position = 0;
+            }
+        }
+        output.write(buffer, 0, position);
+    }
+
+    public static Widget read(InputStream input) throws IOException {
+        int present = readByte(input);
+        return Widget.builder()
+                .id(isPresent(present, 0) ? readLong(input) : null)
+                .xIndex(isPresent(present, 1) ? readInt(input) : null)
+                .yIndex(isPresent(present, 2) ? readInt(input) : null)
+                .zIndex(isPresent(present, 3) ? readInt(input) : null)
+                .width(isPresent(present, 4) ? readInt(input) : null)
+                .height(isPresent(present, 5) ? readInt(input) : null)
+                .modifiedAt(isPresent(present, 6) ? EpochNanos.toDateTime(readLong(input)) : null)
+                .version(isPresent(present, 7) ? readLong(input) : null)
+                .build();
+    }
+
+    public static List<Widget> readList(InputStream input) throws IOException {
+        int count = Math.toIntExact(readLong(input));
+        List<Widget> widgets = new ArrayList<>(Math.min(count, BUFFER));
+        for (int i = 0; i < count; i++) {
+            widgets.add(read(input));
+        }
+        return widgets;
+    }
+
+    /**
+     * @return position after encoded widget, at most MAX_WIDGET_LENGTH bytes after given one
+     */
+    private static int encode(Widget widget, byte[] buffer, int position) {
+        int start = position++;
+        int present = 0;
+        if (widget.getId() != null) {
+            present |= 1;
+            position = putLong(buffer, position, widget.getId());
+        }
+        if (widget.getXIndex() != null) {
+            present |= 1 << 1;
+            position = putLong(buffer, position, widget.getXIndex());
+        }
+        if (widget.getYIndex() != null) {
+            present |= 1 << 2;
+            position = putLong(buffer, position, widget.getYIndex());
+        }
+        if (widget.getZIndex() != null) {
+            present |= 1 << 3;
+            position = putLong(buffer, position, widget.getZIndex());
+        }
+        if (widget.getWidth() != null) {
+            present |= 1 << 4;
+            position = putLong(buffer, position, widget.getWidth());
+        }
+        if (widget.getHeight() != null) {
+            present |= 1 << 5;
+            position = putLong(buffer, position, widget.getHeight());
+        }
+        if (widget.getModifiedAt() != null) {
+            present |= 1 << 6;
+            position = putLong(buffer, position, EpochNanos.of(widget.getModifiedAt()));
+        }
+        if (widget.getVersion() != null) {
+            present |= 1 << 7;
+            position = putLong(buffer, position, widget.getVersion());
+        }
+        buffer[start] = (byte) present;
+        return position;
+    }
+
+    /**
+     * Writes zigzag encoded value, so small negative values take as few bytes as small positive ones
+     */
+    private static int putLong(byte[] buffer, int position, long value) {
+        return putVarLong(buffer, position, (value << 1) ^ (value >> 63));
+    }
+
+    private static int putVarLong(byte[] buffer, int position, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer[position++] = (byte) (value | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+        return position;
+    }
+
+    private static long readLong(InputStream input) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte(input);
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return (value >>> 1) ^ -(value & 1);
+        }
+        throw new IOException("Malformed variable length integer");
+    }
+
+    private static int readInt(InputStream input) throws IOException {
+        return Math.toIntExact(readLong(input));
+    }
+
+    private static int readByte(InputStream input) throws IOException {
+        int b = input.read();
+        if (b < 0) throw new EOFException();
+        return b;
+    }
+
+    private static boolean isPresent(int present, int value) {
+        return (present & (1 << value)) != 0;
+    }
+}
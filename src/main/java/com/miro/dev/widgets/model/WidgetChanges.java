@@ -0,0 +1,33 @@
+package com.miro.dev.widgets.model;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Widgets changed after version given by client, ids of deleted widgets and shifts of Z indexes
+ */
+@Getter
+public class WidgetChanges {
+    /**
+     * Version of board covered by changes, client passes it to get the next changes
+     */
+    private final long version;
+    /**
+     * Current state of created and updated widgets in order of their changes
+     */
+    private final List<Widget> widgets;
+    private final List<Long> deleted;
+    /**
+     * Shifts of Z indexes in order of versions, client applies them to its widgets not listed in widgets,
+     * listed widgets already have shifted Z indexes
+     */
+    private final List<ZIndexShift> shifts;
+
+    public WidgetChanges(long version, List<Widget> widgets, List<Long> deleted, List<ZIndexShift> shifts) {
+        this.version = version;
+        this.widgets = widgets;
+        this.deleted = deleted;
+        this.shifts = shifts;
+    }
+}
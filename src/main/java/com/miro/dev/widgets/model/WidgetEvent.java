@@ -0,0 +1,80 @@
+package com.miro.dev.widgets.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Getter;
+
+/**
+ * Change of widgets of board with its sequence number.
+ * Sequence numbers of board grow with every change, so changes
+ * applied in order of sequence give the actual state of board.
+ */
+@Getter
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class WidgetEvent {
+    public enum Type {
+        /**
+         * Widget is created, event holds it
+         */
+        CREATE,
+        /**
+         * Widget is updated, event holds its new state
+         */
+        UPDATE,
+        /**
+         * Widget is deleted, event holds its id
+         */
+        DELETE,
+        /**
+         * Z indexes of all widgets greater or equal Z index of event are incremented
+         */
+        SHIFT,
+        /**
+         * Widgets are replaced at once or changes before are not known anymore,
+         * so state of board has to be read again
+         */
+        RESET
+    }
+
+    private final long sequence;
+    private final Type type;
+    private final Widget widget;
+    private final Long id;
+    private final Integer zIndex;
+
+    private WidgetEvent(long sequence, Type type, Widget widget, Long id, Integer zIndex) {
+        this.sequence = sequence;
+        this.type = type;
+        this.widget = widget;
+        this.id = id;
+        this.zIndex = zIndex;
+    }
+
+    /**
+     * @return lowest shifted Z index
+     */
+    @JsonProperty("z")
+    public Integer getZIndex() {
+        return zIndex;
+    }
+
+    public static WidgetEvent create(long sequence, Widget widget) {
+        return new WidgetEvent(sequence, Type.CREATE, widget, null, null);
+    }
+
+    public static WidgetEvent update(long sequence, Widget widget) {
+        return new WidgetEvent(sequence, Type.UPDATE, widget, null, null);
+    }
+
+    public static WidgetEvent delete(long sequence, long id) {
+        return new WidgetEvent(sequence, Type.DELETE, null, id, null);
+    }
+
+    public static WidgetEvent shift(long sequence, int zIndex) {
+        return new WidgetEvent(sequence, Type.SHIFT, null, null, zIndex);
+    }
+
+    public static WidgetEvent reset(long sequence) {
+        return new WidgetEvent(sequence, Type.RESET, null, null, null);
+    }
+}
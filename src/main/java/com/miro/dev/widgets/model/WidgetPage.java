@@ -0,0 +1,22 @@
+package com.miro.dev.widgets.model;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Page of widgets ordered by Z index with position of the next page
+ */
+@Getter
+public class WidgetPage {
+    private final List<Widget> widgets;
+    /**
+     * Cursor for the next page, null when there are no more widgets
+     */
+    private final Cursor next;
+
+    public WidgetPage(List<Widget> widgets, Cursor next) {
+        this.widgets = widgets;
+        this.next = next;
+    }
+}
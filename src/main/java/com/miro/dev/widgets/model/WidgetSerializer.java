@@ -0,0 +1,137 @@
+package com.miro.dev.widgets.model;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Writes Widget field by field without reflection, output is the same as of bean serializer:
+ * the same order of properties, null values are written.
+ * Modification date is formatted as ISO local date time into reused char buffer instead of formatter,
+ * which allocates about 700 bytes per date. Timestamps enabled by WRITE_DATES_AS_TIMESTAMPS
+ * are left to serializer of mapper.
+ */
+public class WidgetSerializer extends StdSerializer<Widget> {
+
+    private static final SerializedString ID = new SerializedString("id");
+    private static final SerializedString WIDTH = new SerializedString("width");
+    private static final SerializedString HEIGHT = new SerializedString("height");
+    private static final SerializedString MODIFIED_AT = new SerializedString("modifiedAt");
+    private static final SerializedString VERSION = new SerializedString("version");
+    private static final SerializedString X = new SerializedString("x");
+    private static final SerializedString Y = new SerializedString("y");
+    private static final SerializedString Z = new SerializedString("z");
+
+    /**
+     * Max length of date with 4 digit year: yyyy-MM-ddTHH:mm:ss.nnnnnnnnn
+     */
+    private static final int DATE_LENGTH = 29;
+
+    /**
+     * Buffer of formatted date, generator copies date from it, so buffer is reused by all widgets written by thread
+     */
+    private static final ThreadLocal<char[]> DATE_BUFFER = ThreadLocal.withInitial(() -> new char[DATE_LENGTH]);
+
+    public WidgetSerializer() {
+        super(Widget.class);
+    }
+
+    @Override
+    public void serialize(Widget widget, JsonGenerator generator, SerializerProvider provider) throws IOException {
+        generator.writeStartObject(widget);
+        generator.writeFieldName(ID);
+        writeNumber(generator, widget.getId());
+        generator.writeFieldName(WIDTH);
+        writeNumber(generator, widget.getWidth());
+        generator.writeFieldName(HEIGHT);
+        writeNumber(generator, widget.getHeight());
+        generator.writeFieldName(MODIFIED_AT);
+        writeDate(generator, widget.getModifiedAt(), provider);
+        generator.writeFieldName(VERSION);
+        writeNumber(generator, widget.getVersion());
+        generator.writeFieldName(X);
+        writeNumber(generator, widget.getXIndex());
+        generator.writeFieldName(Y);
+        writeNumber(generator, widget.getYIndex());
+        generator.writeFieldName(Z);
+        writeNumber(generator, widget.getZIndex());
+        generator.writeEndObject();
+    }
+
+    private static void writeNumber(JsonGenerator generator, Long value) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+        } else {
+            generator.writeNumber(value);
+        }
+    }
+
+    private static void writeNumber(JsonGenerator generator, Integer value) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+        } else {
+            generator.writeNumber(value);
+        }
+    }
+
+    private static void writeDate(JsonGenerator generator, LocalDateTime date, SerializerProvider provider)
+            throws IOException {
+        if (date == null) {
+            generator.writeNull();
+        } else if (provider.isEnabled(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)) {
+            provider.defaultSerializeValue(date, generator);
+        } else if (date.getYear() < 0 || date.getYear() > 9999) {
+            generator.writeString(DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(date));
+        } else {
+            char[] buffer = DATE_BUFFER.get();
+            generator.writeString(buffer, 0, format(date, buffer));
+        }
+    }
+
+    /**
+     * Formats date with 4 digit year the same way as DateTimeFormatter.ISO_LOCAL_DATE_TIME:
+     * seconds are always written, fraction of second only when it is not zero and without trailing zeros
+     * @return length of formatted date
+     */
+    static int format(LocalDateTime date, char[] buffer) {
+        int position = digits(buffer, 0, date.getYear(), 4);
+        buffer[position++] = '-';
+        position = digits(buffer, position, date.getMonthValue(), 2);
+        buffer[position++] = '-';
+        position = digits(buffer, position, date.getDayOfMonth(), 2);
+        buffer[position++] = 'T';
+        position = digits(buffer, position, date.getHour(), 2);
+        buffer[position++] = ':';
+        position = digits(buffer, position, date.getMinute(), 2);
+        buffer[position++] = ':';
+        position = digits(buffer, position, date.getSecond(), 2);
+
+        int nano = date.getNano();
+        if (nano == 0) return position;
+        int length = 9;
+        while (nano % 10 == 0) {
+            nano /= 10;
+            length--;
+        }
+        buffer[position++] = '.';
+        return digits(buffer, position, nano, length);
+    }
+
+    /**
+     * Writes value padded by zeros to given number of digits
+     * @return position after written digits
+     */
+    private static int digits(char[] buffer, int position, int value, int count) {
+        for (int i = position + count - 1; i >= position; i--) {
+            buffer[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return position + count;
+    }
+}
@@ -0,0 +1,30 @@
+package com.miro.dev.widgets.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Getter;
+
+/**
+ * Shift of Z indexes of all widgets greater or equal Z index of shift by one.
+ * Shift is done at once for the whole range, so shifted widgets keep their versions and modification dates.
+ */
+@Getter
+public class ZIndexShift {
+    /**
+     * Version of board at shift
+     */
+    private final long version;
+    private final int zIndex;
+
+    public ZIndexShift(long version, int zIndex) {
+        this.version = version;
+        this.zIndex = zIndex;
+    }
+
+    /**
+     * @return lowest shifted Z index
+     */
+    @JsonProperty("z")
+    public int getZIndex() {
+        return zIndex;
+    }
+}
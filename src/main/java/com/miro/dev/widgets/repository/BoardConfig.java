@@ -0,0 +1,41 @@
+package com.miro.dev.widgets.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Class for routing of boards.
+ * Unless another BoardRouter is declared, boards are kept in local memory,
+ * every board in its own store of type set by widgets.repository.type,
+ * mapped store of board is kept in boards/{boardId} under widgets.mapped.path.
+ * Number of boards is limited by widgets.boards.max (100 by default).
+ * Boards are not written to log or snapshots.
+ */
+@Configuration
+public class BoardConfig {
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnMissingBean(BoardRouter.class)
+    LocalBoardRouter boardRouter(@Value("${widgets.repository.type:map}") String type,
+                                 @Value("${widgets.mapped.path:data/widgets}") String mappedPath,
+                                 @Value("${widgets.boards.max:100}") int maxBoards) {
+        switch (type) {
+            case "array":
+                return new LocalBoardRouter(boardId -> new WidgetRepositoryArrayImpl(), boardId -> false, maxBoards);
+            case "offheap":
+                return new LocalBoardRouter(boardId -> new WidgetRepositoryOffHeapImpl(), boardId -> false, maxBoards);
+            case "mapped":
+                Path boards = Paths.get(mappedPath, "boards");
+                return new LocalBoardRouter(boardId -> new WidgetRepositoryMappedImpl(boards.resolve(boardId).toString()),
+                        boardId -> Files.isDirectory(boards.resolve(boardId)), maxBoards);
+            default:
+                return new LocalBoardRouter(boardId -> new WidgetRepositoryInMemoryImpl(), boardId -> false, maxBoards);
+        }
+    }
+}
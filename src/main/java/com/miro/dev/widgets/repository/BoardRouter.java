@@ -0,0 +1,29 @@
+package com.miro.dev.widgets.repository;
+
+import java.util.Optional;
+
+/**
+ * Routes board to repository holding its widgets.
+ * Every board has its own repository with own Z indexes, ids and locks,
+ * so boards never contend with each other.
+ * Default router keeps all boards in local memory, see BoardConfig,
+ * another router may be declared as bean to place boards elsewhere.
+ */
+public interface BoardRouter {
+
+    /**
+     * Gives repository of board for writes, which may create board
+     * @param boardId checked id of board
+     * @return repository of board, created when board is not known yet
+     * @throws com.miro.dev.widgets.exceptions.BoardLimitException when board is not known
+     * and no more boards may be created
+     */
+    WidgetRepository route(String boardId);
+
+    /**
+     * Gives repository of board for reads, which never create board
+     * @param boardId checked id of board
+     * @return repository of board, empty when board is not known
+     */
+    Optional<WidgetRepository> find(String boardId);
+}
@@ -0,0 +1,270 @@
+package com.miro.dev.widgets.repository;
+
+import com.miro.dev.widgets.model.Widget;
+import com.miro.dev.widgets.model.WidgetEvent;
+import com.miro.dev.widgets.model.ZIndexShift;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Bounded feed of the latest changes of store ordered by sequence numbers.
+ * Store publishes changes while it holds its lock, so order of sequence numbers
+ * is the order of changes. Readers follow feed from the sequence number they have seen,
+ * reader falling behind by more than CAPACITY changes gets RESET and has to read widgets again.
+ * Sequence number of change is also version of changed widget, widgets changed after
+ * some version are found by index of versions without walking all changes.
+ * Sequence numbers start at current time in microseconds, so they keep growing across restarts
+ * and numbers of previous run are not taken for changes of the current one.
+ */
+public class ChangeFeed {
+
+    /**
+     * Number of kept changes
+     */
+    static final int CAPACITY = 1 << 16;
+
+    /**
+     * Latest changes, change of sequence s is kept at s % CAPACITY
+     */
+    private final WidgetEvent[] events = new WidgetEvent[CAPACITY];
+
+    /**
+     * Lock guarding events and sequence numbers, readers waiting for changes release carrier of virtual thread
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Signalled on every change
+     */
+    private final Condition published = lock.newCondition();
+
+    /**
+     * Sequence number of the last change
+     */
+    private long sequence;
+
+    /**
+     * Sequence number of the oldest kept change
+     */
+    private long oldest;
+
+    /**
+     * The latest changes of widgets by version, kept beyond CAPACITY
+     */
+    private final VersionIndex versions;
+
+    ChangeFeed() {
+        this(TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis()));
+    }
+
+    /**
+     * @param sequence sequence number which the first change follows
+     */
+    ChangeFeed(long sequence) {
+        this.sequence = sequence;
+        this.oldest = sequence + 1;
+        this.versions = new VersionIndex(sequence);
+    }
+
+    /**
+     * @return sequence number of the last change
+     */
+    public long sequence() {
+        lock.lock();
+        try {
+            return sequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reads changes following given sequence number, waits for them when there are none yet.
+     * @param after sequence number of the last change seen by reader
+     * @param max max number of returned changes
+     * @param timeout max time to wait in milliseconds
+     * @return changes in order of sequence numbers, empty when none came in time, single RESET
+     * when changes after given number are not kept or the number was not given by this feed
+     * @throws InterruptedException when interrupted while waiting
+     */
+    public List<WidgetEvent> read(long after, int max, long timeout) throws InterruptedException {
+        long nanos = TimeUnit.MILLISECONDS.toNanos(timeout);
+        lock.lock();
+        try {
+            while (after == sequence && nanos > 0) {
+                nanos = published.awaitNanos(nanos);
+            }
+            if (after < oldest - 1 || after > sequence) return List.of(WidgetEvent.reset(sequence));
+
+            int count = (int) Math.min(max, sequence - after);
+            List<WidgetEvent> result = new ArrayList<>(count);
+            for (long s = after + 1; s <= after + count; s++) {
+                result.add(events[(int) (s % CAPACITY)]);
+            }
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reads ids of widgets changed after given version, see VersionIndex
+     * @param version version seen by client
+     * @return ids of changed widgets and shifts with the current version, null when changes after version are not known
+     */
+    ChangedIds changedSince(long version) {
+        lock.lock();
+        try {
+            if (version < versions.horizon() || version > sequence) return null;
+            return new ChangedIds(sequence, versions.since(version), versions.shiftsSince(version));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Publishes copy of created widget and sets version of widget to sequence number of change
+     */
+    void created(Widget widget) {
+        lock.lock();
+        try {
+            widget.setVersion(++sequence);
+            versions.put(widget.getId(), sequence);
+            append(WidgetEvent.create(sequence, widget.toBuilder().build()));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Publishes copy of updated widget and sets version of widget to sequence number of change
+     */
+    void updated(Widget widget) {
+        updated(widget, () -> {}, () -> {});
+    }
+
+    /**
+     * Publishes copy of updated widget and sets version of widget to sequence number of change
+     * @param check checks stored widget before change and throws to reject it, runs under lock of feed
+     * @param store stores widget with its version, runs under lock of feed, so updates
+     *              sharing lock of store are checked and stored in the same order as they are published
+     */
+    void updated(Widget widget, Runnable check, Runnable store) {
+        updated(() -> {
+            check.run();
+            return widget;
+        }, updated -> store.run());
+    }
+
+    /**
+     * Publishes copy of widget built from stored one and sets version of widget to sequence number of change.
+     * Widget is built under lock of feed, so updates sharing lock of store never build on the same stored state.
+     * @param update builds updated widget and throws to reject change, returns null to publish nothing
+     * @param store stores widget with its version, runs under lock of feed
+     * @return published widget, null when nothing was published
+     */
+    Widget updated(Supplier<Widget> update, Consumer<Widget> store) {
+        lock.lock();
+        try {
+            Widget widget = update.get();
+            if (Objects.isNull(widget)) return null;
+            widget.setVersion(++sequence);
+            store.accept(widget);
+            versions.put(widget.getId(), sequence);
+            append(WidgetEvent.update(sequence, widget.toBuilder().build()));
+            return widget;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void deleted(long id) {
+        lock.lock();
+        try {
+            versions.delete(id, ++sequence);
+            append(WidgetEvent.delete(sequence, id));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Publishes shift of all Z indexes greater or equal given one
+     */
+    void shifted(int zIndex) {
+        lock.lock();
+        try {
+            versions.shift(zIndex, ++sequence);
+            append(WidgetEvent.shift(sequence, zIndex));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Publishes replacement of all widgets, changes before are not needed anymore
+     * @return sequence number of change, version of all widgets
+     */
+    long reset() {
+        lock.lock();
+        try {
+            versions.clear(++sequence);
+            append(WidgetEvent.reset(sequence));
+            return sequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Keeps change of the current sequence number and wakes readers, lock must be held
+     */
+    private void append(WidgetEvent event) {
+        events[(int) (sequence % CAPACITY)] = event;
+        oldest = Math.max(oldest, sequence - CAPACITY + 1);
+        published.signalAll();
+    }
+
+    /**
+     * Ids of widgets changed after some version and shifts done after it
+     */
+    static final class ChangedIds {
+        private final long version;
+        private final long[] ids;
+        private final List<ZIndexShift> shifts;
+
+        private ChangedIds(long version, long[] ids, List<ZIndexShift> shifts) {
+            this.version = version;
+            this.ids = ids;
+            this.shifts = shifts;
+        }
+
+        /**
+         * @return version of the last change
+         */
+        public long getVersion() {
+            return version;
+        }
+
+        /**
+         * @return ids of changed widgets in order of changes, negative for deleted widgets
+         */
+        public long[] getIds() {
+            return ids;
+        }
+
+        /**
+         * @return shifts of Z indexes in order of versions
+         */
+        public List<ZIndexShift> getShifts() {
+            return shifts;
+        }
+    }
+}
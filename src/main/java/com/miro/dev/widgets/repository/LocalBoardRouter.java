@@ -0,0 +1,104 @@
+package com.miro.dev.widgets.repository;
+
+import com.miro.dev.widgets.exceptions.BoardLimitException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Keeps repositories of all boards in local memory, repository is created on the first write to board.
+ * Boards kept in files by previous run are opened by the first request of any kind.
+ * Number of boards is limited, every board takes its own change feed and indexes,
+ * so requests to random ids cannot exhaust memory.
+ * Lookup of known board is a read of concurrent map, so routing takes no lock.
+ */
+public class LocalBoardRouter implements BoardRouter, Closeable {
+
+    private final Map<String, WidgetRepository> boards = new ConcurrentHashMap<>();
+
+    private final Function<String, WidgetRepository> factory;
+
+    /**
+     * Tells whether board not opened yet is kept in files
+     */
+    private final Predicate<String> stored;
+
+    private final int maxBoards;
+
+    /**
+     * Number of boards in map, counted before board is created
+     */
+    private final AtomicInteger count = new AtomicInteger();
+
+    /**
+     * Router of boards kept only in memory without limit of their number
+     * @param factory creates empty repository of board by its id
+     */
+    public LocalBoardRouter(Function<String, WidgetRepository> factory) {
+        this(factory, boardId -> false, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param factory creates repository of board by its id, opens board kept in files
+     * @param stored tells whether board is kept in files
+     * @param maxBoards max number of boards
+     */
+    public LocalBoardRouter(Function<String, WidgetRepository> factory, Predicate<String> stored, int maxBoards) {
+        this.factory = factory;
+        this.stored = stored;
+        this.maxBoards = maxBoards;
+    }
+
+    @Override
+    public WidgetRepository route(String boardId) {
+        WidgetRepository repository = boards.get(boardId);
+        if (repository != null) return repository;
+        return boards.computeIfAbsent(boardId, this::create);
+    }
+
+    @Override
+    public Optional<WidgetRepository> find(String boardId) {
+        WidgetRepository repository = boards.get(boardId);
+        if (repository != null || !stored.test(boardId)) return Optional.ofNullable(repository);
+        return Optional.of(boards.computeIfAbsent(boardId, this::create));
+    }
+
+    /**
+     * Closes repositories kept in files
+     */
+    @Override
+    public void close() {
+        for (WidgetRepository repository : boards.values()) {
+            if (!(repository instanceof Closeable)) continue;
+            try {
+                ((Closeable) repository).close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Creates repository of board unless max number of boards is reached, called once per board by map
+     * @throws BoardLimitException when max number of boards is reached
+     */
+    private WidgetRepository create(String boardId) {
+        if (count.incrementAndGet() > maxBoards) {
+            count.decrementAndGet();
+            throw new BoardLimitException();
+        }
+        try {
+            return factory.apply(boardId);
+        } catch (RuntimeException e) {
+            count.decrementAndGet();
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.miro.dev.widgets.repository;
+
+/**
+ * Open addressing hash map from positive long keys to int values without boxing.
+ * Uses linear probing and shifts following entries back on removal,
+ * so there are no tombstones and lookups stay short.
+ * Cells are kept in slot columns, so map may live on heap or off-heap.
+ * Key 0 marks empty cell and can't be stored.
+ * Not thread safe: callers guard it with their own lock.
+ * Lookups may run optimistically during writes, then result is garbage
+ * and caller must validate it.
+ */
+class LongIntHashMap {
+
+    /**
+     * Value returned for missing key
+     */
+    static final int MISSING = -1;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Columns of cell: key in two columns and value
+     */
+    private static final int KEY = 0;
+    private static final int VALUE = 2;
+    private static final int COLUMNS = 3;
+
+    private final SlotColumns.Allocator allocator;
+
+    private SlotColumns cells;
+
+    private int size;
+
+    /**
+     * Creates map kept on heap
+     */
+    LongIntHashMap() {
+        this(SlotColumns.HEAP);
+    }
+
+    /**
+     * @param allocator kind of memory for map
+     */
+    LongIntHashMap(SlotColumns.Allocator allocator) {
+        this.allocator = allocator;
+        this.cells = allocator.allocate(COLUMNS, INITIAL_CAPACITY);
+    }
+
+    /**
+     * @param key positive key
+     * @return value of key or MISSING
+     */
+    int get(long key) {
+        SlotColumns cells = this.cells;
+        int mask = cells.capacity() - 1;
+        for (int i = index(key, mask), probes = 0; probes <= mask; i = (i + 1) & mask, probes++) {
+            long current = cells.getLong(i, KEY);
+            if (current == key) return cells.get(i, VALUE);
+            if (current == 0) return MISSING;
+        }
+        return MISSING;
+    }
+
+    /**
+     * Puts value of key replacing previous one
+     * @param key positive key
+     * @param value value of key
+     */
+    void put(long key, int value) {
+        if ((size + 1) * 2 > cells.capacity()) resize(cells.capacity() * 2);
+
+        int mask = cells.capacity() - 1;
+        int i = index(key, mask);
+        long current;
+        while ((current = cells.getLong(i, KEY)) != 0 && current != key) {
+            i = (i + 1) & mask;
+        }
+        if (current == 0) size++;
+        cells.setLong(i, KEY, key);
+        cells.set(i, VALUE, value);
+    }
+
+    /**
+     * Removes key
+     * @param key positive key
+     * @return removed value or MISSING
+     */
+    int remove(long key) {
+        int mask = cells.capacity() - 1;
+        int i = index(key, mask);
+        long current;
+        while ((current = cells.getLong(i, KEY)) != key) {
+            if (current == 0) return MISSING;
+            i = (i + 1) & mask;
+        }
+        int removed = cells.get(i, VALUE);
+        size--;
+
+        int hole = i;
+        for (int next = (hole + 1) & mask; (current = cells.getLong(next, KEY)) != 0; next = (next + 1) & mask) {
+            int home = index(current, mask);
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                cells.setLong(hole, KEY, current);
+                cells.set(hole, VALUE, cells.get(next, VALUE));
+                hole = next;
+            }
+        }
+        cells.setLong(hole, KEY, 0);
+        return removed;
+    }
+
+    /**
+     * @return number of keys
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Grows cells at once to hold given number of keys without resizing
+     * @param expectedSize number of keys to hold
+     */
+    void ensureCapacity(int expectedSize) {
+        int capacity = cells.capacity();
+        while (expectedSize * 2L > capacity) capacity *= 2;
+        if (capacity > cells.capacity()) resize(capacity);
+    }
+
+    /**
+     * Removes all keys and drops allocated cells.
+     */
+    void clear() {
+        cells = allocator.allocate(COLUMNS, INITIAL_CAPACITY);
+        size = 0;
+    }
+
+    private void resize(int capacity) {
+        SlotColumns previous = cells;
+        SlotColumns resized = allocator.allocate(COLUMNS, capacity);
+        int mask = capacity - 1;
+        for (int j = 0; j < previous.capacity(); j++) {
+            long key = previous.getLong(j, KEY);
+            if (key == 0) continue;
+            int i = index(key, mask);
+            while (resized.getLong(i, KEY) != 0) {
+                i = (i + 1) & mask;
+            }
+            resized.setLong(i, KEY, key);
+            resized.set(i, VALUE, previous.get(j, VALUE));
+        }
+        cells = resized;
+    }
+
+    private static int index(long key, int mask) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,82 @@
+package com.miro.dev.widgets.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Class for enabling persistence of widgets.
+ * Write-ahead log is enabled by widgets.wal.path:
+ * widgets.wal.durability is SYNC (default), BATCH or ASYNC,
+ * widgets.wal.flush-interval-ms is interval of fsync for BATCH and ASYNC.
+ * Snapshots are enabled by widgets.snapshot.path,
+ * widgets.snapshot.interval-ms is interval between snapshots.
+ * On start store selected by widgets.repository.type is restored from the latest snapshot,
+ * then records of log following snapshot are replayed.
+ * Log is rotated after every snapshot, so it keeps only records following the latest snapshot.
+ * Mapped store keeps widgets in its own files, log and snapshots would be applied over them
+ * on every start, so it is rejected with them.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnExpression("'${widgets.wal.path:}' != '' or '${widgets.snapshot.path:}' != ''")
+public class PersistenceConfig {
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "widgets.wal.path")
+    WriteAheadLog writeAheadLog(@Value("${widgets.wal.path}") String path,
+                                @Value("${widgets.wal.durability:SYNC}") WriteAheadLog.Durability durability,
+                                @Value("${widgets.wal.flush-interval-ms:5}") long flushIntervalMs) {
+        return new WriteAheadLog(Paths.get(path), durability, Duration.ofMillis(flushIntervalMs));
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "widgets.snapshot.path")
+    SnapshotStore snapshotStore(@Value("${widgets.snapshot.path}") String path,
+                                @Value("${widgets.snapshot.interval-ms:60000}") long intervalMs,
+                                Optional<WriteAheadLog> writeAheadLog) {
+        return new SnapshotStore(Paths.get(path), Duration.ofMillis(intervalMs), writeAheadLog.orElse(null));
+    }
+
+    @Bean
+    @Primary
+    public WidgetRepository persistentWidgetRepository(WidgetRepository store,
+                                                       Optional<WriteAheadLog> writeAheadLog,
+                                                       Optional<SnapshotStore> snapshotStore) {
+        if (store instanceof WidgetRepositoryMappedImpl) {
+            throw new IllegalStateException("Mapped store keeps widgets in its files and is not restored from "
+                    + "write-ahead log or snapshots, unset widgets.wal.path and widgets.snapshot.path");
+        }
+        long logPosition = 0;
+        if (snapshotStore.isPresent()) {
+            long started = System.nanoTime();
+            Optional<WidgetSnapshot> snapshot = snapshotStore.get().load();
+            if (snapshot.isPresent()) {
+                store.restore(snapshot.get());
+                logPosition = snapshot.get().getLogPosition();
+                log.info("Restored {} widgets from snapshot in {} ms",
+                        snapshot.get().size(), Duration.ofNanos(System.nanoTime() - started).toMillis());
+            }
+        }
+
+        WidgetRepository repository = store;
+        if (writeAheadLog.isPresent()) {
+            long started = System.nanoTime();
+            long records = writeAheadLog.get().replay(store, logPosition);
+            log.info("Replayed {} records of write-ahead log in {} ms",
+                    records, Duration.ofNanos(System.nanoTime() - started).toMillis());
+            repository = new WidgetRepositoryWalImpl(store, writeAheadLog.get());
+        }
+
+        if (snapshotStore.isPresent()) snapshotStore.get().start(repository);
+        return repository;
+    }
+}
@@ -0,0 +1,74 @@
+package com.miro.dev.widgets.repository;
+
+import java.util.OptionalInt;
+
+/**
+ * Bounded log of the latest shifts of Z indexes.
+ * Version is the number of shifts done so far, so Z index taken
+ * at some version can be moved to its actual value by replaying
+ * shifts done after it. Only the last CAPACITY shifts are kept.
+ * Not thread safe: callers guard it with their own lock.
+ */
+class ShiftLog {
+
+    /**
+     * Number of kept shifts
+     */
+    static final int CAPACITY = 4096;
+
+    /**
+     * Lowest Z indexes of kept shifts, shift of version v is kept at v % CAPACITY
+     */
+    private final int[] shifts = new int[CAPACITY];
+
+    /**
+     * Number of shifts done so far
+     */
+    private long version;
+
+    /**
+     * The oldest version which shifts are still known from
+     */
+    private long oldest;
+
+    /**
+     * @return current version of Z indexes
+     */
+    long version() {
+        return version;
+    }
+
+    /**
+     * Records shift of all Z indexes greater or equal given one
+     * @param zIndex lowest shifted Z index
+     */
+    void record(int zIndex) {
+        shifts[(int) (version % CAPACITY)] = zIndex;
+        version++;
+        oldest = Math.max(oldest, version - CAPACITY);
+    }
+
+    /**
+     * Moves Z index taken at given version through shifts done after it.
+     * @param zIndex Z index taken at version
+     * @param since version Z index was taken at
+     * @return actual Z index, empty when shifts after version are not known anymore
+     */
+    OptionalInt translate(int zIndex, long since) {
+        if (since < oldest || since > version) return OptionalInt.empty();
+
+        for (long v = since; v < version; v++) {
+            if (zIndex >= shifts[(int) (v % CAPACITY)]) zIndex++;
+        }
+        return OptionalInt.of(zIndex);
+    }
+
+    /**
+     * Forgets all shifts and moves to the next version,
+     * so Z indexes taken before are not translated anymore
+     */
+    void clear() {
+        version++;
+        oldest = version;
+    }
+}
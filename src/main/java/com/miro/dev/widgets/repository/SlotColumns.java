@@ -0,0 +1,246 @@
+package com.miro.dev.widgets.repository;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Fixed number of int columns by slot, used as memory of primitive stores.
+ * Values of one slot are kept together, so reading a slot touches one cache line.
+ * Heap columns keep values in int array, direct columns keep them off-heap
+ * in direct ByteBuffer, so they are not traced by GC and take only a few objects on heap.
+ * Mapped columns keep values in memory-mapped file.
+ * Not thread safe: callers guard it with their own lock.
+ * Reads during grow may throw IndexOutOfBoundsException, callers validate optimistic reads.
+ */
+abstract class SlotColumns {
+
+    /**
+     * Creates columns of given kind
+     */
+    @FunctionalInterface
+    interface Allocator {
+        SlotColumns allocate(int columns, int capacity);
+    }
+
+    static final Allocator HEAP = Heap::new;
+
+    static final Allocator DIRECT = Direct::new;
+
+    protected final int columns;
+
+    protected SlotColumns(int columns) {
+        this.columns = columns;
+    }
+
+    abstract int get(int slot, int column);
+
+    abstract void set(int slot, int column, int value);
+
+    /**
+     * @return number of slots which may be used
+     */
+    abstract int capacity();
+
+    /**
+     * Extends columns keeping values of existing slots
+     * @param capacity new number of slots
+     */
+    abstract void grow(int capacity);
+
+    /**
+     * Copies values of the first slots to heap columns.
+     * Copy is a bulk copy of memory, so it is cheap enough to take under lock
+     * and to read copied values after lock is released.
+     * @param slots number of slots to copy
+     * @return heap columns holding copied slots
+     */
+    abstract SlotColumns copy(int slots);
+
+    /**
+     * Reads long kept in two neighbouring columns
+     */
+    long getLong(int slot, int column) {
+        return ((long) get(slot, column) << 32) | (get(slot, column + 1) & 0xffffffffL);
+    }
+
+    /**
+     * Writes long to two neighbouring columns
+     */
+    void setLong(int slot, int column, long value) {
+        set(slot, column, (int) (value >>> 32));
+        set(slot, column + 1, (int) value);
+    }
+
+    private static final class Heap extends SlotColumns {
+        private int[] values;
+
+        Heap(int columns, int capacity) {
+            this(columns, new int[columns * capacity]);
+        }
+
+        private Heap(int columns, int[] values) {
+            super(columns);
+            this.values = values;
+        }
+
+        @Override
+        int get(int slot, int column) {
+            return values[slot * columns + column];
+        }
+
+        @Override
+        void set(int slot, int column, int value) {
+            values[slot * columns + column] = value;
+        }
+
+        @Override
+        int capacity() {
+            return values.length / columns;
+        }
+
+        @Override
+        void grow(int capacity) {
+            values = Arrays.copyOf(values, columns * capacity);
+        }
+
+        @Override
+        SlotColumns copy(int slots) {
+            return new Heap(columns, Arrays.copyOf(values, columns * slots));
+        }
+    }
+
+    /**
+     * Columns kept in ByteBuffer in native order
+     */
+    private abstract static class Buffered extends SlotColumns {
+        protected ByteBuffer values;
+
+        Buffered(int columns) {
+            super(columns);
+        }
+
+        @Override
+        int get(int slot, int column) {
+            return values.getInt((slot * columns + column) << 2);
+        }
+
+        @Override
+        void set(int slot, int column, int value) {
+            values.putInt((slot * columns + column) << 2, value);
+        }
+
+        @Override
+        int capacity() {
+            return values.capacity() / columns / Integer.BYTES;
+        }
+
+        @Override
+        SlotColumns copy(int slots) {
+            int[] copied = new int[columns * slots];
+            ByteBuffer source = values.duplicate().order(ByteOrder.nativeOrder());
+            source.clear();
+            source.asIntBuffer().get(copied);
+            return new Heap(columns, copied);
+        }
+
+        static int bytes(int columns, int capacity) {
+            long bytes = (long) columns * capacity * Integer.BYTES;
+            if (bytes > Integer.MAX_VALUE) throw new IllegalStateException("Store is full");
+            return (int) bytes;
+        }
+    }
+
+    /**
+     * Columns in direct buffer, one buffer holds up to 2GB,
+     * which is about 67M slots of widget store
+     */
+    private static final class Direct extends Buffered {
+
+        Direct(int columns, int capacity) {
+            super(columns);
+            values = allocate(columns, capacity);
+        }
+
+        @Override
+        void grow(int capacity) {
+            ByteBuffer grown = allocate(columns, capacity);
+            ByteBuffer previous = values.duplicate();
+            previous.clear();
+            grown.put(previous);
+            grown.clear();
+            values = grown;
+        }
+
+        private static ByteBuffer allocate(int columns, int capacity) {
+            return ByteBuffer.allocateDirect(bytes(columns, capacity)).order(ByteOrder.nativeOrder());
+        }
+    }
+
+    /**
+     * Columns in memory-mapped file, values are kept in page cache and written back by OS,
+     * so they survive restart of process. Existing file is mapped with all its slots,
+     * grow extends file and maps it again. One file holds up to 2GB.
+     */
+    static final class Mapped extends Buffered implements Closeable {
+        private final FileChannel channel;
+
+        /**
+         * Maps file, creating it when missing
+         * @param path path to file
+         * @param columns number of columns
+         * @param capacity min number of slots
+         */
+        Mapped(Path path, int columns, int capacity) {
+            super(columns);
+            try {
+                channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                        StandardOpenOption.READ, StandardOpenOption.WRITE);
+                long slots = channel.size() / columns / Integer.BYTES;
+                values = map((int) Math.max(capacity, Math.min(slots, Integer.MAX_VALUE)));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        void grow(int capacity) {
+            try {
+                values = map(capacity);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * Writes changed pages to disk
+         */
+        void force() {
+            ((MappedByteBuffer) values).force();
+        }
+
+        /**
+         * Writes changed pages to disk and closes file, mapping stays valid until it is collected
+         */
+        @Override
+        public void close() {
+            try {
+                force();
+                channel.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private ByteBuffer map(int capacity) throws IOException {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes(columns, capacity)).order(ByteOrder.nativeOrder());
+        }
+    }
+}
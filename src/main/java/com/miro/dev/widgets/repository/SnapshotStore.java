@@ -0,0 +1,247 @@
+package com.miro.dev.widgets.repository;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Keeps the latest snapshot of widgets in binary file and takes new snapshots periodically.
+ * File is header (magic, counter, log position, number of widgets),
+ * rows of widgets ordered by Z index (36 bytes each) and CRC32 of all of them.
+ * Snapshot is written to temporary file and moved over the previous one,
+ * so crash during writing keeps previous snapshot.
+ * Once snapshot is written, write-ahead log is rotated, so it keeps only records following the snapshot.
+ * File is read through memory mapping, so loading does not copy it through stream buffers.
+ */
+@Slf4j
+class SnapshotStore implements Closeable {
+
+    private static final int MAGIC = 0x57534e31;
+
+    private static final int HEADER_SIZE = Integer.BYTES + Long.BYTES + Long.BYTES + Integer.BYTES;
+    private static final int ROW_SIZE = Long.BYTES + 5 * Integer.BYTES + Long.BYTES;
+
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    /**
+     * Max size of file region mapped at once
+     */
+    private static final int MAPPED_WINDOW = 1 << 30;
+
+    private final Path path;
+
+    private final Duration interval;
+
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Log rotated after every written snapshot, null when there is no log
+     */
+    private final WriteAheadLog writeAheadLog;
+
+    private WidgetRepository source;
+
+    /**
+     * @param path path to snapshot file
+     * @param interval interval between snapshots
+     */
+    SnapshotStore(Path path, Duration interval) {
+        this(path, interval, null);
+    }
+
+    /**
+     * @param path path to snapshot file
+     * @param interval interval between snapshots
+     * @param writeAheadLog log of source, rotated after snapshot is written, null when there is no log
+     */
+    SnapshotStore(Path path, Duration interval, WriteAheadLog writeAheadLog) {
+        this.path = path;
+        this.interval = interval;
+        this.writeAheadLog = writeAheadLog;
+    }
+
+    /**
+     * Starts taking snapshots of repository periodically, the first one after interval
+     * @param source repository to take snapshots of
+     */
+    synchronized void start(WidgetRepository source) {
+        this.source = source;
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "widgets-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::takeQuietly, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops periodic snapshots and takes the last one, so next start does not replay log
+     */
+    @Override
+    public synchronized void close() {
+        if (scheduler == null) return;
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        take(source);
+        scheduler = null;
+    }
+
+    /**
+     * Takes snapshot of repository, writes it to file and rotates log
+     * @param source repository to take snapshot of, the one writing to log when there is log
+     */
+    void take(WidgetRepository source) {
+        long started = System.nanoTime();
+        WidgetSnapshot snapshot = source.snapshot();
+        long copied = System.nanoTime();
+        write(snapshot);
+        if (Objects.nonNull(writeAheadLog)) writeAheadLog.rotate(snapshot.getLogPosition());
+        log.info("Snapshot of {} widgets copied in {} ms and written in {} ms", snapshot.size(),
+                TimeUnit.NANOSECONDS.toMillis(copied - started), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - copied));
+    }
+
+    /**
+     * Writes snapshot replacing previous one
+     * @param snapshot snapshot to write
+     */
+    void write(WidgetSnapshot snapshot) {
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            if (path.getParent() != null) Files.createDirectories(path.getParent());
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                CRC32 crc = new CRC32();
+                ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+                buffer.putInt(MAGIC)
+                        .putLong(snapshot.getCounter())
+                        .putLong(snapshot.getLogPosition())
+                        .putInt(snapshot.size());
+                int[] zIndexes = snapshot.getZIndexes();
+                for (int i = 0; i < snapshot.size(); i++) {
+                    if (buffer.remaining() < ROW_SIZE) writeBuffer(channel, buffer, crc);
+                    buffer.putLong(snapshot.getId(i))
+                            .putInt(snapshot.getXIndex(i))
+                            .putInt(snapshot.getYIndex(i))
+                            .putInt(zIndexes[i])
+                            .putInt(snapshot.getWidth(i))
+                            .putInt(snapshot.getHeight(i))
+                            .putLong(snapshot.getModifiedAt(i));
+                }
+                writeBuffer(channel, buffer, crc);
+                buffer.putInt((int) crc.getValue());
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            syncDirectory();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads the latest snapshot
+     * @return snapshot or empty value when there is no valid snapshot
+     */
+    Optional<WidgetSnapshot> load() {
+        if (!Files.exists(path)) return Optional.empty();
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_SIZE + Integer.BYTES) return invalid("file is too short");
+
+            CRC32 crc = new CRC32();
+            ByteBuffer header = map(channel, 0, HEADER_SIZE);
+            crc.update(header.duplicate());
+            if (header.getInt() != MAGIC) return invalid("unknown format");
+            long counter = header.getLong();
+            long logPosition = header.getLong();
+            int size = header.getInt();
+            if (size < 0 || fileSize != HEADER_SIZE + (long) size * ROW_SIZE + Integer.BYTES) {
+                return invalid("size does not match number of widgets");
+            }
+
+            WidgetSnapshot snapshot = new WidgetSnapshot(counter, size);
+            snapshot.setLogPosition(logPosition);
+            long position = HEADER_SIZE;
+            int i = 0;
+            while (i < size) {
+                int rows = (int) Math.min(size - i, MAPPED_WINDOW / ROW_SIZE);
+                ByteBuffer window = map(channel, position, rows * ROW_SIZE);
+                crc.update(window.duplicate());
+                for (int end = i + rows; i < end; i++) {
+                    snapshot.set(i, window.getLong(), window.getInt(), window.getInt(), window.getInt(),
+                            window.getInt(), window.getInt(), window.getLong());
+                }
+                position += (long) rows * ROW_SIZE;
+            }
+
+            if (map(channel, position, Integer.BYTES).getInt() != (int) crc.getValue()) {
+                return invalid("checksum does not match");
+            }
+            return Optional.of(snapshot);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Optional<WidgetSnapshot> invalid(String reason) {
+        log.warn("Snapshot {} is ignored: {}", path, reason);
+        return Optional.empty();
+    }
+
+    private static ByteBuffer map(FileChannel channel, long position, int size) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+    }
+
+    private static void writeBuffer(FileChannel channel, ByteBuffer buffer, CRC32 crc) throws IOException {
+        buffer.flip();
+        crc.update(buffer.duplicate());
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Makes rename of snapshot durable, not supported by some file systems
+     */
+    private void syncDirectory() {
+        Path directory = path.toAbsolutePath().getParent();
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            log.debug("Directory {} is not synced", directory, e);
+        }
+    }
+
+    private void takeQuietly() {
+        try {
+            take(source);
+        } catch (RuntimeException e) {
+            log.error("Snapshot is not taken", e);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.miro.dev.widgets.repository;
+
+import com.miro.dev.widgets.model.Area;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongConsumer;
+
+/**
+ * Hierarchical grid of buckets holding ids of widgets by their position.
+ * Widget is put to the level where cell is not smaller than widget,
+ * so every widget takes at most 2x2 cells of its level.
+ * Lookup of area visits only cells intersecting the area on every non empty level,
+ * so its cost depends on number of widgets near the area, not on size of board.
+ * Thread safe, lookups may return ids of widgets which are not in the area anymore,
+ * so callers filter found widgets by their actual geometry.
+ */
+class SpatialIndex {
+
+    /**
+     * Cell size of the lowest level is 2^BASE_CELL_SHIFT
+     */
+    private static final int BASE_CELL_SHIFT = 6;
+
+    /**
+     * Number of levels enough for widget of any int size
+     */
+    private static final int LEVELS = Integer.SIZE - BASE_CELL_SHIFT;
+
+    /**
+     * Buckets of every level, key of bucket is packed coordinates of cell
+     */
+    private final List<Map<Long, Set<Long>>> levels = new ArrayList<>(LEVELS);
+
+    SpatialIndex() {
+        for (int i = 0; i < LEVELS; i++) {
+            levels.add(new ConcurrentHashMap<>());
+        }
+    }
+
+    /**
+     * Puts widget to buckets of cells it intersects
+     * @param record widget to put
+     */
+    void add(WidgetRecord record) {
+        forEachCell(record, (level, cell) -> level.compute(cell, (key, ids) -> {
+            Set<Long> bucket = ids == null ? ConcurrentHashMap.newKeySet() : ids;
+            bucket.add(record.getId());
+            return bucket;
+        }));
+    }
+
+    /**
+     * Removes widget from buckets of cells it intersects
+     * @param record widget to remove with geometry it was added with
+     */
+    void remove(WidgetRecord record) {
+        forEachCell(record, (level, cell) -> level.computeIfPresent(cell, (key, ids) -> {
+            ids.remove(record.getId());
+            return ids.isEmpty() ? null : ids;
+        }));
+    }
+
+    /**
+     * Checks whether both geometries of widget are kept in the same buckets
+     * @param previous previous state of widget
+     * @param next new state of widget
+     * @return true when moving widget between states does not change index
+     */
+    boolean sameCells(WidgetRecord previous, WidgetRecord next) {
+        int level = level(previous);
+        if (level != level(next)) return false;
+        int shift = BASE_CELL_SHIFT + level;
+        return (left(previous) >> shift) == (left(next) >> shift)
+                && (right(previous) >> shift) == (right(next) >> shift)
+                && (bottom(previous) >> shift) == (bottom(next) >> shift)
+                && (top(previous) >> shift) == (top(next) >> shift);
+    }
+
+    /**
+     * Passes ids of widgets which may intersect area.
+     * The same id may be passed several times.
+     * @param area area to look up
+     * @param consumer receiver of ids
+     */
+    void forEachCandidate(Area area, LongConsumer consumer) {
+        for (int i = 0; i < LEVELS; i++) {
+            Map<Long, Set<Long>> level = levels.get(i);
+            if (level.isEmpty()) continue;
+
+            int shift = BASE_CELL_SHIFT + i;
+            long fromX = (long) area.getX1() >> shift;
+            long toX = (long) area.getX2() >> shift;
+            long fromY = (long) area.getY1() >> shift;
+            long toY = (long) area.getY2() >> shift;
+
+            if ((toX - fromX + 1) * (toY - fromY + 1) <= level.size()) {
+                for (long x = fromX; x <= toX; x++) {
+                    for (long y = fromY; y <= toY; y++) {
+                        Set<Long> ids = level.get(cell(x, y));
+                        if (ids != null) ids.forEach(consumer::accept);
+                    }
+                }
+            } else {
+                level.forEach((cell, ids) -> {
+                    long x = cellX(cell);
+                    long y = cellY(cell);
+                    if (x >= fromX && x <= toX && y >= fromY && y <= toY) ids.forEach(consumer::accept);
+                });
+            }
+        }
+    }
+
+    /**
+     * Removes all widgets from index.
+     */
+    void clear() {
+        levels.forEach(Map::clear);
+    }
+
+    private void forEachCell(WidgetRecord record, CellConsumer consumer) {
+        int level = level(record);
+        int shift = BASE_CELL_SHIFT + level;
+        Map<Long, Set<Long>> buckets = levels.get(level);
+        for (long x = left(record) >> shift; x <= right(record) >> shift; x++) {
+            for (long y = bottom(record) >> shift; y <= top(record) >> shift; y++) {
+                consumer.accept(buckets, cell(x, y));
+            }
+        }
+    }
+
+    /**
+     * Finds level where cell is not smaller than widget
+     */
+    private static int level(WidgetRecord record) {
+        long size = Math.max(record.getWidth(), record.getHeight());
+        int bits = size <= 1 ? 0 : Long.SIZE - Long.numberOfLeadingZeros(size - 1);
+        return Math.max(0, bits - BASE_CELL_SHIFT);
+    }
+
+    /**
+     * Packs coordinates of cell to key of bucket.
+     * Y is mixed with hash of X, otherwise hash code of key is x ^ y
+     * and cells along every diagonal collide in the same bucket of map
+     */
+    private static long cell(long x, long y) {
+        return (x << 32) | ((y ^ mix(x)) & 0xffffffffL);
+    }
+
+    private static long cellX(long cell) {
+        return cell >> 32;
+    }
+
+    private static long cellY(long cell) {
+        return (int) (cell ^ mix(cellX(cell)));
+    }
+
+    private static long mix(long x) {
+        return x * 0x9E3779B9L;
+    }
+
+    private static long left(WidgetRecord record) {
+        return record.getXIndex();
+    }
+
+    private static long right(WidgetRecord record) {
+        return (long) record.getXIndex() + record.getWidth();
+    }
+
+    private static long bottom(WidgetRecord record) {
+        return record.getYIndex();
+    }
+
+    private static long top(WidgetRecord record) {
+        return (long) record.getYIndex() + record.getHeight();
+    }
+
+    @FunctionalInterface
+    private interface CellConsumer {
+        void accept(Map<Long, Set<Long>> buckets, long cell);
+    }
+}
@@ -0,0 +1,222 @@
+package com.miro.dev.widgets.repository;
+
+import com.miro.dev.widgets.model.ZIndexShift;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Index of the latest change of every widget ordered by version.
+ * Changes are appended in order of versions, so index is a sorted array searched by bisection.
+ * Change of widget makes its previous change stale, stale changes are dropped when they
+ * outnumber actual ones, so index holds one change per live widget and kept deletions.
+ * Deletions are kept as negative ids, only the latest TOMBSTONES of them, versions before
+ * the dropped ones are not answered anymore.
+ * Shifts of Z indexes are kept apart as ranges, so shift costs one entry whatever number of widgets it moves,
+ * only the latest SHIFTS of them are kept the same way as deletions.
+ * Not thread safe: callers guard it with their own lock.
+ */
+class VersionIndex {
+
+    /**
+     * Max number of kept deletions
+     */
+    static final int TOMBSTONES = 1 << 20;
+
+    /**
+     * Max number of kept shifts
+     */
+    static final int SHIFTS = 1 << 20;
+
+    private static final int INITIAL_CAPACITY = 1 << 10;
+
+    private long[] versions = new long[INITIAL_CAPACITY];
+
+    /**
+     * Ids of widgets by change, negative for deleted widgets, 0 for stale changes
+     */
+    private long[] ids = new long[INITIAL_CAPACITY];
+
+    /**
+     * Number of appended changes
+     */
+    private int size;
+
+    private int stale;
+
+    private int tombstones;
+
+    private long[] shiftVersions = new long[INITIAL_CAPACITY];
+
+    /**
+     * Lowest shifted Z indexes by shift
+     */
+    private int[] shiftZIndexes = new int[INITIAL_CAPACITY];
+
+    /**
+     * Number of kept shifts
+     */
+    private int shifts;
+
+    /**
+     * Positions of the latest changes by ids of widgets
+     */
+    private final LongIntHashMap positions = new LongIntHashMap(SlotColumns.HEAP);
+
+    /**
+     * Version which all later changes are known after
+     */
+    private long horizon;
+
+    /**
+     * @param horizon version which all later changes are appended after
+     */
+    VersionIndex(long horizon) {
+        this.horizon = horizon;
+    }
+
+    /**
+     * @return version which changes are known after
+     */
+    long horizon() {
+        return horizon;
+    }
+
+    /**
+     * Appends change of widget, version must be greater than versions of all appended changes
+     */
+    void put(long id, long version) {
+        append(id, id, version);
+    }
+
+    /**
+     * Appends deletion of widget, version must be greater than versions of all appended changes
+     */
+    void delete(long id, long version) {
+        append(id, -id, version);
+        tombstones++;
+        if (tombstones > TOMBSTONES) dropTombstones(TOMBSTONES / 4);
+    }
+
+    /**
+     * Appends shift of all Z indexes greater or equal given one,
+     * version must be greater than versions of all appended changes
+     */
+    void shift(int zIndex, long version) {
+        if (shifts == SHIFTS) dropShifts(SHIFTS / 4);
+        if (shifts == shiftVersions.length) {
+            shiftVersions = Arrays.copyOf(shiftVersions, shifts * 2);
+            shiftZIndexes = Arrays.copyOf(shiftZIndexes, shifts * 2);
+        }
+        shiftVersions[shifts] = version;
+        shiftZIndexes[shifts] = zIndex;
+        shifts++;
+    }
+
+    /**
+     * Forgets all changes, so only changes after given version are known
+     */
+    void clear(long version) {
+        size = 0;
+        stale = 0;
+        tombstones = 0;
+        shifts = 0;
+        positions.clear();
+        horizon = version;
+    }
+
+    /**
+     * @param version version seen by client, not less than horizon
+     * @return ids of widgets changed after version in order of their latest changes, negative for deleted widgets
+     */
+    long[] since(long version) {
+        int from = Arrays.binarySearch(versions, 0, size, version);
+        from = from < 0 ? -from - 1 : from + 1;
+        long[] result = new long[size - from];
+        int count = 0;
+        for (int i = from; i < size; i++) {
+            if (ids[i] != 0) result[count++] = ids[i];
+        }
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+
+    /**
+     * @param version version seen by client, not less than horizon
+     * @return shifts done after version in order of versions
+     */
+    List<ZIndexShift> shiftsSince(long version) {
+        int from = Arrays.binarySearch(shiftVersions, 0, shifts, version);
+        from = from < 0 ? -from - 1 : from + 1;
+        List<ZIndexShift> result = new ArrayList<>(shifts - from);
+        for (int i = from; i < shifts; i++) {
+            result.add(new ZIndexShift(shiftVersions[i], shiftZIndexes[i]));
+        }
+        return result;
+    }
+
+    private void append(long id, long entry, long version) {
+        int previous = positions.get(id);
+        if (previous != LongIntHashMap.MISSING) {
+            if (ids[previous] < 0) tombstones--;
+            ids[previous] = 0;
+            stale++;
+        }
+        if (size == ids.length) {
+            if (stale >= size / 2) {
+                compact();
+            } else {
+                versions = Arrays.copyOf(versions, size * 2);
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+        }
+        versions[size] = version;
+        ids[size] = entry;
+        positions.put(id, size);
+        size++;
+    }
+
+    /**
+     * Drops the oldest deletions and moves horizon to version of the last dropped one
+     * @param count number of dropped deletions
+     */
+    private void dropTombstones(int count) {
+        for (int i = 0; i < size && count > 0; i++) {
+            if (ids[i] >= 0) continue;
+            positions.remove(-ids[i]);
+            ids[i] = 0;
+            horizon = Math.max(horizon, versions[i]);
+            stale++;
+            tombstones--;
+            count--;
+        }
+        compact();
+    }
+
+    /**
+     * Drops the oldest shifts and moves horizon to version of the last dropped one
+     * @param count number of dropped shifts
+     */
+    private void dropShifts(int count) {
+        horizon = Math.max(horizon, shiftVersions[count - 1]);
+        System.arraycopy(shiftVersions, count, shiftVersions, 0, shifts - count);
+        System.arraycopy(shiftZIndexes, count, shiftZIndexes, 0, shifts - count);
+        shifts -= count;
+    }
+
+    /**
+     * Moves actual changes to the beginning keeping their order
+     */
+    private void compact() {
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (ids[i] == 0) continue;
+            versions[count] = versions[i];
+            ids[count] = ids[i];
+            positions.put(Math.abs(ids[i]), count);
+            count++;
+        }
+        size = count;
+        stale = 0;
+    }
+}
@@ -0,0 +1,45 @@
+package com.miro.dev.widgets.repository;
+
+import com.miro.dev.widgets.model.Widget;
+import lombok.Value;
+
+import java.time.LocalDateTime;
+
+/**
+ * Immutable state of stored widget.
+ * Z index is not part of record, it is held by Z index tree,
+ * so shifts of Z indexes never touch records.
+ */
+@Value
+class WidgetRecord {
+    Long id;
+    Integer xIndex;
+    Integer yIndex;
+    Integer width;
+    Integer height;
+    LocalDateTime modifiedAt;
+    Long version;
+
+    static WidgetRecord of(Widget widget) {
+        return new WidgetRecord(widget.getId(), widget.getXIndex(), widget.getYIndex(),
+                widget.getWidth(), widget.getHeight(), widget.getModifiedAt(), widget.getVersion());
+    }
+
+    /**
+     * Creates new instance of Widget from record
+     * @param zIndex actual Z index of widget
+     * @return instance of Widget
+     */
+    Widget toWidget(int zIndex) {
+        return Widget.builder()
+                .id(id)
+                .xIndex(xIndex)
+                .yIndex(yIndex)
+                .zIndex(zIndex)
+                .width(width)
+                .height(height)
+                .modifiedAt(modifiedAt)
+                .version(version)
+                .build();
+    }
+}
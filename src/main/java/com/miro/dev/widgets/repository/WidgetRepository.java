@@ -1,7 +1,13 @@
 package com.miro.dev.widgets.repository;
 
+import com.miro.dev.widgets.model.Area;
+import com.miro.dev.widgets.model.BatchOperation;
+import com.miro.dev.widgets.model.BatchResult;
+import com.miro.dev.widgets.model.Cursor;
 import com.miro.dev.widgets.model.Limit;
 import com.miro.dev.widgets.model.Widget;
+import com.miro.dev.widgets.model.WidgetChanges;
+import com.miro.dev.widgets.model.WidgetPage;
 
 import java.util.List;
 import java.util.Optional;
@@ -9,8 +15,26 @@ import java.util.Optional;
 public interface WidgetRepository {
     Optional<Widget> getById(Long id);
     List<Widget> getAll(Limit limit);
+    WidgetPage getPage(Cursor after, Limit limit);
+    List<Widget> getAllInArea(Area area, Limit limit);
+    Optional<WidgetChanges> getChangesSince(long version);
     Widget create(Widget widget);
     Widget update(Widget widget);
+    Optional<Widget> patch(Long id, Widget patch);
     void delete(Long id);
+    List<BatchResult> batch(List<BatchOperation> operations);
     void clear();
+    void restore(Widget widget);
+    WidgetSnapshot snapshot();
+
+    /**
+     * Copies all widgets for readers, unlike snapshot it is not a point persistence restores from
+     * @return point in time copy of store
+     */
+    default WidgetSnapshot copy() {
+        return snapshot();
+    }
+
+    void restore(WidgetSnapshot snapshot);
+    ChangeFeed changes();
 }
@@ -0,0 +1,670 @@
+package com.miro.dev.widgets.repository;
+
+import com.miro.dev.widgets.exceptions.InvalidCursorException;
+import com.miro.dev.widgets.exceptions.VersionConflictException;
+import com.miro.dev.widgets.exceptions.WidgetNotFoundException;
+import com.miro.dev.widgets.model.Area;
+import com.miro.dev.widgets.model.BatchOperation;
+import com.miro.dev.widgets.model.BatchResult;
+import com.miro.dev.widgets.model.Cursor;
+import com.miro.dev.widgets.model.EpochNanos;
+import com.miro.dev.widgets.model.Limit;
+import com.miro.dev.widgets.model.Widget;
+import com.miro.dev.widgets.model.WidgetChanges;
+import com.miro.dev.widgets.model.WidgetPage;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
+
+/**
+ * WidgetRepositoryArrayImpl stores all widgets in primitive arrays.
+ * Every widget takes a slot of Z index tree, and its values are kept
+ * in columns by that slot, ids are mapped to slots without boxing.
+ * Instances of Widget are created only for responses, so store takes
+ * about 90 bytes per widget and adds nothing for GC to trace but arrays.
+ * Columns may be kept off-heap, see WidgetRepositoryOffHeapImpl, or in files, see WidgetRepositoryMappedImpl.
+ * Enabled by widgets.repository.type=array.
+ */
+@Repository
+@ConditionalOnProperty(name = "widgets.repository.type", havingValue = "array")
+public class WidgetRepositoryArrayImpl implements WidgetRepository {
+
+    /**
+     * Columns of widget: id, modification time as epoch nanos and version take two columns
+     */
+    private static final int ID = 0;
+    private static final int X_INDEX = 2;
+    private static final int Y_INDEX = 3;
+    private static final int WIDTH = 4;
+    private static final int HEIGHT = 5;
+    private static final int MODIFIED_AT = 6;
+    private static final int VERSION = 8;
+    private static final int COLUMNS = 10;
+
+    /**
+     * Index of all widgets ordered by Z index, gives slots of widgets
+     */
+    private final ZIndexSlotTree zIndexTree;
+
+    /**
+     * Slots of widgets by their ids
+     */
+    private final LongIntHashMap slots;
+
+    /**
+     * Values of widgets by slot, id 0 marks free slot
+     */
+    private final SlotColumns records;
+
+    /**
+     * Log of the latest shifts, moves Z indexes of cursors taken before shifts
+     */
+    private final ShiftLog shiftLog = new ShiftLog();
+
+    /**
+     * Feed of the latest changes, published while write lock is held
+     */
+    private final ChangeFeed changes = new ChangeFeed();
+
+    /**
+     * Counter for incrementally generating of widget's ids
+     */
+    private final AtomicLong counter = new AtomicLong();
+
+    /**
+     * Max Z index of all widgets, 0 for empty store. Guarded by lock
+     */
+    private int maxZIndex;
+
+    /**
+     * Lock guarding all columns. Every write takes write lock,
+     * readers use optimistic stamps and take read lock only after failed attempts
+     */
+    private final StampedLock lock = new StampedLock();
+
+    /**
+     * Number of optimistic reads tried before taking read lock
+     */
+    private static final int OPTIMISTIC_READ_ATTEMPTS = 3;
+
+    /**
+     * Creates store kept on heap
+     */
+    WidgetRepositoryArrayImpl() {
+        this(SlotColumns.HEAP);
+    }
+
+    /**
+     * @param allocator kind of memory for all columns of store
+     */
+    WidgetRepositoryArrayImpl(SlotColumns.Allocator allocator) {
+        zIndexTree = new ZIndexSlotTree(allocator);
+        slots = new LongIntHashMap(allocator);
+        records = allocator.allocate(COLUMNS, zIndexTree.capacity());
+    }
+
+    /**
+     * Opens store over columns kept from previous run,
+     * slots of widgets are mapped by ids read from records of used slots
+     * @param zIndexTree Z index tree of widgets
+     * @param records kind of memory holding records of widgets
+     * @param lastId last id given by store
+     * @param maxZIndex max Z index of all widgets
+     */
+    WidgetRepositoryArrayImpl(ZIndexSlotTree zIndexTree, SlotColumns.Allocator records, long lastId, int maxZIndex) {
+        this.zIndexTree = zIndexTree;
+        this.records = records.allocate(COLUMNS, zIndexTree.capacity());
+        this.slots = new LongIntHashMap(SlotColumns.HEAP);
+        this.slots.ensureCapacity(zIndexTree.size());
+        for (int slot = 0; slot < zIndexTree.used(); slot++) {
+            long id = this.records.getLong(slot, ID);
+            if (id != 0) slots.put(id, slot);
+        }
+        this.counter.set(lastId);
+        this.maxZIndex = maxZIndex;
+    }
+
+    /**
+     * Method for creating of widget.
+     * Internally sets id for widget, computes and sets Z index, sets modification date.
+     * Widget must have x, y, width and height.
+     * @param widget instance of Widget
+     * @return instance of Widget
+     */
+    @Override
+    public Widget create(Widget widget) {
+        widget.setId(counter.incrementAndGet());
+        widget.setModifiedAt(LocalDateTime.now());
+
+        long stamp = lock.writeLock();
+        try {
+            put(widget);
+        } finally {
+            unlockWrite(stamp);
+        }
+
+        return widget;
+    }
+
+    /**
+     * Retrieves widget by id.
+     * @param id of widget
+     * @return Optional object of Widget instance founded by given id
+     */
+    @Override
+    public Optional<Widget> getById(Long id) {
+        return read(() -> {
+            int slot = slots.get(id);
+            if (slot == LongIntHashMap.MISSING) return Optional.empty();
+            return Optional.of(toWidget(slot, zIndexTree.zIndexOf(slot)));
+        });
+    }
+
+    /**
+     * Retrieves all widgets applying limit and offset.
+     * Response list is sorted by Z index, cost does not depend on number of stored widgets.
+     * @param limit instance of Limit holding limit and offset
+     * @return list of founded widgets
+     */
+    @Override
+    public List<Widget> getAll(Limit limit) {
+        return read(() -> {
+            List<Widget> result = new ArrayList<>(Math.min(limit.getLimit(), slots.size()));
+            zIndexTree.forEach(limit.getOffset(), limit.getLimit(),
+                    (slot, zIndex) -> result.add(toWidget(slot, zIndex)));
+            return result;
+        });
+    }
+
+    /**
+     * Retrieves page of widgets following cursor, offset of limit is ignored.
+     * @param after cursor returned with previous page, null for the first page
+     * @param limit instance of Limit holding limit
+     * @return page of widgets sorted by Z index with cursor of the next page
+     */
+    @Override
+    public WidgetPage getPage(Cursor after, Limit limit) {
+        WidgetPage page = read(() -> {
+            List<Widget> result = new ArrayList<>(Math.min(limit.getLimit() + 1, slots.size()));
+            if (Objects.isNull(after)) {
+                zIndexTree.forEach(0, limit.getLimit() + 1,
+                        (slot, zIndex) -> result.add(toWidget(slot, zIndex)));
+            } else {
+                OptionalInt from = shiftLog.translate(after.getZIndex(), after.getVersion());
+                if (from.isEmpty()) return null;
+                zIndexTree.forEachAfter(from.getAsInt(), limit.getLimit() + 1,
+                        (slot, zIndex) -> result.add(toWidget(slot, zIndex)));
+            }
+            if (result.size() <= limit.getLimit()) return new WidgetPage(result, null);
+
+            result.remove(limit.getLimit().intValue());
+            Widget last = result.get(result.size() - 1);
+            return new WidgetPage(result, new Cursor(shiftLog.version(), last.getZIndex()));
+        });
+
+        if (Objects.isNull(page)) throw new InvalidCursorException();
+        return page;
+    }
+
+    /**
+     * Retrieves widgets intersecting area applying limit and offset.
+     * Scans geometry columns sequentially, there is no spatial index
+     * to keep store free of per widget objects.
+     * Response list is sorted by Z index.
+     * @param area area of board
+     * @param limit instance of Limit holding limit and offset
+     * @return list of founded widgets
+     */
+    @Override
+    public List<Widget> getAllInArea(Area area, Limit limit) {
+        return read(() -> {
+            int used = zIndexTree.used();
+            long[] found = new long[Math.min(used, 16)];
+            int count = 0;
+            for (int slot = 0; slot < used; slot++) {
+                if (records.getLong(slot, ID) == 0) continue;
+                if (!area.intersects(records.get(slot, X_INDEX), records.get(slot, Y_INDEX),
+                        records.get(slot, WIDTH), records.get(slot, HEIGHT))) continue;
+                if (count == found.length) found = Arrays.copyOf(found, count * 2);
+                found[count++] = ((long) zIndexTree.zIndexOf(slot) << 32) | slot;
+            }
+            Arrays.sort(found, 0, count);
+
+            int from = Math.min(limit.getOffset(), count);
+            int to = Math.min(from + limit.getLimit(), count);
+            List<Widget> result = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                result.add(toWidget((int) found[i], (int) (found[i] >> 32)));
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Retrieves widgets changed after given version, ids of deleted widgets and shifts of Z indexes.
+     * Ids are found by index of versions, so cost depends on number of changes, not on number of widgets.
+     * Widgets are read at the same point in time as changes, so shifts done later are not applied to them.
+     * @param version version returned by previous call or version of widget
+     * @return current state of changed widgets with version of board, empty when changes since version are not kept
+     */
+    @Override
+    public Optional<WidgetChanges> getChangesSince(long version) {
+        return read(() -> {
+            ChangeFeed.ChangedIds changed = changes.changedSince(version);
+            if (changed == null) return Optional.empty();
+
+            List<Widget> result = new ArrayList<>(changed.getIds().length);
+            List<Long> deleted = new ArrayList<>();
+            for (long id : changed.getIds()) {
+                int slot = id < 0 ? LongIntHashMap.MISSING : slots.get(id);
+                if (slot == LongIntHashMap.MISSING) {
+                    deleted.add(Math.abs(id));
+                } else {
+                    result.add(toWidget(slot, zIndexTree.zIndexOf(slot)));
+                }
+            }
+            return Optional.of(new WidgetChanges(changed.getVersion(), result, deleted, changed.getShifts()));
+        });
+    }
+
+    /**
+     * Updates values for given widget.
+     * Check new Z index and applying its value.
+     * Updates modification date.
+     * Widget with version is updated only while stored widget has the same version.
+     * @param widget instance of Widget
+     * @return instance of Widget
+     * @throws VersionConflictException when widget has version and stored widget has another one
+     */
+    @Override
+    public Widget update(Widget widget) {
+        widget.setModifiedAt(LocalDateTime.now());
+
+        long stamp = lock.writeLock();
+        try {
+            int slot = slots.get(widget.getId());
+            if (slot != LongIntHashMap.MISSING && !matchesVersion(slot, widget.getVersion())) {
+                throw new VersionConflictException();
+            }
+            replace(widget);
+        } finally {
+            unlockWrite(stamp);
+        }
+
+        return widget;
+    }
+
+    /**
+     * Changes only values given in patch, Z index is kept when patch has none,
+     * so patch of geometry only rewrites columns of widget without touching Z index tree.
+     * @param id of widget
+     * @param patch values to change and version when only that version may be changed
+     * @return patched widget, empty when widget is not found
+     * @throws VersionConflictException when patch has version and stored widget has another one
+     */
+    @Override
+    public Optional<Widget> patch(Long id, Widget patch) {
+        LocalDateTime now = LocalDateTime.now();
+
+        long stamp = lock.writeLock();
+        try {
+            int slot = slots.get(id);
+            if (slot == LongIntHashMap.MISSING) return Optional.empty();
+            if (!matchesVersion(slot, patch.getVersion())) throw new VersionConflictException();
+            Widget widget = toWidget(slot, zIndexTree.zIndexOf(slot)).patched(patch);
+            widget.setModifiedAt(now);
+            replace(widget);
+            return Optional.of(widget);
+        } finally {
+            unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Deletes widget from store by id.
+     * @param id of widget
+     */
+    @Override
+    public void delete(Long id) {
+        long stamp = lock.writeLock();
+        try {
+            if (!removeById(id)) throw new WidgetNotFoundException();
+        } finally {
+            unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Applies operations in given order under single write lock.
+     * Operations must be already checked for mandatory values.
+     * @param operations operations to apply
+     * @return results in order of operations
+     */
+    @Override
+    public List<BatchResult> batch(List<BatchOperation> operations) {
+        LocalDateTime now = LocalDateTime.now();
+        List<BatchResult> results = new ArrayList<>(operations.size());
+
+        long stamp = lock.writeLock();
+        try {
+            for (BatchOperation operation : operations) {
+                results.add(apply(operation, now));
+            }
+        } finally {
+            unlockWrite(stamp);
+        }
+
+        return results;
+    }
+
+    /**
+     * Clears storage.
+     * Switches counters to default values.
+     */
+    @Override
+    public void clear() {
+        long stamp = lock.writeLock();
+        try {
+            zIndexTree.clear();
+            slots.clear();
+            shiftLog.clear();
+            changes.reset();
+            counter.set(0);
+            maxZIndex = 0;
+        } finally {
+            unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Puts widget with its own id, Z index and modification date,
+     * replacing stored widget with the same id.
+     * Z index collision shifts other widgets like create does.
+     * Used for restoring store from write-ahead log.
+     * @param widget instance of Widget with all values set
+     */
+    @Override
+    public void restore(Widget widget) {
+        long stamp = lock.writeLock();
+        try {
+            if (!replace(widget)) put(widget);
+            counter.accumulateAndGet(widget.getId(), Math::max);
+        } finally {
+            unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Copies all widgets to snapshot ordered by Z index.
+     * Only bulk copy of columns is taken under read lock, so writers wait for memory copy,
+     * walking of tree and filling of snapshot is done on the copy after lock is released.
+     * @return snapshot of store
+     */
+    @Override
+    public WidgetSnapshot snapshot() {
+        ZIndexSlotTree tree;
+        SlotColumns values;
+        long lastId;
+        long sequence;
+        long stamp = lock.readLock();
+        try {
+            tree = zIndexTree.copy();
+            values = records.copy(zIndexTree.used());
+            lastId = counter.get();
+            sequence = changes.sequence();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+
+        WidgetSnapshot snapshot = new WidgetSnapshot(lastId, tree.size());
+        snapshot.setSequence(sequence);
+        int[] position = {0};
+        tree.forEach(0, tree.size(), (slot, zIndex) -> snapshot.set(position[0]++,
+                values.getLong(slot, ID), values.get(slot, X_INDEX), values.get(slot, Y_INDEX), zIndex,
+                values.get(slot, WIDTH), values.get(slot, HEIGHT), values.getLong(slot, MODIFIED_AT),
+                values.getLong(slot, VERSION)));
+        return snapshot;
+    }
+
+    /**
+     * Replaces all widgets with widgets of snapshot, all of them get version of the replacement.
+     * Z index tree is built at once, widget of i-th Z index takes slot i.
+     * @param snapshot snapshot taken by store
+     */
+    @Override
+    public void restore(WidgetSnapshot snapshot) {
+        long stamp = lock.writeLock();
+        try {
+            long version = changes.reset();
+            int size = snapshot.size();
+            slots.clear();
+            slots.ensureCapacity(size);
+            shiftLog.clear();
+            zIndexTree.build(snapshot.getZIndexes(), size);
+            if (zIndexTree.capacity() > records.capacity()) records.grow(zIndexTree.capacity());
+            for (int slot = 0; slot < size; slot++) {
+                records.setLong(slot, ID, snapshot.getId(slot));
+                records.set(slot, X_INDEX, snapshot.getXIndex(slot));
+                records.set(slot, Y_INDEX, snapshot.getYIndex(slot));
+                records.set(slot, WIDTH, snapshot.getWidth(slot));
+                records.set(slot, HEIGHT, snapshot.getHeight(slot));
+                records.setLong(slot, MODIFIED_AT, snapshot.getModifiedAt(slot));
+                records.setLong(slot, VERSION, version);
+                slots.put(snapshot.getId(slot), slot);
+            }
+            counter.set(snapshot.getCounter());
+            maxZIndex = size == 0 ? 0 : snapshot.getZIndexes()[size - 1];
+        } finally {
+            unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public ChangeFeed changes() {
+        return changes;
+    }
+
+    /**
+     * Number of widgets which ids are mapped to slots
+     */
+    int mappedIds() {
+        return slots.size();
+    }
+
+    /**
+     * Called under write lock after every change of store,
+     * lets store kept in files persist values held in fields
+     * @param zIndexTree Z index tree of widgets
+     * @param lastId last id given by store
+     * @param maxZIndex max Z index of all widgets
+     */
+    void changed(ZIndexSlotTree zIndexTree, long lastId, int maxZIndex) {
+    }
+
+    private void unlockWrite(long stamp) {
+        changed(zIndexTree, counter.get(), maxZIndex);
+        lock.unlockWrite(stamp);
+    }
+
+    /**
+     * Applies single operation of batch, write lock must be held
+     * @param operation operation to apply
+     * @param now modification date for widgets
+     * @return result of operation
+     */
+    private BatchResult apply(BatchOperation operation, LocalDateTime now) {
+        Widget widget = operation.getWidget();
+        switch (operation.getType()) {
+            case CREATE:
+                widget.setId(counter.incrementAndGet());
+                widget.setModifiedAt(now);
+                put(widget);
+                return BatchResult.ok(widget);
+            case UPDATE:
+                int slot = slots.get(widget.getId());
+                if (slot == LongIntHashMap.MISSING) return BatchResult.notFound();
+                if (!matchesVersion(slot, widget.getVersion())) return BatchResult.conflict();
+                widget.setModifiedAt(now);
+                replace(widget);
+                return BatchResult.ok(widget);
+            case DELETE:
+                return removeById(operation.getId()) ? BatchResult.ok(null) : BatchResult.notFound();
+            default:
+                return BatchResult.invalid();
+        }
+    }
+
+    /**
+     * Puts new widget to store, write lock must be held
+     * @param widget instance of Widget
+     */
+    private void put(Widget widget) {
+        checkZIndex(widget);
+        changes.created(widget);
+        insert(widget);
+    }
+
+    /**
+     * Replaces stored widget, write lock must be held
+     * @param widget instance of Widget with new values
+     * @return false when widget is not found
+     */
+    private boolean replace(Widget widget) {
+        int slot = slots.get(widget.getId());
+        if (slot == LongIntHashMap.MISSING) return false;
+        if (!Objects.isNull(widget.getZIndex()) && widget.getZIndex() == zIndexTree.zIndexOf(slot)) {
+            changes.updated(widget);
+            write(slot, widget);
+            return true;
+        }
+        checkZIndex(widget);
+        changes.updated(widget);
+        remove(slot);
+        insert(widget);
+        return true;
+    }
+
+    /**
+     * @param slot slot of stored widget
+     * @param expected version of widget given by client, null for update of any version
+     * @return true when stored widget has expected version
+     */
+    private boolean matchesVersion(int slot, Long expected) {
+        return Objects.isNull(expected) || expected == records.getLong(slot, VERSION);
+    }
+
+    /**
+     * Removes widget from store, write lock must be held
+     * @param id of widget
+     * @return false when widget is not found
+     */
+    private boolean removeById(Long id) {
+        int slot = slots.remove(id);
+        if (slot == LongIntHashMap.MISSING) return false;
+        remove(slot);
+        changes.deleted(id);
+        return true;
+    }
+
+    /**
+     * Check and set Z index for widget
+     * @param widget instance of Widget
+     */
+    private void checkZIndex(Widget widget) {
+        if (Objects.isNull(widget.getZIndex())) {
+            widget.setZIndex(maxZIndex + 1);
+        } else if (zIndexTree.contains(widget.getZIndex())) {
+            zIndexTree.shift(widget.getZIndex());
+            shiftLog.record(widget.getZIndex());
+            changes.shifted(widget.getZIndex());
+            maxZIndex++;
+        }
+    }
+
+    /**
+     * Puts widget to new slot of Z index tree and writes its values
+     * @param widget instance of Widget with Z index
+     */
+    private void insert(Widget widget) {
+        int slot = zIndexTree.insert(widget.getZIndex());
+        if (zIndexTree.capacity() > records.capacity()) records.grow(zIndexTree.capacity());
+        write(slot, widget);
+        slots.put(widget.getId(), slot);
+        maxZIndex = Math.max(maxZIndex, widget.getZIndex());
+    }
+
+    /**
+     * Frees slot of widget.
+     * Finds new max Z index from tail of tree when top widget is removed
+     * @param slot slot of widget
+     */
+    private void remove(int slot) {
+        int zIndex = zIndexTree.zIndexOf(slot);
+        zIndexTree.remove(slot);
+        records.setLong(slot, ID, 0);
+        if (zIndex == maxZIndex) {
+            maxZIndex = zIndexTree.maxZIndex().orElse(0);
+        }
+    }
+
+    private void write(int slot, Widget widget) {
+        records.setLong(slot, ID, widget.getId());
+        records.set(slot, X_INDEX, widget.getXIndex());
+        records.set(slot, Y_INDEX, widget.getYIndex());
+        records.set(slot, WIDTH, widget.getWidth());
+        records.set(slot, HEIGHT, widget.getHeight());
+        records.setLong(slot, MODIFIED_AT, EpochNanos.of(widget.getModifiedAt()));
+        records.setLong(slot, VERSION, widget.getVersion());
+    }
+
+    /**
+     * Creates instance of Widget from values of slot
+     * @param slot slot of widget
+     * @param zIndex actual Z index of widget
+     * @return instance of Widget
+     */
+    private Widget toWidget(int slot, int zIndex) {
+        return Widget.builder()
+                .id(records.getLong(slot, ID))
+                .xIndex(records.get(slot, X_INDEX))
+                .yIndex(records.get(slot, Y_INDEX))
+                .zIndex(zIndex)
+                .width(records.get(slot, WIDTH))
+                .height(records.get(slot, HEIGHT))
+                .modifiedAt(EpochNanos.toDateTime(records.getLong(slot, MODIFIED_AT)))
+                .version(records.getLong(slot, VERSION))
+                .build();
+    }
+
+    /**
+     * Runs reader without locking and checks that no write happened meanwhile.
+     * Falls back to read lock when writes keep interfering.
+     * @param reader function reading store
+     * @param <T> type of result
+     * @return result of reader
+     */
+    private <T> T read(Supplier<T> reader) {
+        for (int attempt = 0; attempt < OPTIMISTIC_READ_ATTEMPTS; attempt++) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp == 0) break;
+            try {
+                T result = reader.get();
+                if (lock.validate(stamp)) return result;
+            } catch (RuntimeException e) {
+                // columns were changed during read, result is discarded and read is retried
+            }
+        }
+
+        long stamp = lock.readLock();
+        try {
+            return reader.get();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+}
@@ -1,8 +1,18 @@
 package com.miro.dev.widgets.repository;
 
+import com.miro.dev.widgets.exceptions.InvalidCursorException;
+import com.miro.dev.widgets.exceptions.VersionConflictException;
 import com.miro.dev.widgets.exceptions.WidgetNotFoundException;
+import com.miro.dev.widgets.model.Area;
+import com.miro.dev.widgets.model.BatchOperation;
+import com.miro.dev.widgets.model.BatchResult;
+import com.miro.dev.widgets.model.Cursor;
+import com.miro.dev.widgets.model.EpochNanos;
 import com.miro.dev.widgets.model.Limit;
 import com.miro.dev.widgets.model.Widget;
+import com.miro.dev.widgets.model.WidgetChanges;
+import com.miro.dev.widgets.model.WidgetPage;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
@@ -10,19 +20,42 @@ import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
- * WidgetRepositoryInMemoryImpl stores all widgets
+ * WidgetRepositoryInMemoryImpl stores all widgets.
+ * Default repository, enabled when widgets.repository.type is missing or map.
  */
 @Repository
+@ConditionalOnProperty(name = "widgets.repository.type", havingValue = "map", matchIfMissing = true)
 public class WidgetRepositoryInMemoryImpl implements WidgetRepository {
 
     /**
      * Base store for all widgets
      */
-    private final Map<Long, Widget> widgets = new ConcurrentHashMap<>();
+    private final Map<Long, ZIndexTree.Node<WidgetRecord>> widgets = new ConcurrentHashMap<>();
+
+    /**
+     * Index of all widgets ordered by Z index, holds actual Z indexes of widgets
+     */
+    private final ZIndexTree<WidgetRecord> zIndexTree = new ZIndexTree<>();
+
+    /**
+     * Index of all widgets by their position on board
+     */
+    private final SpatialIndex spatialIndex = new SpatialIndex();
+
+    /**
+     * Log of the latest shifts, moves Z indexes of cursors taken before shifts
+     */
+    private final ShiftLog shiftLog = new ShiftLog();
+
+    /**
+     * Feed of the latest changes, published while write lock or read lock of update is held
+     */
+    private final ChangeFeed changes = new ChangeFeed();
 
     /**
      * Counter for incrementally generating of widget's ids
@@ -30,14 +63,28 @@ public class WidgetRepositoryInMemoryImpl implements WidgetRepository {
     private final AtomicLong counter = new AtomicLong();
 
     /**
-     * Holder of max Z index value of all widgets
+     * Holder of max Z index value of all widgets.
+     * Maintained by every write, 0 for empty store
+     */
+    private final AtomicInteger maxZIndex = new AtomicInteger();
+
+    /**
+     * Lock guarding Z index tree.
+     * Write lock is taken only for changes of tree, which cost O(log n),
+     * read lock is shared by updates keeping Z index of widget.
+     * Readers use optimistic stamps and take read lock only after failed attempts
      */
-    private final AtomicInteger maxZIndex = new AtomicInteger(1);
+    private final StampedLock lock = new StampedLock();
 
     /**
-     * Lock for atomically operations with creating and updating widgets
+     * Number of snapshots being copied or waiting to copy, updates keeping Z index take write lock meanwhile
      */
-    private final ReentrantLock lock = new ReentrantLock();
+    private final AtomicInteger copying = new AtomicInteger();
+
+    /**
+     * Number of optimistic reads tried before taking read lock
+     */
+    private static final int OPTIMISTIC_READ_ATTEMPTS = 3;
 
     /**
      * Default constructor
@@ -47,20 +94,20 @@ public class WidgetRepositoryInMemoryImpl implements WidgetRepository {
     /**
      * Method for creating of widget.
      * Internally sets id for widget, computes and sets Z index, sets modification date.
+     * Only insertion into Z index tree is done under write lock.
      * @param widget instance of Widget
      * @return instance of Widget
      */
     @Override
-    public synchronized Widget create(Widget widget) {
+    public Widget create(Widget widget) {
         widget.setId(counter.incrementAndGet());
         widget.setModifiedAt(LocalDateTime.now());
 
-        lock.lock();
+        long stamp = lock.writeLock();
         try {
-            checkZIndex(widget);
-            widgets.put(widget.getId(), widget);
+            put(widget);
         } finally {
-            lock.unlock();
+            lock.unlockWrite(stamp);
         }
 
         return widget;
@@ -68,60 +115,251 @@ public class WidgetRepositoryInMemoryImpl implements WidgetRepository {
 
     /**
      * Retrieves widget by id.
+     * Returned widget is a point in time copy, it is not changed by later writes.
      * @param id of widget
      * @return Optional object of Widget instance founded by given id
      */
     @Override
     public Optional<Widget> getById(Long id) {
-        return Optional.ofNullable(widgets.get(id));
+        return read(() -> Optional.ofNullable(widgets.get(id)).map(this::toWidget));
     }
 
     /**
      * Retrieves all widgets applying limit and offset.
-     * Sorts response list by Z index also.
+     * Walks Z index tree, so response list is sorted by Z index
+     * and cost does not depend on number of stored widgets.
      * @param limit instance of Limit holding limit and offset
      * @return list of founded widgets
      */
     @Override
     public List<Widget> getAll(Limit limit) {
-        return widgets.values().stream()
-                .sorted(Comparator.comparing(Widget::getZIndex))
-                .skip(limit.getOffset())
-                .limit(limit.getLimit())
-                .collect(Collectors.toList());
+        return read(() -> {
+            List<Widget> result = new ArrayList<>(Math.min(limit.getLimit(), widgets.size()));
+            zIndexTree.forEach(limit.getOffset(), limit.getLimit(),
+                    (widget, zIndex) -> result.add(widget.toWidget(zIndex)));
+            return result;
+        });
+    }
+
+    /**
+     * Retrieves page of widgets following cursor, offset of limit is ignored.
+     * Seeks to Z index of cursor moved through shifts done after it was taken,
+     * so cost does not depend on depth of page, and widgets shifted or inserted
+     * between pages are neither repeated nor skipped.
+     * @param after cursor returned with previous page, null for the first page
+     * @param limit instance of Limit holding limit
+     * @return page of widgets sorted by Z index with cursor of the next page
+     */
+    @Override
+    public WidgetPage getPage(Cursor after, Limit limit) {
+        WidgetPage page = read(() -> {
+            List<Widget> result = new ArrayList<>(Math.min(limit.getLimit() + 1, widgets.size()));
+            if (Objects.isNull(after)) {
+                zIndexTree.forEach(0, limit.getLimit() + 1,
+                        (widget, zIndex) -> result.add(widget.toWidget(zIndex)));
+            } else {
+                OptionalInt from = shiftLog.translate(after.getZIndex(), after.getVersion());
+                if (from.isEmpty()) return null;
+                zIndexTree.forEachAfter(from.getAsInt(), limit.getLimit() + 1,
+                        (widget, zIndex) -> result.add(widget.toWidget(zIndex)));
+            }
+            if (result.size() <= limit.getLimit()) return new WidgetPage(result, null);
+
+            result.remove(limit.getLimit().intValue());
+            Widget last = result.get(result.size() - 1);
+            return new WidgetPage(result, new Cursor(shiftLog.version(), last.getZIndex()));
+        });
+
+        if (Objects.isNull(page)) throw new InvalidCursorException();
+        return page;
+    }
+
+    /**
+     * Retrieves widgets intersecting area applying limit and offset.
+     * Looks up candidates in spatial index, so cost depends on number of widgets
+     * near the area, not on number of stored widgets.
+     * Response list is sorted by Z index.
+     * @param area area of board
+     * @param limit instance of Limit holding limit and offset
+     * @return list of founded widgets
+     */
+    @Override
+    public List<Widget> getAllInArea(Area area, Limit limit) {
+        return read(() -> {
+            Set<Long> visited = new HashSet<>();
+            List<Widget> found = new ArrayList<>();
+            spatialIndex.forEachCandidate(area, id -> {
+                ZIndexTree.Node<WidgetRecord> node = widgets.get(id);
+                if (Objects.isNull(node) || !visited.add(id)) return;
+                WidgetRecord record = node.getValue();
+                if (area.intersects(record.getXIndex(), record.getYIndex(), record.getWidth(), record.getHeight())) {
+                    found.add(record.toWidget(zIndexTree.zIndexOf(node)));
+                }
+            });
+            return found.stream()
+                    .sorted(Comparator.comparing(Widget::getZIndex))
+                    .skip(limit.getOffset())
+                    .limit(limit.getLimit())
+                    .collect(Collectors.toList());
+        });
+    }
+
+    /**
+     * Retrieves widgets changed after given version, ids of deleted widgets and shifts of Z indexes.
+     * Ids are found by index of versions, so cost depends on number of changes, not on number of widgets.
+     * Widgets are read at the same point in time as changes, so shifts done later are not applied to them.
+     * @param version version returned by previous call or version of widget
+     * @return current state of changed widgets with version of board, empty when changes since version are not kept
+     */
+    @Override
+    public Optional<WidgetChanges> getChangesSince(long version) {
+        return read(() -> {
+            ChangeFeed.ChangedIds changed = changes.changedSince(version);
+            if (changed == null) return Optional.empty();
+
+            List<Widget> result = new ArrayList<>(changed.getIds().length);
+            List<Long> deleted = new ArrayList<>();
+            for (long id : changed.getIds()) {
+                ZIndexTree.Node<WidgetRecord> node = id < 0 ? null : widgets.get(id);
+                if (node == null) {
+                    deleted.add(Math.abs(id));
+                } else {
+                    result.add(toWidget(node));
+                }
+            }
+            return Optional.of(new WidgetChanges(changed.getVersion(), result, deleted, changed.getShifts()));
+        });
     }
 
     /**
      * Updates values for given widget.
      * Check new Z index and applying its value.
      * Updates modification date.
+     * Update keeping Z index and cells of spatial index of widget does not collide
+     * with other widgets, so it replaces stored widget under shared read lock,
+     * other updates move widget in indexes under write lock.
+     * Widget with version is updated only while stored widget has the same version,
+     * updates under read lock compare versions under lock of change feed, which orders them.
      * @param widget instance of Widget
      * @return instance of Widget
+     * @throws VersionConflictException when widget has version and stored widget has another one
      */
     @Override
-    public synchronized Widget update(Widget widget) {
-
+    public Widget update(Widget widget) {
+        Long expected = widget.getVersion();
         widget.setModifiedAt(LocalDateTime.now());
+        WidgetRecord moved = WidgetRecord.of(widget);
+
+        long stamp = lock.readLock();
+        try {
+            ZIndexTree.Node<WidgetRecord> previous = widgets.get(widget.getId());
+            if (Objects.isNull(previous)) return widget;
+            if (copying.get() == 0 && keepsZIndex(previous, widget)
+                    && spatialIndex.sameCells(previous.getValue(), moved)) {
+                changes.updated(widget, () -> checkVersion(previous.getValue(), expected),
+                        () -> previous.setValue(WidgetRecord.of(widget)));
+                return widget;
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
 
-        lock.lock();
+        stamp = lock.writeLock();
         try {
-            checkZIndex(widget);
-            widgets.replace(widget.getId(), widget);
+            ZIndexTree.Node<WidgetRecord> previous = widgets.get(widget.getId());
+            if (Objects.nonNull(previous)) checkVersion(previous.getValue(), expected);
+            replace(widget);
         } finally {
-            lock.unlock();
+            lock.unlockWrite(stamp);
         }
 
         return widget;
     }
 
+    /**
+     * Changes only values given in patch, Z index is kept when patch has none.
+     * Patch keeping Z index and cells of spatial index, like dragging widget by short distance,
+     * is applied under shared read lock: widget is built from stored record under lock of change feed,
+     * so it never touches Z index tree and concurrent patches of the same widget do not lose values.
+     * Other patches are applied like update under write lock.
+     * @param id of widget
+     * @param patch values to change and version when only that version may be changed
+     * @return patched widget, empty when widget is not found
+     * @throws VersionConflictException when patch has version and stored widget has another one
+     */
+    @Override
+    public Optional<Widget> patch(Long id, Widget patch) {
+        LocalDateTime now = LocalDateTime.now();
+
+        long stamp = lock.readLock();
+        try {
+            ZIndexTree.Node<WidgetRecord> node = widgets.get(id);
+            if (Objects.isNull(node)) return Optional.empty();
+            int zIndex = zIndexTree.zIndexOf(node);
+            if (copying.get() == 0 && (Objects.isNull(patch.getZIndex()) || patch.getZIndex() == zIndex)) {
+                Widget patched = changes.updated(() -> {
+                    WidgetRecord stored = node.getValue();
+                    checkVersion(stored, patch.getVersion());
+                    Widget widget = stored.toWidget(zIndex).patched(patch);
+                    widget.setModifiedAt(now);
+                    return spatialIndex.sameCells(stored, WidgetRecord.of(widget)) ? widget : null;
+                }, widget -> node.setValue(WidgetRecord.of(widget)));
+                if (Objects.nonNull(patched)) return Optional.of(patched);
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+
+        stamp = lock.writeLock();
+        try {
+            ZIndexTree.Node<WidgetRecord> node = widgets.get(id);
+            if (Objects.isNull(node)) return Optional.empty();
+            checkVersion(node.getValue(), patch.getVersion());
+            Widget widget = toWidget(node).patched(patch);
+            widget.setModifiedAt(now);
+            replace(widget);
+            return Optional.of(widget);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
     /**
      * Deletes widget from store by id.
      * @param id of widget
      */
     @Override
-    public synchronized void delete(Long id) {
-        Optional.ofNullable(widgets.get(id)).ifPresentOrElse(widget -> widgets.remove(id),
-                () -> {throw new WidgetNotFoundException();});
+    public void delete(Long id) {
+        long stamp = lock.writeLock();
+        try {
+            if (!removeById(id)) throw new WidgetNotFoundException();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Applies operations in given order under single write lock,
+     * so batch pays for locking once and other writers see it at once.
+     * Operations must be already checked for mandatory values.
+     * @param operations operations to apply
+     * @return results in order of operations
+     */
+    @Override
+    public List<BatchResult> batch(List<BatchOperation> operations) {
+        LocalDateTime now = LocalDateTime.now();
+        List<BatchResult> results = new ArrayList<>(operations.size());
+
+        long stamp = lock.writeLock();
+        try {
+            for (BatchOperation operation : operations) {
+                results.add(apply(operation, now));
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+
+        return results;
     }
 
     /**
@@ -130,9 +368,172 @@ public class WidgetRepositoryInMemoryImpl implements WidgetRepository {
      */
     @Override
     public void clear() {
-        widgets.clear();
-        counter.set(0);
-        maxZIndex.set(1);
+        long stamp = lock.writeLock();
+        try {
+            widgets.clear();
+            zIndexTree.clear();
+            spatialIndex.clear();
+            shiftLog.clear();
+            changes.reset();
+            counter.set(0);
+            maxZIndex.set(0);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Puts widget with its own id, Z index and modification date,
+     * replacing stored widget with the same id.
+     * Z index collision shifts other widgets like create does.
+     * Used for restoring store from write-ahead log.
+     * @param widget instance of Widget with all values set
+     */
+    @Override
+    public void restore(Widget widget) {
+        long stamp = lock.writeLock();
+        try {
+            if (!replace(widget)) put(widget);
+            counter.accumulateAndGet(widget.getId(), Math::max);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Copies all widgets to snapshot ordered by Z index.
+     * Copy is taken under read lock, so readers are not stopped and only writes wait for it.
+     * Updates keeping Z index see the copy before taking read lock and take write lock instead,
+     * updates which started before are waited for by taking write lock first and converting it
+     * to read lock, so snapshot is a point in time view of store.
+     * @return snapshot of store
+     */
+    @Override
+    public WidgetSnapshot snapshot() {
+        copying.incrementAndGet();
+        long stamp = lock.tryConvertToReadLock(lock.writeLock());
+        try {
+            WidgetSnapshot snapshot = new WidgetSnapshot(counter.get(), zIndexTree.size());
+            snapshot.setSequence(changes.sequence());
+            int[] position = {0};
+            zIndexTree.forEach(0, Integer.MAX_VALUE, (record, zIndex) -> snapshot.set(position[0]++,
+                    record.getId(), record.getXIndex(), record.getYIndex(), zIndex,
+                    record.getWidth(), record.getHeight(), EpochNanos.of(record.getModifiedAt()), record.getVersion()));
+            return snapshot;
+        } finally {
+            copying.decrementAndGet();
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Replaces all widgets with widgets of snapshot, all of them get version of the replacement.
+     * Z index tree is built at once from ordered Z indexes instead of inserting widgets one by one.
+     * @param snapshot snapshot taken by store
+     */
+    @Override
+    public void restore(WidgetSnapshot snapshot) {
+        long stamp = lock.writeLock();
+        try {
+            long version = changes.reset();
+            List<WidgetRecord> records = new ArrayList<>(snapshot.size());
+            for (int i = 0; i < snapshot.size(); i++) {
+                records.add(new WidgetRecord(snapshot.getId(i), snapshot.getXIndex(i), snapshot.getYIndex(i),
+                        snapshot.getWidth(i), snapshot.getHeight(i), EpochNanos.toDateTime(snapshot.getModifiedAt(i)),
+                        version));
+            }
+            widgets.clear();
+            spatialIndex.clear();
+            shiftLog.clear();
+            List<ZIndexTree.Node<WidgetRecord>> nodes = zIndexTree.build(snapshot.getZIndexes(), records);
+            for (ZIndexTree.Node<WidgetRecord> node : nodes) {
+                widgets.put(node.getValue().getId(), node);
+                spatialIndex.add(node.getValue());
+            }
+            counter.set(snapshot.getCounter());
+            maxZIndex.set(records.isEmpty() ? 0 : snapshot.getZIndexes()[records.size() - 1]);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public ChangeFeed changes() {
+        return changes;
+    }
+
+    /**
+     * Applies single operation of batch, write lock must be held
+     * @param operation operation to apply
+     * @param now modification date for widgets
+     * @return result of operation
+     */
+    private BatchResult apply(BatchOperation operation, LocalDateTime now) {
+        Widget widget = operation.getWidget();
+        switch (operation.getType()) {
+            case CREATE:
+                widget.setId(counter.incrementAndGet());
+                widget.setModifiedAt(now);
+                put(widget);
+                return BatchResult.ok(widget);
+            case UPDATE:
+                ZIndexTree.Node<WidgetRecord> previous = widgets.get(widget.getId());
+                if (Objects.isNull(previous)) return BatchResult.notFound();
+                if (!matchesVersion(previous.getValue().getVersion(), widget.getVersion())) return BatchResult.conflict();
+                widget.setModifiedAt(now);
+                replace(widget);
+                return BatchResult.ok(widget);
+            case DELETE:
+                return removeById(operation.getId()) ? BatchResult.ok(null) : BatchResult.notFound();
+            default:
+                return BatchResult.invalid();
+        }
+    }
+
+    /**
+     * Puts new widget to store, write lock must be held
+     * @param widget instance of Widget
+     */
+    private void put(Widget widget) {
+        checkZIndex(widget);
+        changes.created(widget);
+        insert(widget.getZIndex(), WidgetRecord.of(widget));
+    }
+
+    /**
+     * Replaces stored widget moving it in indexes, write lock must be held
+     * @param widget instance of Widget with new values
+     * @return false when widget is not found
+     */
+    private boolean replace(Widget widget) {
+        ZIndexTree.Node<WidgetRecord> previous = widgets.get(widget.getId());
+        if (Objects.isNull(previous)) return false;
+        if (keepsZIndex(previous, widget)) {
+            changes.updated(widget);
+            WidgetRecord stored = WidgetRecord.of(widget);
+            spatialIndex.remove(previous.getValue());
+            previous.setValue(stored);
+            spatialIndex.add(stored);
+            return true;
+        }
+        checkZIndex(widget);
+        changes.updated(widget);
+        remove(previous);
+        insert(widget.getZIndex(), WidgetRecord.of(widget));
+        return true;
+    }
+
+    /**
+     * Removes widget from store and indexes, write lock must be held
+     * @param id of widget
+     * @return false when widget is not found
+     */
+    private boolean removeById(Long id) {
+        ZIndexTree.Node<WidgetRecord> node = widgets.remove(id);
+        if (Objects.isNull(node)) return false;
+        remove(node);
+        changes.deleted(id);
+        return true;
     }
 
     /**
@@ -141,26 +542,110 @@ public class WidgetRepositoryInMemoryImpl implements WidgetRepository {
      */
     private void checkZIndex(Widget widget) {
         if (Objects.isNull(widget.getZIndex())) {
-            maxZIndex.set(widgets.values().stream().map(Widget::getZIndex).reduce(Math::max).orElse(0));
-            widget.setZIndex(maxZIndex.incrementAndGet());
+            widget.setZIndex(maxZIndex.get() + 1);
         } else {
             shift(widget.getZIndex());
         }
     }
 
     /**
-     * Shift z indexes of all widgets appropriately new widget
+     * Shift z indexes of all widgets appropriately new widget.
+     * Shift is applied lazily by Z index tree, so stored widgets are not touched.
      * @param index z index given by user
      */
     private void shift(Integer index) {
-        boolean exists = widgets.entrySet().stream().anyMatch(w -> w.getValue().getZIndex().equals(index));
+        boolean exists = zIndexTree.contains(index);
 
         if (exists) {
-            widgets.forEach((key, value) -> {
-                if (value.getZIndex() >= index)
-                    value.incrementZIndex();
-            });
+            zIndexTree.shift(index);
+            shiftLog.record(index);
+            changes.shifted(index);
             maxZIndex.incrementAndGet();
         }
     }
+
+    /**
+     * @param stored stored widget
+     * @param expected version of widget given by client, null for update of any version
+     * @throws VersionConflictException when stored widget has another version
+     */
+    private static void checkVersion(WidgetRecord stored, Long expected) {
+        if (!matchesVersion(stored.getVersion(), expected)) throw new VersionConflictException();
+    }
+
+    private static boolean matchesVersion(Long stored, Long expected) {
+        return Objects.isNull(expected) || expected.equals(stored);
+    }
+
+    /**
+     * Checks that widget is updated with its current Z index
+     * @param node node of Z index tree holding widget
+     * @param widget instance of Widget with new values
+     * @return true when Z index of widget is not changed
+     */
+    private boolean keepsZIndex(ZIndexTree.Node<WidgetRecord> node, Widget widget) {
+        return !Objects.isNull(widget.getZIndex()) && widget.getZIndex() == zIndexTree.zIndexOf(node);
+    }
+
+    /**
+     * Puts widget to store and indexes
+     * @param zIndex Z index of widget
+     * @param record widget to put
+     */
+    private void insert(int zIndex, WidgetRecord record) {
+        widgets.put(record.getId(), zIndexTree.insert(zIndex, record));
+        spatialIndex.add(record);
+        maxZIndex.accumulateAndGet(zIndex, Math::max);
+    }
+
+    /**
+     * Removes node from Z index tree and spatial index.
+     * Finds new max Z index from tail of tree when top widget is removed
+     * @param node node of Z index tree
+     */
+    private void remove(ZIndexTree.Node<WidgetRecord> node) {
+        int zIndex = zIndexTree.zIndexOf(node);
+        zIndexTree.remove(node);
+        spatialIndex.remove(node.getValue());
+        if (zIndex == maxZIndex.get()) {
+            maxZIndex.set(zIndexTree.maxZIndex().orElse(0));
+        }
+    }
+
+    /**
+     * Creates instance of Widget from stored record with its actual Z index
+     * @param node node of Z index tree
+     * @return instance of Widget
+     */
+    private Widget toWidget(ZIndexTree.Node<WidgetRecord> node) {
+        return node.getValue().toWidget(zIndexTree.zIndexOf(node));
+    }
+
+    /**
+     * Runs reader without locking and checks that no write happened meanwhile,
+     * so reader gets consistent point in time view of store.
+     * Falls back to read lock when writes keep interfering.
+     * @param reader function reading store
+     * @param <T> type of result
+     * @return result of reader
+     */
+    private <T> T read(Supplier<T> reader) {
+        for (int attempt = 0; attempt < OPTIMISTIC_READ_ATTEMPTS; attempt++) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp == 0) break;
+            try {
+                T result = reader.get();
+                if (lock.validate(stamp)) return result;
+            } catch (RuntimeException e) {
+                // tree was changed during read, result is discarded and read is retried
+            }
+        }
+
+        long stamp = lock.readLock();
+        try {
+            return reader.get();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
 }
@@ -0,0 +1,224 @@
+package com.miro.dev.widgets.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * WidgetRepositoryMappedImpl keeps columns of array store in memory-mapped files of directory:
+ * records of widgets and Z index tree by slot, and header with root of tree, counters and state.
+ * Values are written to page cache and written back to disk by OS, so store survives restart
+ * of process and is opened without reading or deserializing widgets,
+ * only map of ids to slots is rebuilt from records.
+ * Header marks store as open until it is closed, store left open by crash is checked
+ * on the next start, because crash in the middle of write may leave tree inconsistent.
+ * Pages are forced to disk only on close, so crash of OS may lose recent changes.
+ * Enabled by widgets.repository.type=mapped, which is set by profile mapped,
+ * directory is set by widgets.mapped.path.
+ */
+@Slf4j
+@Repository
+@ConditionalOnProperty(name = "widgets.repository.type", havingValue = "mapped")
+public class WidgetRepositoryMappedImpl extends WidgetRepositoryArrayImpl implements Closeable {
+
+    private final Header header;
+
+    private final List<SlotColumns.Mapped> files;
+
+    /**
+     * Opens store in directory, creating empty store when directory has no files
+     * @param directory directory of store files
+     */
+    @Autowired
+    public WidgetRepositoryMappedImpl(@Value("${widgets.mapped.path:data/widgets}") String directory) {
+        this(Header.open(Paths.get(directory)), new ArrayList<>());
+    }
+
+    private WidgetRepositoryMappedImpl(Header header, List<SlotColumns.Mapped> files) {
+        super(new ZIndexSlotTree(mapped(header.directory.resolve("tree"), files),
+                        header.getRoot(), header.getUsed(), header.getFree()),
+                mapped(header.directory.resolve("records"), files), header.getCounter(), header.getMaxZIndex());
+        this.header = header;
+        this.files = files;
+        if (!header.isClosed()) check();
+        header.setClosed(false);
+    }
+
+    @Override
+    void changed(ZIndexSlotTree zIndexTree, long lastId, int maxZIndex) {
+        header.set(zIndexTree.root(), zIndexTree.used(), zIndexTree.free(), lastId, maxZIndex);
+    }
+
+    /**
+     * Writes all changed pages to disk and marks store as closed
+     */
+    @Override
+    public synchronized void close() {
+        if (header.isClosed()) return;
+        files.forEach(SlotColumns.Mapped::close);
+        header.setClosed(true);
+        header.close();
+    }
+
+    /**
+     * Checks store left open by crash: walks Z index tree in order and compares it with records
+     */
+    private void check() {
+        long started = System.nanoTime();
+        WidgetSnapshot snapshot;
+        try {
+            snapshot = snapshot();
+        } catch (RuntimeException e) {
+            throw corrupted("Z index tree is broken");
+        }
+        if (snapshot.size() != mappedIds()) throw corrupted("Z index tree does not match records");
+        int[] zIndexes = snapshot.getZIndexes();
+        for (int i = 0; i < snapshot.size(); i++) {
+            if (snapshot.getId(i) == 0) throw corrupted("Z index tree holds free slot");
+            if (i > 0 && zIndexes[i] <= zIndexes[i - 1]) throw corrupted("Z indexes are not ordered");
+        }
+        log.info("Store {} was not closed, {} widgets are checked in {} ms", header.directory, snapshot.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    private IllegalStateException corrupted(String reason) {
+        header.close();
+        files.forEach(SlotColumns.Mapped::close);
+        return new IllegalStateException("Store " + header.directory + " is corrupted: " + reason
+                + ", restore it from snapshot or remove it");
+    }
+
+    private static SlotColumns.Allocator mapped(Path path, List<SlotColumns.Mapped> files) {
+        return (columns, capacity) -> {
+            SlotColumns.Mapped mapped = new SlotColumns.Mapped(path, columns, capacity);
+            files.add(mapped);
+            return mapped;
+        };
+    }
+
+    /**
+     * Mapped file of values kept in fields of store and tree
+     */
+    private static final class Header implements Closeable {
+
+        private static final int MAGIC = 0x574d4d32;
+
+        private static final int MAGIC_OFFSET = 0;
+        private static final int CLOSED = 4;
+        private static final int ROOT = 8;
+        private static final int USED = 12;
+        private static final int FREE = 16;
+        private static final int MAX_Z_INDEX = 20;
+        private static final int COUNTER = 24;
+        private static final int SIZE = 32;
+
+        private final Path directory;
+
+        private final FileChannel channel;
+
+        private final MappedByteBuffer values;
+
+        private Header(Path directory, FileChannel channel, MappedByteBuffer values) {
+            this.directory = directory;
+            this.channel = channel;
+            this.values = values;
+        }
+
+        static Header open(Path directory) {
+            try {
+                Files.createDirectories(directory);
+                FileChannel channel = FileChannel.open(directory.resolve("header"), StandardOpenOption.CREATE,
+                        StandardOpenOption.READ, StandardOpenOption.WRITE);
+                boolean created = channel.size() == 0;
+                MappedByteBuffer values = channel.map(FileChannel.MapMode.READ_WRITE, 0, SIZE);
+                values.order(ByteOrder.nativeOrder());
+                Header header = new Header(directory, channel, values);
+                if (created) {
+                    values.putInt(MAGIC_OFFSET, MAGIC);
+                    header.set(ZIndexSlotTree.NIL, 0, ZIndexSlotTree.NIL, 0, 0);
+                    header.setClosed(true);
+                } else if (values.getInt(MAGIC_OFFSET) != MAGIC || !header.isValid()) {
+                    channel.close();
+                    throw new IllegalStateException("Store " + directory + " has unknown format or is corrupted");
+                }
+                return header;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void set(int root, int used, int free, long counter, int maxZIndex) {
+            values.putInt(ROOT, root);
+            values.putInt(USED, used);
+            values.putInt(FREE, free);
+            values.putLong(COUNTER, counter);
+            values.putInt(MAX_Z_INDEX, maxZIndex);
+        }
+
+        /**
+         * @return true when slots of tree are within used ones
+         */
+        boolean isValid() {
+            int used = getUsed();
+            return used >= 0 && getRoot() >= ZIndexSlotTree.NIL && getRoot() < used
+                    && getFree() >= ZIndexSlotTree.NIL && getFree() < used;
+        }
+
+        int getRoot() {
+            return values.getInt(ROOT);
+        }
+
+        int getUsed() {
+            return values.getInt(USED);
+        }
+
+        int getFree() {
+            return values.getInt(FREE);
+        }
+
+        long getCounter() {
+            return values.getLong(COUNTER);
+        }
+
+        int getMaxZIndex() {
+            return values.getInt(MAX_Z_INDEX);
+        }
+
+        boolean isClosed() {
+            return values.getInt(CLOSED) != 0;
+        }
+
+        /**
+         * Marks store as closed or open and forces header to disk
+         */
+        void setClosed(boolean closed) {
+            values.putInt(CLOSED, closed ? 1 : 0);
+            values.force();
+        }
+
+        @Override
+        public void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
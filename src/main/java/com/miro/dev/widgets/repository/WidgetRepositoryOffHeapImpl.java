@@ -0,0 +1,25 @@
+package com.miro.dev.widgets.repository;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+/**
+ * WidgetRepositoryOffHeapImpl stores all widgets off-heap.
+ * Works like WidgetRepositoryArrayImpl, but its columns, Z index tree
+ * and map of ids are kept in direct buffers, so heap taken by store
+ * does not depend on number of widgets and GC never scans it.
+ * Freed slots of deleted widgets are reused by next inserts.
+ * Direct memory is limited by -XX:MaxDirectMemorySize, which defaults to max heap size.
+ * Enabled by widgets.repository.type=offheap.
+ */
+@Repository
+@ConditionalOnProperty(name = "widgets.repository.type", havingValue = "offheap")
+public class WidgetRepositoryOffHeapImpl extends WidgetRepositoryArrayImpl {
+
+    /**
+     * Default constructor
+     */
+    WidgetRepositoryOffHeapImpl() {
+        super(SlotColumns.DIRECT);
+    }
+}
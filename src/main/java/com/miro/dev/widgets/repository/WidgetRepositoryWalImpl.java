@@ -0,0 +1,243 @@
+package com.miro.dev.widgets.repository;
+
+import com.miro.dev.widgets.model.Area;
+import com.miro.dev.widgets.model.BatchOperation;
+import com.miro.dev.widgets.model.BatchResult;
+import com.miro.dev.widgets.model.Cursor;
+import com.miro.dev.widgets.model.Limit;
+import com.miro.dev.widgets.model.Widget;
+import com.miro.dev.widgets.model.WidgetChanges;
+import com.miro.dev.widgets.model.WidgetPage;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * WidgetRepositoryWalImpl makes changes of in-memory store durable.
+ * Every change is applied to store and appended to write-ahead log,
+ * resulting state of widget is logged, so replay does not depend on clock or counters.
+ * Writers are serialized by their own lock, so order of records in log
+ * is the order of changes in store; waiting for fsync happens after the lock is released,
+ * so concurrent writers share fsync.
+ * Reads go to store directly.
+ */
+public class WidgetRepositoryWalImpl implements WidgetRepository {
+
+    private final WidgetRepository store;
+
+    private final WriteAheadLog log;
+
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    /**
+     * @param store store holding widgets, already restored from log
+     * @param log log to append changes to
+     */
+    WidgetRepositoryWalImpl(WidgetRepository store, WriteAheadLog log) {
+        this.store = store;
+        this.log = log;
+    }
+
+    @Override
+    public Optional<Widget> getById(Long id) {
+        return store.getById(id);
+    }
+
+    @Override
+    public List<Widget> getAll(Limit limit) {
+        return store.getAll(limit);
+    }
+
+    @Override
+    public WidgetPage getPage(Cursor after, Limit limit) {
+        return store.getPage(after, limit);
+    }
+
+    @Override
+    public List<Widget> getAllInArea(Area area, Limit limit) {
+        return store.getAllInArea(area, limit);
+    }
+
+    @Override
+    public Optional<WidgetChanges> getChangesSince(long version) {
+        return store.getChangesSince(version);
+    }
+
+    @Override
+    public Widget create(Widget widget) {
+        long position;
+        writeLock.lock();
+        try {
+            store.create(widget);
+            position = log.put(widget);
+        } finally {
+            writeLock.unlock();
+        }
+        log.await(position);
+        return widget;
+    }
+
+    /**
+     * Updates widget, update of missing widget changes nothing and is not logged.
+     * @param widget instance of Widget
+     * @return instance of Widget
+     */
+    @Override
+    public Widget update(Widget widget) {
+        long position;
+        writeLock.lock();
+        try {
+            if (!store.getById(widget.getId()).isPresent()) return store.update(widget);
+            store.update(widget);
+            position = log.put(widget);
+        } finally {
+            writeLock.unlock();
+        }
+        log.await(position);
+        return widget;
+    }
+
+    /**
+     * Patches widget and logs its patched state, patch of missing widget is not logged.
+     * @param id of widget
+     * @param patch values to change
+     * @return patched widget, empty when widget is not found
+     */
+    @Override
+    public Optional<Widget> patch(Long id, Widget patch) {
+        Optional<Widget> result;
+        long position;
+        writeLock.lock();
+        try {
+            result = store.patch(id, patch);
+            if (!result.isPresent()) return result;
+            position = log.put(result.get());
+        } finally {
+            writeLock.unlock();
+        }
+        log.await(position);
+        return result;
+    }
+
+    @Override
+    public void delete(Long id) {
+        long position;
+        writeLock.lock();
+        try {
+            store.delete(id);
+            position = log.delete(id);
+        } finally {
+            writeLock.unlock();
+        }
+        log.await(position);
+    }
+
+    /**
+     * Applies batch to store and logs its successful operations in order,
+     * whole batch waits for one fsync.
+     * @param operations operations to apply
+     * @return results in order of operations
+     */
+    @Override
+    public List<BatchResult> batch(List<BatchOperation> operations) {
+        List<BatchResult> results;
+        long position = 0;
+        writeLock.lock();
+        try {
+            results = store.batch(operations);
+            for (int i = 0; i < operations.size(); i++) {
+                if (results.get(i).getStatus() != BatchResult.Status.OK) continue;
+                BatchOperation operation = operations.get(i);
+                position = operation.getType() == BatchOperation.Type.DELETE
+                        ? log.delete(operation.getId())
+                        : log.put(results.get(i).getWidget());
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        log.await(position);
+        return results;
+    }
+
+    @Override
+    public void clear() {
+        long position;
+        writeLock.lock();
+        try {
+            store.clear();
+            position = log.clear();
+        } finally {
+            writeLock.unlock();
+        }
+        log.await(position);
+    }
+
+    @Override
+    public void restore(Widget widget) {
+        long position;
+        writeLock.lock();
+        try {
+            store.restore(widget);
+            position = log.put(widget);
+        } finally {
+            writeLock.unlock();
+        }
+        log.await(position);
+    }
+
+    /**
+     * Takes snapshot of store with position of log following changes it covers.
+     * Writers wait only while store is copied, log is synced up to the position
+     * after that, so snapshot never covers changes which log may lose.
+     * @return snapshot of store
+     */
+    @Override
+    public WidgetSnapshot snapshot() {
+        WidgetSnapshot snapshot;
+        writeLock.lock();
+        try {
+            snapshot = store.snapshot();
+            snapshot.setLogPosition(log.position());
+        } finally {
+            writeLock.unlock();
+        }
+        log.sync(snapshot.getLogPosition());
+        return snapshot;
+    }
+
+    /**
+     * Copies store without syncing log, copy is not restored from, so it may cover changes log may lose
+     * @return point in time copy of store
+     */
+    @Override
+    public WidgetSnapshot copy() {
+        return store.copy();
+    }
+
+    @Override
+    public ChangeFeed changes() {
+        return store.changes();
+    }
+
+    /**
+     * Replaces all widgets with widgets of snapshot and logs them after clearing,
+     * so replay of log gives the same widgets.
+     * @param snapshot snapshot taken by store
+     */
+    @Override
+    public void restore(WidgetSnapshot snapshot) {
+        long position;
+        writeLock.lock();
+        try {
+            store.restore(snapshot);
+            position = log.clear();
+            for (int i = 0; i < snapshot.size(); i++) {
+                position = log.put(snapshot.toWidget(i));
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        log.await(position);
+    }
+}
@@ -0,0 +1,156 @@
+package com.miro.dev.widgets.repository;
+
+import com.miro.dev.widgets.model.EpochNanos;
+import com.miro.dev.widgets.model.Widget;
+
+/**
+ * Point in time copy of all widgets of store ordered by Z index.
+ * Values are kept in primitive columns, so copy is compact and cheap to take,
+ * it is encoded and written to disk after store is released.
+ */
+public final class WidgetSnapshot {
+
+    /**
+     * Last id given by store
+     */
+    private final long counter;
+
+    private final int size;
+
+    private final long[] ids;
+    private final int[] xIndexes;
+    private final int[] yIndexes;
+    private final int[] zIndexes;
+    private final int[] widths;
+    private final int[] heights;
+    private final long[] modifiedAt;
+
+    /**
+     * Versions of widgets, they are not kept in file of snapshot
+     */
+    private final long[] versions;
+
+    /**
+     * Position of write-ahead log which contains no changes covered by snapshot
+     */
+    private long logPosition;
+
+    /**
+     * Sequence number of the last change of store covered by snapshot
+     */
+    private long sequence;
+
+    /**
+     * Creates empty columns to be filled in order of Z index
+     * @param counter last id given by store
+     * @param size number of widgets
+     */
+    WidgetSnapshot(long counter, int size) {
+        this.counter = counter;
+        this.size = size;
+        this.ids = new long[size];
+        this.xIndexes = new int[size];
+        this.yIndexes = new int[size];
+        this.zIndexes = new int[size];
+        this.widths = new int[size];
+        this.heights = new int[size];
+        this.modifiedAt = new long[size];
+        this.versions = new long[size];
+    }
+
+    /**
+     * Sets values of widget at given position
+     */
+    void set(int i, long id, int xIndex, int yIndex, int zIndex, int width, int height, long modifiedAtNanos) {
+        set(i, id, xIndex, yIndex, zIndex, width, height, modifiedAtNanos, 0);
+    }
+
+    /**
+     * Sets values of widget with its version at given position
+     */
+    void set(int i, long id, int xIndex, int yIndex, int zIndex, int width, int height, long modifiedAtNanos,
+             long version) {
+        ids[i] = id;
+        xIndexes[i] = xIndex;
+        yIndexes[i] = yIndex;
+        zIndexes[i] = zIndex;
+        widths[i] = width;
+        heights[i] = height;
+        modifiedAt[i] = modifiedAtNanos;
+        versions[i] = version;
+    }
+
+    long getCounter() {
+        return counter;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    long getId(int i) {
+        return ids[i];
+    }
+
+    int getXIndex(int i) {
+        return xIndexes[i];
+    }
+
+    int getYIndex(int i) {
+        return yIndexes[i];
+    }
+
+    /**
+     * @return Z indexes in ascending order, array must not be changed
+     */
+    int[] getZIndexes() {
+        return zIndexes;
+    }
+
+    int getWidth(int i) {
+        return widths[i];
+    }
+
+    int getHeight(int i) {
+        return heights[i];
+    }
+
+    /**
+     * @return modification date in nanoseconds since epoch
+     */
+    long getModifiedAt(int i) {
+        return modifiedAt[i];
+    }
+
+    /**
+     * Creates instance of Widget from values at given position
+     */
+    public Widget toWidget(int i) {
+        return Widget.builder()
+                .id(ids[i])
+                .xIndex(xIndexes[i])
+                .yIndex(yIndexes[i])
+                .zIndex(zIndexes[i])
+                .width(widths[i])
+                .height(heights[i])
+                .modifiedAt(EpochNanos.toDateTime(modifiedAt[i]))
+                .version(versions[i])
+                .build();
+    }
+
+    long getLogPosition() {
+        return logPosition;
+    }
+
+    void setLogPosition(long logPosition) {
+        this.logPosition = logPosition;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+}
@@ -0,0 +1,664 @@
+package com.miro.dev.widgets.repository;
+
+import com.miro.dev.widgets.exceptions.WidgetNotFoundException;
+import com.miro.dev.widgets.model.EpochNanos;
+import com.miro.dev.widgets.model.Widget;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append only binary log of changes of widgets.
+ * Every record is type, fixed size payload and CRC32 of both:
+ * put of widget state (41 bytes), delete by id (13 bytes) or clear (5 bytes).
+ * Records are appended to memory buffer and written to file with fsync by groups,
+ * so concurrent writers share one fsync. Durability decides when writer is released:
+ * SYNC waits for fsync of its record, BATCH waits for the next periodic fsync,
+ * ASYNC does not wait and may lose the last flush interval on crash.
+ * On start log is replayed into store, torn tail left by crash is cut off.
+ * Log is split into segment files, positions of records count from the beginning of the first segment ever written.
+ * The first segment is the file of log path, every next one is log path suffixed by position of its first record.
+ * After snapshot is written, log is rotated: new segment is started and segments holding only records
+ * covered by snapshot are deleted, so log holds only changes made since the previous snapshot.
+ * Waiting is done on ReentrantLock instead of monitor, so virtual threads waiting for fsync
+ * release their carrier threads.
+ * Failed write or fsync fails log: records after the durable position may be lost, so nothing is written anymore
+ * and every writer waiting for them, in SYNC or BATCH durability, gets the failure.
+ */
+@Slf4j
+class WriteAheadLog implements Closeable {
+
+    /**
+     * When writer is released after appending record
+     */
+    enum Durability {
+        SYNC, BATCH, ASYNC
+    }
+
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+    private static final byte CLEAR = 3;
+
+    private static final int PUT_SIZE = 1 + Long.BYTES + 5 * Integer.BYTES + Long.BYTES + Integer.BYTES;
+    private static final int DELETE_SIZE = 1 + Long.BYTES + Integer.BYTES;
+    private static final int CLEAR_SIZE = 1 + Integer.BYTES;
+
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final Path path;
+
+    /**
+     * Segment records are appended to, replaced only by writer holding flushing flag
+     */
+    private FileChannel channel;
+
+    /**
+     * Position of the first record of segment records are appended to
+     */
+    private long base;
+
+    /**
+     * Paths of segments by positions of their first records, guarded by lock
+     */
+    private final NavigableMap<Long, Path> segments = new TreeMap<>();
+
+    private final Durability durability;
+
+    private final long flushIntervalNanos;
+
+    /**
+     * Lock guarding buffers, positions and flushing flag
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Signalled when flushing writer is done and durable position moved
+     */
+    private final Condition flushed = lock.newCondition();
+
+    /**
+     * Records appended but not written yet, guarded by lock
+     */
+    private ByteBuffer pending = ByteBuffer.allocate(BUFFER_SIZE);
+
+    /**
+     * Buffer swapped with pending one while it is written by flushing writer
+     */
+    private ByteBuffer writing = ByteBuffer.allocate(BUFFER_SIZE);
+
+    /**
+     * Number of bytes appended and number of bytes written with fsync, guarded by lock
+     */
+    private long appended;
+    private long durable;
+
+    /**
+     * Whether some writer is flushing now, guarded by lock
+     */
+    private boolean flushing;
+
+    /**
+     * Failure of write or fsync, once set no record is written anymore, guarded by lock
+     */
+    private IOException failure;
+
+    private final CRC32 crc = new CRC32();
+
+    private final Thread flusher;
+
+    private volatile boolean closed;
+
+    /**
+     * Opens the last segment of log, creates the first one when there are none.
+     * Log must be replayed before appending.
+     * @param path path to the first segment of log, next segments are in the same directory
+     * @param durability when writers are released
+     * @param flushInterval interval of periodic fsync for BATCH and ASYNC durability
+     */
+    WriteAheadLog(Path path, Durability durability, Duration flushInterval) {
+        this.path = path;
+        try {
+            if (path.getParent() != null) Files.createDirectories(path.getParent());
+            findSegments();
+            if (segments.isEmpty()) segments.put(0L, path);
+            this.base = segments.lastKey();
+            this.channel = FileChannel.open(segments.lastEntry().getValue(), StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.durability = durability;
+        this.flushIntervalNanos = flushInterval.toNanos();
+
+        if (durability == Durability.SYNC) {
+            flusher = null;
+        } else {
+            flusher = new Thread(this::flushPeriodically, "widgets-wal-flusher");
+            flusher.setDaemon(true);
+            flusher.start();
+        }
+    }
+
+    /**
+     * Reads all kept records and applies them to store.
+     * Stops at the first broken record and cuts it off with everything after it.
+     * @param store store to apply records to
+     * @return number of applied records
+     */
+    long replay(WidgetRepository store) {
+        return replay(store, 0);
+    }
+
+    /**
+     * Reads records starting from given position and applies them to store.
+     * Stops at the first broken record of the last segment and cuts it off with everything after it,
+     * earlier segments were synced whole before the next one was started, so broken record in them fails replay.
+     * @param store store to apply records to
+     * @param from position of the first record, usually taken from snapshot of store
+     * @return number of applied records
+     * @throws IllegalStateException when record of segment before the last one is broken
+     */
+    long replay(WidgetRepository store, long from) {
+        lock.lock();
+        try {
+            if (from < segments.firstKey()) {
+                log.warn("Write-ahead log starts at position {} after requested position {}, records between are lost",
+                        segments.firstKey(), from);
+            }
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            long[] records = {0};
+            Long start = segments.floorKey(Math.max(from, segments.firstKey()));
+            for (Map.Entry<Long, Path> segment : segments.tailMap(start, true).entrySet()) {
+                long segmentBase = segment.getKey();
+                long offset = Math.max(from - segmentBase, 0);
+                if (segmentBase == base) {
+                    long end = replaySegment(channel, offset, buffer, store, records);
+                    channel.truncate(end);
+                    channel.position(end);
+                    appended = base + end;
+                    durable = base + end;
+                } else {
+                    try (FileChannel file = FileChannel.open(segment.getValue(), StandardOpenOption.READ)) {
+                        if (replaySegment(file, offset, buffer, store, records) < file.size()) {
+                            throw new IllegalStateException("Segment " + segment.getValue() + " of write-ahead log is broken");
+                        }
+                    }
+                }
+                buffer.clear();
+            }
+            return records[0];
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Starts new segment at the end of log and deletes segments holding only records before given position.
+     * Records appended before rotation are written and synced to the previous segment first.
+     * @param from position of the first record still needed, log position of snapshot already written
+     */
+    void rotate(long from) {
+        FileChannel previous;
+        long upTo;
+        lock.lock();
+        try {
+            while (flushing) {
+                flushed.awaitUninterruptibly();
+            }
+            checkFailure();
+            flushing = true;
+            ByteBuffer full = pending;
+            pending = writing;
+            writing = full;
+            upTo = appended;
+            previous = channel;
+        } finally {
+            lock.unlock();
+        }
+
+        boolean written = false;
+        IOException error = null;
+        FileChannel next = null;
+        Path nextPath = segmentPath(upTo);
+        try {
+            write(previous);
+            written = true;
+            if (upTo > base) {
+                next = FileChannel.open(nextPath, StandardOpenOption.CREATE,
+                        StandardOpenOption.READ, StandardOpenOption.WRITE);
+                syncDirectory();
+            }
+        } catch (IOException e) {
+            if (!written) error = e;
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.lock();
+            try {
+                if (written) durable = upTo;
+                if (error != null) failure = error;
+                if (next != null) {
+                    channel = next;
+                    base = upTo;
+                    segments.put(upTo, nextPath);
+                }
+                flushing = false;
+                flushed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+        if (next != null) closeQuietly(previous);
+        deleteSegmentsBefore(from);
+    }
+
+    /**
+     * Appends state of widget
+     * @param widget widget with all values set
+     * @return position to await
+     */
+    long put(Widget widget) {
+        lock.lock();
+        try {
+            ByteBuffer record = reserve(PUT_SIZE);
+            int start = record.position();
+            record.put(PUT)
+                    .putLong(widget.getId())
+                    .putInt(widget.getXIndex())
+                    .putInt(widget.getYIndex())
+                    .putInt(widget.getZIndex())
+                    .putInt(widget.getWidth())
+                    .putInt(widget.getHeight())
+                    .putLong(EpochNanos.of(widget.getModifiedAt()));
+            return seal(record, start);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Appends deletion of widget
+     * @param id of widget
+     * @return position to await
+     */
+    long delete(long id) {
+        lock.lock();
+        try {
+            ByteBuffer record = reserve(DELETE_SIZE);
+            int start = record.position();
+            record.put(DELETE).putLong(id);
+            return seal(record, start);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Appends clearing of store
+     * @return position to await
+     */
+    long clear() {
+        lock.lock();
+        try {
+            ByteBuffer record = reserve(CLEAR_SIZE);
+            int start = record.position();
+            record.put(CLEAR);
+            return seal(record, start);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return position after the last appended record
+     */
+    long position() {
+        lock.lock();
+        try {
+            return appended;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until records appended before position are written with fsync whatever durability is
+     * @param position position returned by append
+     * @throws UncheckedIOException when log failed before records were written
+     */
+    void sync(long position) {
+        flush(position);
+    }
+
+    /**
+     * Waits until records appended before position are durable as required by durability
+     * @param position position returned by append
+     * @throws UncheckedIOException when log failed before records were written
+     */
+    void await(long position) {
+        switch (durability) {
+            case SYNC:
+                flush(position);
+                break;
+            case BATCH:
+                lock.lock();
+                try {
+                    while (durable < position && !closed) {
+                        checkFailure();
+                        flushed.await();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    lock.unlock();
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Writes all appended records and closes file
+     */
+    @Override
+    public void close() {
+        closed = true;
+        if (flusher != null) {
+            LockSupport.unpark(flusher);
+            try {
+                flusher.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            flush(Long.MAX_VALUE);
+        } finally {
+            closeQuietly(channel);
+            lock.lock();
+            try {
+                flushed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Writes and fsyncs everything appended so far, unless position is already durable.
+     * Only one writer flushes at a time, others wait for it and return
+     * when their records are covered, so writers waiting together share one fsync.
+     */
+    private void flush(long position) {
+        long upTo;
+        FileChannel target;
+        lock.lock();
+        try {
+            while (flushing) {
+                if (durable >= position) return;
+                flushed.await();
+            }
+            if (durable >= Math.min(position, appended)) return;
+            checkFailure();
+            flushing = true;
+            ByteBuffer full = pending;
+            pending = writing;
+            writing = full;
+            upTo = appended;
+            target = channel;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } finally {
+            lock.unlock();
+        }
+
+        boolean written = false;
+        IOException error = null;
+        try {
+            write(target);
+            written = true;
+        } catch (IOException e) {
+            error = e;
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.lock();
+            try {
+                if (written) durable = upTo;
+                if (error != null) failure = error;
+                flushing = false;
+                flushed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Throws failure of log if any, lock must be held
+     */
+    private void checkFailure() {
+        if (failure != null) {
+            throw new UncheckedIOException("Write-ahead log failed, records are not written", failure);
+        }
+    }
+
+    /**
+     * Writes buffer swapped out of pending records to segment and syncs it, flushing flag must be held
+     */
+    private void write(FileChannel segment) throws IOException {
+        writing.flip();
+        while (writing.hasRemaining()) {
+            segment.write(writing);
+        }
+        writing.clear();
+        segment.force(false);
+    }
+
+    /**
+     * Applies whole valid records of segment starting at offset
+     * @param records number of applied records, incremented by records of segment
+     * @return offset after the last applied record
+     */
+    private long replaySegment(FileChannel segment, long offset, ByteBuffer buffer, WidgetRepository store,
+                               long[] records) throws IOException {
+        long position = Math.min(offset, segment.size());
+        segment.position(position);
+        while (segment.read(buffer) > 0 || buffer.position() > 0) {
+            buffer.flip();
+            int applied = applyRecords(buffer, store);
+            if (applied < 0) break;
+            records[0] += applied;
+            position += buffer.position();
+            if (buffer.position() == 0 && buffer.limit() > 0 && segment.position() == segment.size()) break;
+            buffer.compact();
+        }
+        return position;
+    }
+
+    /**
+     * Fills segments by files of log path and log path suffixed by position
+     */
+    private void findSegments() throws IOException {
+        Path directory = path.toAbsolutePath().getParent();
+        String prefix = path.getFileName() + ".";
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(file -> {
+                String name = file.getFileName().toString();
+                if (name.equals(path.getFileName().toString())) {
+                    segments.put(0L, file);
+                } else if (name.startsWith(prefix) && name.length() > prefix.length()
+                        && name.substring(prefix.length()).chars().allMatch(Character::isDigit)) {
+                    segments.put(Long.parseLong(name.substring(prefix.length())), file);
+                }
+            });
+        }
+    }
+
+    private Path segmentPath(long position) {
+        return position == 0 ? path : path.resolveSibling(path.getFileName() + "." + position);
+    }
+
+    /**
+     * Deletes segments which end not after given position, the segment records are appended to is kept
+     */
+    private void deleteSegmentsBefore(long position) {
+        List<Path> deleted = new ArrayList<>();
+        lock.lock();
+        try {
+            while (segments.size() > 1) {
+                Long next = segments.higherKey(segments.firstKey());
+                if (next > position) break;
+                deleted.add(segments.pollFirstEntry().getValue());
+            }
+        } finally {
+            lock.unlock();
+        }
+        for (Path segment : deleted) {
+            try {
+                Files.deleteIfExists(segment);
+            } catch (IOException e) {
+                log.warn("Segment {} of write-ahead log is not deleted", segment, e);
+            }
+        }
+    }
+
+    /**
+     * Makes creation of segment durable, not supported by some file systems
+     */
+    private void syncDirectory() {
+        Path directory = path.toAbsolutePath().getParent();
+        try (FileChannel directoryChannel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            directoryChannel.force(true);
+        } catch (IOException e) {
+            log.debug("Directory {} is not synced", directory, e);
+        }
+    }
+
+    private static void closeQuietly(FileChannel segment) {
+        try {
+            segment.close();
+        } catch (IOException e) {
+            log.warn("Segment of write-ahead log is not closed", e);
+        }
+    }
+
+    private void flushPeriodically() {
+        while (!closed) {
+            LockSupport.parkNanos(flushIntervalNanos);
+            try {
+                flush(Long.MAX_VALUE);
+            } catch (UncheckedIOException e) {
+                log.error("Write-ahead log failed, waiting writers are released with failure", e);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Gives pending buffer with enough room for record
+     */
+    private ByteBuffer reserve(int size) {
+        if (pending.remaining() < size) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + size));
+            pending.flip();
+            grown.put(pending);
+            pending = grown;
+        }
+        return pending;
+    }
+
+    /**
+     * Appends CRC of record started at given position
+     */
+    private long seal(ByteBuffer buffer, int start) {
+        crc.reset();
+        crc.update(buffer.array(), start, buffer.position() - start);
+        buffer.putInt((int) crc.getValue());
+        appended += buffer.position() - start;
+        return appended;
+    }
+
+    /**
+     * Applies whole records from buffer moving its position after them
+     * @return number of applied records or -1 when broken record is found
+     */
+    private int applyRecords(ByteBuffer buffer, WidgetRepository store) {
+        int applied = 0;
+        while (buffer.hasRemaining()) {
+            int start = buffer.position();
+            int size = sizeOf(buffer.get(start));
+            if (size < 0) return applied == 0 ? -1 : applied;
+            if (buffer.remaining() < size) return applied;
+
+            crc.reset();
+            ByteBuffer body = buffer.duplicate();
+            body.limit(start + size - Integer.BYTES);
+            crc.update(body);
+            if ((int) crc.getValue() != buffer.getInt(start + size - Integer.BYTES)) {
+                return applied == 0 ? -1 : applied;
+            }
+
+            apply(buffer, store);
+            buffer.position(start + size);
+            applied++;
+        }
+        return applied;
+    }
+
+    private void apply(ByteBuffer buffer, WidgetRepository store) {
+        byte type = buffer.get();
+        if (type == PUT) {
+            store.restore(Widget.builder()
+                    .id(buffer.getLong())
+                    .xIndex(buffer.getInt())
+                    .yIndex(buffer.getInt())
+                    .zIndex(buffer.getInt())
+                    .width(buffer.getInt())
+                    .height(buffer.getInt())
+                    .modifiedAt(EpochNanos.toDateTime(buffer.getLong()))
+                    .build());
+        } else if (type == DELETE) {
+            try {
+                store.delete(buffer.getLong());
+            } catch (WidgetNotFoundException e) {
+                // widget is already absent, nothing to delete
+            }
+        } else {
+            store.clear();
+        }
+    }
+
+    private static int sizeOf(byte type) {
+        switch (type) {
+            case PUT:
+                return PUT_SIZE;
+            case DELETE:
+                return DELETE_SIZE;
+            case CLEAR:
+                return CLEAR_SIZE;
+            default:
+                return -1;
+        }
+    }
+}
@@ -0,0 +1,536 @@
+package com.miro.dev.widgets.repository;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.OptionalInt;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Order statistic tree (treap) of slots ordered by unique Z index,
+ * kept in primitive columns instead of node objects.
+ * Works like ZIndexTree: every slot knows the size of its subtree
+ * and shifts of Z indexes are applied lazily.
+ * Slot is an index of node in columns, it is given by insert and
+ * may be reused after remove, so callers keep their own columns of values by slot.
+ * Not thread safe: callers guard it with their own lock.
+ * Read operations may run optimistically during writes: then result is garbage
+ * and ConcurrentModificationException or IndexOutOfBoundsException may be thrown,
+ * so caller must validate result.
+ */
+class ZIndexSlotTree {
+
+    /**
+     * Missing slot
+     */
+    static final int NIL = -1;
+
+    /**
+     * Depth of tree that is never reached by consistent treap,
+     * reaching it means that tree was modified during optimistic read
+     */
+    private static final int MAX_DEPTH = 1024;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Columns of slot: children, parent, size of subtree, priority,
+     * Z index without shifts pending in ancestors and shift pending for all descendants
+     */
+    private static final int LEFT = 0;
+    private static final int RIGHT = 1;
+    private static final int PARENT = 2;
+    private static final int SIZE = 3;
+    private static final int PRIORITY = 4;
+    private static final int Z_INDEX = 5;
+    private static final int SHIFT = 6;
+    private static final int COLUMNS = 7;
+
+    private final SlotColumns nodes;
+
+    private int root = NIL;
+
+    /**
+     * Number of slots ever given, slots above it are never used
+     */
+    private int used;
+
+    /**
+     * Head of list of removed slots linked by right column
+     */
+    private int free = NIL;
+
+    /**
+     * Creates tree kept in int array on heap
+     */
+    ZIndexSlotTree() {
+        this(SlotColumns.HEAP);
+    }
+
+    /**
+     * @param allocator kind of memory for tree
+     */
+    ZIndexSlotTree(SlotColumns.Allocator allocator) {
+        nodes = allocator.allocate(COLUMNS, INITIAL_CAPACITY);
+    }
+
+    /**
+     * Creates tree over columns kept from previous run
+     * @param allocator kind of memory holding tree
+     * @param root root slot
+     * @param used number of slots ever given
+     * @param free head of list of removed slots
+     */
+    ZIndexSlotTree(SlotColumns.Allocator allocator, int root, int used, int free) {
+        this(allocator.allocate(COLUMNS, INITIAL_CAPACITY), root, used, free);
+    }
+
+    private ZIndexSlotTree(SlotColumns nodes, int root, int used, int free) {
+        this.nodes = nodes;
+        this.root = root;
+        this.used = used;
+        this.free = free;
+    }
+
+    /**
+     * Receiver of slots walked in order of Z index
+     */
+    @FunctionalInterface
+    interface SlotConsumer {
+        void accept(int slot, int zIndex);
+    }
+
+    /**
+     * Inserts new slot with given Z index.
+     * Z index must not be already taken by other slot.
+     * @param z unique Z index of slot
+     * @return slot holding Z index
+     */
+    int insert(int z) {
+        int node = allocate(z);
+        if (root == NIL) {
+            root = node;
+            return node;
+        }
+
+        int p = root;
+        while (true) {
+            pushDown(p);
+            nodes.set(p, SIZE, nodes.get(p, SIZE) + 1);
+            if (z < zIndex(p)) {
+                if (left(p) == NIL) {
+                    nodes.set(p, LEFT, node);
+                    break;
+                }
+                p = left(p);
+            } else {
+                if (right(p) == NIL) {
+                    nodes.set(p, RIGHT, node);
+                    break;
+                }
+                p = right(p);
+            }
+        }
+        nodes.set(node, PARENT, p);
+
+        while (parent(node) != NIL && priority(parent(node)) < priority(node)) {
+            rotateUp(node);
+        }
+        return node;
+    }
+
+    /**
+     * Removes slot from tree, slot may be given again by insert.
+     * @param node slot returned by insert
+     */
+    void remove(int node) {
+        while (left(node) != NIL || right(node) != NIL) {
+            if (left(node) == NIL || (right(node) != NIL && priority(right(node)) > priority(left(node)))) {
+                rotateUp(right(node));
+            } else {
+                rotateUp(left(node));
+            }
+        }
+
+        replaceChild(parent(node), node, NIL);
+        for (int ancestor = parent(node); ancestor != NIL; ancestor = parent(ancestor)) {
+            nodes.set(ancestor, SIZE, nodes.get(ancestor, SIZE) - 1);
+        }
+        nodes.set(node, PARENT, NIL);
+        nodes.set(node, RIGHT, free);
+        free = node;
+    }
+
+    /**
+     * Computes actual Z index of slot applying shifts pending in its ancestors.
+     * Costs O(log n).
+     * @param node slot returned by insert
+     * @return Z index of slot
+     */
+    int zIndexOf(int node) {
+        int z = zIndex(node);
+        int depth = 0;
+        for (int ancestor = parent(node); ancestor != NIL; ancestor = parent(ancestor)) {
+            checkDepth(++depth);
+            z += pendingShift(ancestor);
+        }
+        return z;
+    }
+
+    /**
+     * Checks whether Z index is taken by any slot.
+     * @param z Z index to look for
+     * @return true when Z index is taken
+     */
+    boolean contains(int z) {
+        int node = root;
+        int pending = 0;
+        int depth = 0;
+        while (node != NIL) {
+            checkDepth(++depth);
+            int nodeZIndex = zIndex(node) + pending;
+            if (nodeZIndex == z) return true;
+            pending += pendingShift(node);
+            node = z < nodeZIndex ? left(node) : right(node);
+        }
+        return false;
+    }
+
+    /**
+     * Finds the highest Z index walking right edge of tree. Costs O(log n).
+     * @return max Z index or empty value for empty tree
+     */
+    OptionalInt maxZIndex() {
+        if (root == NIL) return OptionalInt.empty();
+
+        int node = root;
+        int pending = 0;
+        while (right(node) != NIL) {
+            pending += pendingShift(node);
+            node = right(node);
+        }
+        return OptionalInt.of(zIndex(node) + pending);
+    }
+
+    /**
+     * Increments Z index of every slot with Z index greater or equal given one.
+     * Costs O(log n).
+     * @param z lowest Z index to increment
+     */
+    void shift(int z) {
+        int node = root;
+        while (node != NIL) {
+            pushDown(node);
+            if (zIndex(node) >= z) {
+                nodes.set(node, Z_INDEX, zIndex(node) + 1);
+                shiftSubtree(right(node), 1);
+                node = left(node);
+            } else {
+                node = right(node);
+            }
+        }
+    }
+
+    /**
+     * Passes slots ordered by Z index to consumer, skipping first offset slots.
+     * Costs O(log n + limit).
+     * @param offset number of slots to skip
+     * @param limit max number of slots to pass
+     * @param consumer receiver of slots and their Z indexes
+     */
+    void forEach(int offset, int limit, SlotConsumer consumer) {
+        if (limit <= 0 || offset >= size()) return;
+
+        Path path = new Path();
+        int node = root;
+        int pending = 0;
+        int rank = offset;
+        int depth = 0;
+        while (node != NIL) {
+            checkDepth(++depth);
+            int leftSize = sizeOf(left(node));
+            if (rank < leftSize) {
+                path.push(node, pending);
+                pending += pendingShift(node);
+                node = left(node);
+            } else if (rank > leftSize) {
+                rank -= leftSize + 1;
+                pending += pendingShift(node);
+                node = right(node);
+            } else {
+                path.push(node, pending);
+                break;
+            }
+        }
+
+        walk(path, limit, consumer);
+    }
+
+    /**
+     * Passes slots with Z index greater than given one ordered by Z index to consumer.
+     * Costs O(log n + limit).
+     * @param z Z index to start after
+     * @param limit max number of slots to pass
+     * @param consumer receiver of slots and their Z indexes
+     */
+    void forEachAfter(int z, int limit, SlotConsumer consumer) {
+        Path path = new Path();
+        int node = root;
+        int pending = 0;
+        int depth = 0;
+        while (node != NIL) {
+            checkDepth(++depth);
+            if (zIndex(node) + pending > z) {
+                path.push(node, pending);
+                pending += pendingShift(node);
+                node = left(node);
+            } else {
+                pending += pendingShift(node);
+                node = right(node);
+            }
+        }
+
+        walk(path, limit, consumer);
+    }
+
+    /**
+     * @return number of slots in tree
+     */
+    int size() {
+        return sizeOf(root);
+    }
+
+    /**
+     * @return number of slots ever given, every slot is lower than it
+     */
+    int used() {
+        return used;
+    }
+
+    /**
+     * @return length of arrays, callers keep their columns at least that long
+     */
+    int capacity() {
+        return nodes.capacity();
+    }
+
+    /**
+     * @return root slot, NIL for empty tree
+     */
+    int root() {
+        return root;
+    }
+
+    /**
+     * @return head of list of removed slots
+     */
+    int free() {
+        return free;
+    }
+
+    /**
+     * Copies tree to heap with bulk copy of its columns, copy is read after lock is released
+     * @return independent tree with the same slots
+     */
+    ZIndexSlotTree copy() {
+        return new ZIndexSlotTree(nodes.copy(used), root, used, free);
+    }
+
+    /**
+     * Removes all slots keeping allocated arrays.
+     */
+    void clear() {
+        root = NIL;
+        used = 0;
+        free = NIL;
+    }
+
+    /**
+     * Replaces content of tree with slots of ascending unique Z indexes,
+     * slot of i-th Z index is i. Builds balanced tree in O(n) instead of n inserts.
+     * @param zIndexes ascending Z indexes
+     * @param n number of Z indexes to take
+     */
+    void build(int[] zIndexes, int n) {
+        clear();
+        int capacity = nodes.capacity();
+        while (capacity < n) capacity *= 2;
+        if (capacity > nodes.capacity()) nodes.grow(capacity);
+        used = n;
+        root = build(zIndexes, 0, n, 0, NIL, ZIndexTree.priorityBounds(n));
+    }
+
+    private int allocate(int z) {
+        int node;
+        if (free != NIL) {
+            node = free;
+            free = right(node);
+        } else {
+            if (used == nodes.capacity()) grow();
+            node = used++;
+        }
+        nodes.set(node, LEFT, NIL);
+        nodes.set(node, RIGHT, NIL);
+        nodes.set(node, PARENT, NIL);
+        nodes.set(node, SIZE, 1);
+        nodes.set(node, PRIORITY, ThreadLocalRandom.current().nextInt());
+        nodes.set(node, Z_INDEX, z);
+        nodes.set(node, SHIFT, 0);
+        return node;
+    }
+
+    private int build(int[] zIndexes, int from, int to, int depth, int parent, long[] bounds) {
+        if (from >= to) return NIL;
+
+        int node = (from + to) >>> 1;
+        nodes.set(node, PARENT, parent);
+        nodes.set(node, SIZE, to - from);
+        nodes.set(node, PRIORITY, ZIndexTree.buildPriority(bounds, depth));
+        nodes.set(node, Z_INDEX, zIndexes[node]);
+        nodes.set(node, SHIFT, 0);
+        nodes.set(node, LEFT, build(zIndexes, from, node, depth + 1, node, bounds));
+        nodes.set(node, RIGHT, build(zIndexes, node + 1, to, depth + 1, node, bounds));
+        return node;
+    }
+
+    private void grow() {
+        nodes.grow(nodes.capacity() * 2);
+    }
+
+    /**
+     * Passes slots in order starting from the top of path
+     */
+    private void walk(Path path, int limit, SlotConsumer consumer) {
+        for (int passed = 0; !path.isEmpty() && passed < limit; passed++) {
+            int nodePending = path.peekPending();
+            int next = path.pop();
+            consumer.accept(next, zIndex(next) + nodePending);
+            pushLeftPath(path, right(next), nodePending + pendingShift(next));
+        }
+    }
+
+    private void pushLeftPath(Path path, int node, int pending) {
+        int depth = 0;
+        while (node != NIL) {
+            checkDepth(++depth);
+            path.push(node, pending);
+            pending += pendingShift(node);
+            node = left(node);
+        }
+    }
+
+    /**
+     * Applies shift pending in slot to its children.
+     */
+    private void pushDown(int node) {
+        if (pendingShift(node) != 0) {
+            shiftSubtree(left(node), pendingShift(node));
+            shiftSubtree(right(node), pendingShift(node));
+            nodes.set(node, SHIFT, 0);
+        }
+    }
+
+    private void shiftSubtree(int node, int delta) {
+        if (node != NIL) {
+            nodes.set(node, Z_INDEX, zIndex(node) + delta);
+            nodes.set(node, SHIFT, pendingShift(node) + delta);
+        }
+    }
+
+    /**
+     * Moves slot one level up keeping order of slots.
+     */
+    private void rotateUp(int node) {
+        int p = parent(node);
+        pushDown(p);
+        pushDown(node);
+        if (node == left(p)) {
+            nodes.set(p, LEFT, right(node));
+            if (right(node) != NIL) nodes.set(right(node), PARENT, p);
+            nodes.set(node, RIGHT, p);
+        } else {
+            nodes.set(p, RIGHT, left(node));
+            if (left(node) != NIL) nodes.set(left(node), PARENT, p);
+            nodes.set(node, LEFT, p);
+        }
+
+        replaceChild(parent(p), p, node);
+        nodes.set(node, PARENT, parent(p));
+        nodes.set(p, PARENT, node);
+
+        nodes.set(p, SIZE, sizeOf(left(p)) + sizeOf(right(p)) + 1);
+        nodes.set(node, SIZE, sizeOf(left(node)) + sizeOf(right(node)) + 1);
+    }
+
+    private void replaceChild(int p, int child, int replacement) {
+        if (p == NIL) {
+            root = replacement;
+        } else if (left(p) == child) {
+            nodes.set(p, LEFT, replacement);
+        } else {
+            nodes.set(p, RIGHT, replacement);
+        }
+    }
+
+    private int left(int node) {
+        return nodes.get(node, LEFT);
+    }
+
+    private int right(int node) {
+        return nodes.get(node, RIGHT);
+    }
+
+    private int parent(int node) {
+        return nodes.get(node, PARENT);
+    }
+
+    private int priority(int node) {
+        return nodes.get(node, PRIORITY);
+    }
+
+    private int zIndex(int node) {
+        return nodes.get(node, Z_INDEX);
+    }
+
+    private int pendingShift(int node) {
+        return nodes.get(node, SHIFT);
+    }
+
+    private static void checkDepth(int depth) {
+        if (depth > MAX_DEPTH) throw new ConcurrentModificationException();
+    }
+
+    private int sizeOf(int node) {
+        return node == NIL ? 0 : nodes.get(node, SIZE);
+    }
+
+    /**
+     * Stack of slots with shifts pending above them,
+     * used for in-order walking without modifying tree
+     */
+    private static final class Path {
+        private int[] nodes = new int[32];
+        private int[] pending = new int[32];
+        private int size;
+
+        void push(int node, int nodePending) {
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size * 2);
+                pending = Arrays.copyOf(pending, size * 2);
+            }
+            nodes[size] = node;
+            pending[size++] = nodePending;
+        }
+
+        int peekPending() {
+            return pending[size - 1];
+        }
+
+        int pop() {
+            return nodes[--size];
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+    }
+}
@@ -0,0 +1,456 @@
+package com.miro.dev.widgets.repository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Order statistic tree (treap) of values ordered by unique Z index.
+ * Every node knows the size of its subtree, so position lookups
+ * for paging take O(log n) instead of walking the whole ordered set.
+ * Shifting of Z indexes is applied lazily: node keeps its Z index
+ * relative to shifts pending in its ancestors, so shift of any range
+ * touches only one path of the tree.
+ * Not thread safe: callers guard it with their own lock.
+ * Read operations do not modify tree, so they may run concurrently.
+ * They may also run optimistically during writes: then result is garbage
+ * and ConcurrentModificationException may be thrown, so caller must validate result.
+ * @param <V> type of stored value
+ */
+class ZIndexTree<V> {
+
+    /**
+     * Depth of tree that is never reached by consistent treap,
+     * reaching it means that tree was modified during optimistic read
+     */
+    private static final int MAX_DEPTH = 1024;
+
+    /**
+     * Node of tree holding value and its Z index
+     * @param <V> type of stored value
+     */
+    static final class Node<V> {
+        private volatile V value;
+        private final int priority;
+        /**
+         * Z index without shifts pending in ancestors
+         */
+        private int zIndex;
+        /**
+         * Shift pending for all descendants of node
+         */
+        private int shift;
+        private int size = 1;
+        private Node<V> left;
+        private Node<V> right;
+        private Node<V> parent;
+
+        private Node(V value, int zIndex, int priority) {
+            this.value = value;
+            this.zIndex = zIndex;
+            this.priority = priority;
+        }
+
+        V getValue() {
+            return value;
+        }
+
+        /**
+         * Replaces value keeping its place in tree
+         * @param value new value
+         */
+        void setValue(V value) {
+            this.value = value;
+        }
+    }
+
+    /**
+     * Root of tree, null for empty tree
+     */
+    private Node<V> root;
+
+    /**
+     * Inserts value with given Z index.
+     * Z index must not be already taken by other node.
+     * @param zIndex unique Z index of value
+     * @param value value to store
+     * @return node holding value
+     */
+    Node<V> insert(int zIndex, V value) {
+        Node<V> node = new Node<>(value, zIndex, ThreadLocalRandom.current().nextInt());
+        if (root == null) {
+            root = node;
+            return node;
+        }
+
+        Node<V> parent = root;
+        while (true) {
+            pushDown(parent);
+            parent.size++;
+            if (zIndex < parent.zIndex) {
+                if (parent.left == null) {
+                    parent.left = node;
+                    break;
+                }
+                parent = parent.left;
+            } else {
+                if (parent.right == null) {
+                    parent.right = node;
+                    break;
+                }
+                parent = parent.right;
+            }
+        }
+        node.parent = parent;
+
+        while (node.parent != null && node.parent.priority < node.priority) {
+            rotateUp(node);
+        }
+        return node;
+    }
+
+    /**
+     * Removes node from tree.
+     * @param node node returned by insert
+     */
+    void remove(Node<V> node) {
+        while (node.left != null || node.right != null) {
+            if (node.left == null || (node.right != null && node.right.priority > node.left.priority)) {
+                rotateUp(node.right);
+            } else {
+                rotateUp(node.left);
+            }
+        }
+
+        replaceChild(node.parent, node, null);
+        for (Node<V> ancestor = node.parent; ancestor != null; ancestor = ancestor.parent) {
+            ancestor.size--;
+        }
+        node.parent = null;
+    }
+
+    /**
+     * Computes actual Z index of node applying shifts pending in its ancestors.
+     * Costs O(log n).
+     * @param node node returned by insert
+     * @return Z index of node
+     */
+    int zIndexOf(Node<V> node) {
+        int zIndex = node.zIndex;
+        int depth = 0;
+        for (Node<V> ancestor = node.parent; ancestor != null; ancestor = ancestor.parent) {
+            checkDepth(++depth);
+            zIndex += ancestor.shift;
+        }
+        return zIndex;
+    }
+
+    /**
+     * Checks whether Z index is taken by any node.
+     * @param zIndex Z index to look for
+     * @return true when Z index is taken
+     */
+    boolean contains(int zIndex) {
+        Node<V> node = root;
+        int pending = 0;
+        while (node != null) {
+            int nodeZIndex = node.zIndex + pending;
+            if (nodeZIndex == zIndex) return true;
+            pending += node.shift;
+            node = zIndex < nodeZIndex ? node.left : node.right;
+        }
+        return false;
+    }
+
+    /**
+     * Finds the highest Z index walking right edge of tree. Costs O(log n).
+     * @return max Z index or empty value for empty tree
+     */
+    OptionalInt maxZIndex() {
+        if (root == null) return OptionalInt.empty();
+
+        Node<V> node = root;
+        int pending = 0;
+        while (node.right != null) {
+            pending += node.shift;
+            node = node.right;
+        }
+        return OptionalInt.of(node.zIndex + pending);
+    }
+
+    /**
+     * Increments Z index of every node with Z index greater or equal given one.
+     * Relative order of nodes is preserved, so tree shape stays valid.
+     * Whole right subtrees are shifted lazily, so it costs O(log n).
+     * @param zIndex lowest Z index to increment
+     */
+    void shift(int zIndex) {
+        Node<V> node = root;
+        while (node != null) {
+            pushDown(node);
+            if (node.zIndex >= zIndex) {
+                node.zIndex++;
+                shiftSubtree(node.right, 1);
+                node = node.left;
+            } else {
+                node = node.right;
+            }
+        }
+    }
+
+    /**
+     * Passes values ordered by Z index to consumer, skipping first offset values.
+     * Costs O(log n + limit).
+     * @param offset number of values to skip
+     * @param limit max number of values to pass
+     * @param consumer receiver of values and their Z indexes
+     */
+    void forEach(int offset, int limit, ObjIntConsumer<V> consumer) {
+        if (limit <= 0 || offset >= size()) return;
+
+        Path<V> path = new Path<>();
+        Node<V> node = root;
+        int pending = 0;
+        int rank = offset;
+        int depth = 0;
+        while (node != null) {
+            checkDepth(++depth);
+            int leftSize = size(node.left);
+            if (rank < leftSize) {
+                path.push(node, pending);
+                pending += node.shift;
+                node = node.left;
+            } else if (rank > leftSize) {
+                rank -= leftSize + 1;
+                pending += node.shift;
+                node = node.right;
+            } else {
+                path.push(node, pending);
+                break;
+            }
+        }
+
+        walk(path, limit, consumer);
+    }
+
+    /**
+     * Passes values with Z index greater than given one ordered by Z index to consumer.
+     * Seeks directly to the first value, so it costs O(log n + limit).
+     * @param zIndex Z index to start after
+     * @param limit max number of values to pass
+     * @param consumer receiver of values and their Z indexes
+     */
+    void forEachAfter(int zIndex, int limit, ObjIntConsumer<V> consumer) {
+        Path<V> path = new Path<>();
+        Node<V> node = root;
+        int pending = 0;
+        int depth = 0;
+        while (node != null) {
+            checkDepth(++depth);
+            if (node.zIndex + pending > zIndex) {
+                path.push(node, pending);
+                pending += node.shift;
+                node = node.left;
+            } else {
+                pending += node.shift;
+                node = node.right;
+            }
+        }
+
+        walk(path, limit, consumer);
+    }
+
+    /**
+     * @return number of nodes in tree
+     */
+    int size() {
+        return size(root);
+    }
+
+    /**
+     * Removes all nodes.
+     */
+    void clear() {
+        root = null;
+    }
+
+    /**
+     * Replaces content of tree with values ordered by ascending unique Z indexes.
+     * Builds balanced tree in O(n) instead of n inserts.
+     * @param zIndexes ascending Z indexes of values
+     * @param values values in order of Z indexes
+     * @return nodes holding values in order of Z indexes
+     */
+    List<Node<V>> build(int[] zIndexes, List<V> values) {
+        List<Node<V>> nodes = new ArrayList<>(values.size());
+        root = build(zIndexes, values, 0, values.size(), 0, priorityBounds(values.size()), nodes);
+        return nodes;
+    }
+
+    /**
+     * Gives bounds of priority bands by depth for balanced tree of n nodes.
+     * Every depth takes priorities from its own band below bands of upper depths,
+     * band width is proportional to number of nodes at depth, so later inserts
+     * with uniform random priority land at the same depths as in random treap.
+     * @param n number of nodes in tree
+     * @return bounds, band of depth d is (bounds[d + 1], bounds[d]]
+     */
+    static long[] priorityBounds(int n) {
+        long[] bounds = new long[Integer.SIZE + 1];
+        for (int depth = 0; depth < bounds.length; depth++) {
+            long above = Math.min((1L << depth) - 1, n);
+            bounds[depth] = Integer.MAX_VALUE - (long) ((double) above / Math.max(n, 1) * (1L << Integer.SIZE));
+        }
+        return bounds;
+    }
+
+    /**
+     * Gives random priority of node at given depth of balanced tree
+     * @param bounds bounds returned by priorityBounds
+     * @param depth depth of node, 0 for root
+     * @return priority of node
+     */
+    static int buildPriority(long[] bounds, int depth) {
+        return (int) ThreadLocalRandom.current().nextLong(bounds[depth + 1] + 1, bounds[depth] + 1);
+    }
+
+    private Node<V> build(int[] zIndexes, List<V> values, int from, int to, int depth,
+                          long[] bounds, List<Node<V>> nodes) {
+        if (from >= to) return null;
+
+        int middle = (from + to) >>> 1;
+        Node<V> left = build(zIndexes, values, from, middle, depth + 1, bounds, nodes);
+        Node<V> node = new Node<>(values.get(middle), zIndexes[middle], buildPriority(bounds, depth));
+        nodes.add(node);
+        Node<V> right = build(zIndexes, values, middle + 1, to, depth + 1, bounds, nodes);
+
+        node.left = left;
+        node.right = right;
+        if (left != null) left.parent = node;
+        if (right != null) right.parent = node;
+        node.size = to - from;
+        return node;
+    }
+
+    /**
+     * Passes values in order starting from the top of path
+     */
+    private void walk(Path<V> path, int limit, ObjIntConsumer<V> consumer) {
+        for (int passed = 0; !path.isEmpty() && passed < limit; passed++) {
+            int nodePending = path.peekPending();
+            Node<V> next = path.pop();
+            consumer.accept(next.value, next.zIndex + nodePending);
+            pushLeftPath(path, next.right, nodePending + next.shift);
+        }
+    }
+
+    private void pushLeftPath(Path<V> path, Node<V> node, int pending) {
+        int depth = 0;
+        while (node != null) {
+            checkDepth(++depth);
+            path.push(node, pending);
+            pending += node.shift;
+            node = node.left;
+        }
+    }
+
+    /**
+     * Applies shift pending in node to its children.
+     */
+    private void pushDown(Node<V> node) {
+        if (node.shift != 0) {
+            shiftSubtree(node.left, node.shift);
+            shiftSubtree(node.right, node.shift);
+            node.shift = 0;
+        }
+    }
+
+    private void shiftSubtree(Node<V> node, int shift) {
+        if (node != null) {
+            node.zIndex += shift;
+            node.shift += shift;
+        }
+    }
+
+    /**
+     * Moves node one level up keeping order of nodes.
+     */
+    private void rotateUp(Node<V> node) {
+        Node<V> parent = node.parent;
+        pushDown(parent);
+        pushDown(node);
+        if (node == parent.left) {
+            parent.left = node.right;
+            if (node.right != null) node.right.parent = parent;
+            node.right = parent;
+        } else {
+            parent.right = node.left;
+            if (node.left != null) node.left.parent = parent;
+            node.left = parent;
+        }
+
+        replaceChild(parent.parent, parent, node);
+        node.parent = parent.parent;
+        parent.parent = node;
+
+        parent.size = size(parent.left) + size(parent.right) + 1;
+        node.size = size(node.left) + size(node.right) + 1;
+    }
+
+    private void replaceChild(Node<V> parent, Node<V> child, Node<V> replacement) {
+        if (parent == null) {
+            root = replacement;
+        } else if (parent.left == child) {
+            parent.left = replacement;
+        } else {
+            parent.right = replacement;
+        }
+    }
+
+    private static void checkDepth(int depth) {
+        if (depth > MAX_DEPTH) throw new ConcurrentModificationException();
+    }
+
+    private static int size(Node<?> node) {
+        return node == null ? 0 : node.size;
+    }
+
+    /**
+     * Stack of nodes with shifts pending above them,
+     * used for in-order walking without modifying tree
+     * @param <V> type of stored value
+     */
+    private static final class Path<V> {
+        private Object[] nodes = new Object[32];
+        private int[] pending = new int[32];
+        private int size;
+
+        void push(Node<V> node, int nodePending) {
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size * 2);
+                pending = Arrays.copyOf(pending, size * 2);
+            }
+            nodes[size] = node;
+            pending[size++] = nodePending;
+        }
+
+        int peekPending() {
+            return pending[size - 1];
+        }
+
+        @SuppressWarnings("unchecked")
+        Node<V> pop() {
+            Node<V> node = (Node<V>) nodes[--size];
+            nodes[size] = null;
+            return node;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+    }
+}
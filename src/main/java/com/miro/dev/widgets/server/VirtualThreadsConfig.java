@@ -0,0 +1,58 @@
+package com.miro.dev.widgets.server;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Class for serving requests on virtual threads, enabled by widgets.server.threads=virtual.
+ * Every request to Tomcat and every async body, like stream of widgets, gets its own virtual thread,
+ * so writers waiting for locks or fsync of write-ahead log do not exhaust pool of platform threads.
+ * Virtual threads require Java 21, executor is looked up at runtime, so application is still built for Java 11
+ * and start fails on older Java instead of silently falling back to platform threads.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "widgets.server.threads", havingValue = "virtual")
+public class VirtualThreadsConfig implements WebMvcConfigurer {
+
+    private final ExecutorService executor = newVirtualThreadPerTaskExecutor();
+
+    @Bean
+    WebServerFactoryCustomizer<TomcatServletWebServerFactory> virtualThreadsCustomizer() {
+        return factory -> factory.addProtocolHandlerCustomizers(handler -> handler.setExecutor(executor));
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(new TaskExecutorAdapter(executor));
+    }
+
+    @PreDestroy
+    public void close() {
+        executor.shutdown();
+    }
+
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            ExecutorService executor = (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor")
+                    .invoke(null);
+            log.info("Requests are served on virtual threads");
+            return executor;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Virtual threads require Java 21, running on "
+                    + System.getProperty("java.version"), e);
+        }
+    }
+}
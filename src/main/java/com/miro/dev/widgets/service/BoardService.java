@@ -0,0 +1,56 @@
+package com.miro.dev.widgets.service;
+
+import com.miro.dev.widgets.exceptions.BoardLimitException;
+import com.miro.dev.widgets.exceptions.BoardNotFoundException;
+import com.miro.dev.widgets.exceptions.InvalidBoardException;
+import com.miro.dev.widgets.repository.BoardRouter;
+import org.springframework.stereotype.Service;
+
+import java.util.Objects;
+import java.util.regex.Pattern;
+
+/**
+ * Service that gives widget service of board,
+ * and checks id of board
+ */
+@Service
+public class BoardService {
+
+    /**
+     * Ids of boards are safe to use as names of files and path segments
+     */
+    private static final Pattern BOARD_ID = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+
+    private final BoardRouter router;
+
+    public BoardService(BoardRouter router) {
+        this.router = router;
+    }
+
+    /**
+     * Gives service of widgets of existing board. Checks id of board.
+     * @param boardId id of board
+     * @return service working with repository of board
+     * @throws BoardNotFoundException when board is not created yet
+     */
+    public WidgetService board(String boardId) {
+        check(boardId);
+        return new WidgetService(router.find(boardId).orElseThrow(BoardNotFoundException::new));
+    }
+
+    /**
+     * Gives service of widgets of board, creates board when it is not created yet. Checks id of board.
+     * Used only by writes which create widgets, so reads of random ids do not create boards.
+     * @param boardId id of board
+     * @return service working with repository of board
+     * @throws BoardLimitException when board is not created yet and no more boards may be created
+     */
+    public WidgetService boardOrCreate(String boardId) {
+        check(boardId);
+        return new WidgetService(router.route(boardId));
+    }
+
+    private static void check(String boardId) {
+        if (Objects.isNull(boardId) || !BOARD_ID.matcher(boardId).matches()) throw new InvalidBoardException();
+    }
+}
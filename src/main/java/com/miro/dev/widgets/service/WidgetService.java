@@ -1,14 +1,29 @@
 package com.miro.dev.widgets.service;
 
+import com.miro.dev.widgets.exceptions.InvalidAreaException;
+import com.miro.dev.widgets.exceptions.InvalidBatchException;
 import com.miro.dev.widgets.exceptions.InvalidWidgetException;
+import com.miro.dev.widgets.exceptions.VersionConflictException;
+import com.miro.dev.widgets.exceptions.VersionExpiredException;
 import com.miro.dev.widgets.exceptions.WidgetNotFoundException;
+import com.miro.dev.widgets.model.Area;
+import com.miro.dev.widgets.model.BatchOperation;
+import com.miro.dev.widgets.model.BatchResult;
+import com.miro.dev.widgets.model.Cursor;
 import com.miro.dev.widgets.model.Limit;
 import com.miro.dev.widgets.model.Widget;
+import com.miro.dev.widgets.model.WidgetChanges;
+import com.miro.dev.widgets.model.WidgetEvent;
+import com.miro.dev.widgets.model.WidgetPage;
 import com.miro.dev.widgets.repository.WidgetRepository;
+import com.miro.dev.widgets.repository.WidgetSnapshot;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
 
 /**
@@ -19,8 +34,39 @@ import java.util.stream.Stream;
 @Service
 public class WidgetService {
 
+    /**
+     * Max number of operations in batch, batch holds write lock of repository while applied
+     */
+    static final int BATCH_MAX = 1000;
+
+    /**
+     * Page of widgets read from repository at once while streaming
+     */
+    private static final Limit STREAM_PAGE = new Limit(500, 0);
+
+    /**
+     * Max number of changes read from feed at once
+     */
+    private static final int CHANGES_MAX = 500;
+
+    /**
+     * Max number of changes shared copy of widgets may be behind board when it is given to new client,
+     * client reads changes following copy from feed
+     */
+    private static final long COPY_MAX_LAG = 1000;
+
     private final WidgetRepository repository;
 
+    /**
+     * The latest copy of widgets shared by clients following changes, guarded by copyLock
+     */
+    private WidgetSnapshot copy;
+
+    /**
+     * Held while copy is checked and taken, so clients reset at once wait for one copy instead of taking their own
+     */
+    private final ReentrantLock copyLock = new ReentrantLock();
+
     public WidgetService(WidgetRepository repository) {
         this.repository = repository;
     }
@@ -44,6 +90,87 @@ public class WidgetService {
         return repository.getAll(limit);
     }
 
+    /**
+     * Retrieves page of widgets following cursor.
+     * @param after cursor of previous page, null for the first page
+     * @param limit entity that holds limit
+     * @return page of widgets with cursor of the next page
+     */
+    public WidgetPage getPage(Cursor after, Limit limit) {
+        return repository.getPage(after, limit);
+    }
+
+    /**
+     * Walks all widgets in order of Z index page by page following cursors,
+     * so only one page is held in memory and write lock is never held for the whole walk.
+     * Widgets created or moved during walk may be missed or seen twice like with pages requested by client.
+     * @param consumer receives pages in order of Z index
+     */
+    public void forEachPage(Consumer<List<Widget>> consumer) {
+        Cursor cursor = null;
+        do {
+            WidgetPage page = repository.getPage(cursor, STREAM_PAGE);
+            consumer.accept(page.getWidgets());
+            cursor = page.getNext();
+        } while (Objects.nonNull(cursor));
+    }
+
+    /**
+     * Walks point in time copy of all widgets in order of Z index.
+     * Copy is shared by callers and taken again only when it is older than required,
+     * so many clients reset at once lock store for one copy, persistence of store is not involved.
+     * @param after sequence number of change copy has to cover, copy of new client
+     *              may be behind board by COPY_MAX_LAG changes
+     * @param consumer receives widgets in order of Z index
+     * @return sequence number of the last change covered by copy
+     */
+    public long forEachWidget(long after, Consumer<Widget> consumer) {
+        WidgetSnapshot snapshot = sharedCopy(Math.max(after, getVersion() - COPY_MAX_LAG));
+        for (int i = 0; i < snapshot.size(); i++) {
+            consumer.accept(snapshot.toWidget(i));
+        }
+        return snapshot.getSequence();
+    }
+
+    /**
+     * @return version of board, sequence number of its last change
+     */
+    public long getVersion() {
+        return repository.changes().sequence();
+    }
+
+    /**
+     * Retrieves changes of widgets following given sequence number, waits for them when there are none yet.
+     * @param sequence sequence number of the last change seen by client
+     * @param timeout max time to wait in milliseconds
+     * @return changes in order of sequence numbers, empty when none came in time,
+     * RESET when widgets have to be read again
+     * @throws InterruptedException when interrupted while waiting
+     */
+    public List<WidgetEvent> getChanges(long sequence, long timeout) throws InterruptedException {
+        return repository.changes().read(sequence, CHANGES_MAX, timeout);
+    }
+
+    /**
+     * Retrieves widgets changed after given version, ids of deleted widgets and shifts of Z indexes.
+     * @param version version returned by previous call or version of widget
+     * @return current state of changed widgets with version of board
+     */
+    public WidgetChanges getChangesSince(long version) {
+        return repository.getChangesSince(version).orElseThrow(VersionExpiredException::new);
+    }
+
+    /**
+     * Retrieves widgets intersecting area. Checks area for mandatory values.
+     * @param area area of board
+     * @param limit entity that holds limit and offset
+     * @return list of widgets sorted by Z index
+     */
+    public List<Widget> getAllInArea(Area area, Limit limit) {
+        check(area);
+        return repository.getAllInArea(area, limit);
+    }
+
     /**
      * Deletes widget by id.
      * @param id of widget
@@ -66,8 +193,11 @@ public class WidgetService {
 
     /**
      * Updates widget. Checks widget for mandatory values.
+     * Widget with version is updated only while stored widget has that version,
+     * so client updates what it has read and retries with the current version on conflict.
      * @param widget instance of Widget
      * @return instance of updated Widget
+     * @throws VersionConflictException when widget was changed after given version
      */
     public Widget update(Widget widget) {
         getById(widget.getId());
@@ -75,6 +205,73 @@ public class WidgetService {
         return repository.update(widget);
     }
 
+    /**
+     * Changes only values given in patch, Z index is kept when patch has none,
+     * so moving or resizing widget does not shift other widgets.
+     * Checks that given width and height are not negative.
+     * @param id of widget
+     * @param patch values to change, version when only that version of widget may be changed
+     * @return patched widget
+     * @throws VersionConflictException when widget was changed after given version
+     */
+    public Widget patch(Long id, Widget patch) {
+        if (Stream.of(patch.getWidth(), patch.getHeight())
+                .anyMatch(el -> Objects.nonNull(el) && el < 0)) throw new InvalidWidgetException();
+        return repository.patch(id, patch).orElseThrow(WidgetNotFoundException::new);
+    }
+
+    /**
+     * Applies batch of operations. Checks every operation first,
+     * then passes only valid ones to repository in one call.
+     * @param operations operations to apply
+     * @return results in order of operations
+     */
+    public List<BatchResult> batch(List<BatchOperation> operations) {
+        if (Objects.isNull(operations) || operations.size() > BATCH_MAX) throw new InvalidBatchException();
+
+        List<BatchOperation> valid = new ArrayList<>(operations.size());
+        for (BatchOperation operation : operations) {
+            if (isValid(operation)) valid.add(operation);
+        }
+
+        List<BatchResult> applied = valid.isEmpty() ? List.of() : repository.batch(valid);
+        List<BatchResult> results = new ArrayList<>(operations.size());
+        int next = 0;
+        for (BatchOperation operation : operations) {
+            results.add(isValid(operation) ? applied.get(next++) : BatchResult.invalid());
+        }
+        return results;
+    }
+
+    /**
+     * Check that operation of batch has all values required by its type
+     * @param operation operation of batch
+     * @return true when operation may be applied
+     */
+    private boolean isValid(BatchOperation operation) {
+        if (Objects.isNull(operation) || Objects.isNull(operation.getType())) return false;
+        switch (operation.getType()) {
+            case CREATE:
+                return Objects.nonNull(operation.getWidget()) && isValid(operation.getWidget());
+            case UPDATE:
+                return Objects.nonNull(operation.getWidget()) && Objects.nonNull(operation.getWidget().getId())
+                        && isValid(operation.getWidget());
+            case DELETE:
+                return Objects.nonNull(operation.getId());
+            default:
+                return false;
+        }
+    }
+
+    private boolean isValid(Widget widget) {
+        try {
+            check(widget);
+            return true;
+        } catch (InvalidWidgetException e) {
+            return false;
+        }
+    }
+
     /**
      * Check that widget has x, y, width and height,
      * and that width and height is not negative
@@ -87,4 +284,30 @@ public class WidgetService {
         if (Stream.of(widget.getWidth(), widget.getHeight())
                 .anyMatch(el -> el < 0)) throw new InvalidWidgetException();
     }
+
+    /**
+     * Check that area has both corners,
+     * and that first corner is not greater than second one
+     * @param area area of board
+     */
+    private void check(Area area) {
+        if (Stream.of(area.getX1(), area.getY1(), area.getX2(), area.getY2())
+                .anyMatch(Objects::isNull)) throw new InvalidAreaException();
+
+        if (area.getX1() > area.getX2() || area.getY1() > area.getY2()) throw new InvalidAreaException();
+    }
+
+    /**
+     * @param after sequence number of change copy has to cover
+     * @return shared copy covering the change, taken when the latest one does not
+     */
+    private WidgetSnapshot sharedCopy(long after) {
+        copyLock.lock();
+        try {
+            if (Objects.isNull(copy) || copy.getSequence() < after) copy = repository.copy();
+            return copy;
+        } finally {
+            copyLock.unlock();
+        }
+    }
 }
@@ -0,0 +1,36 @@
+package com.miro.dev.widgets.swagger;
+
+import io.swagger.models.Swagger;
+import org.springframework.stereotype.Component;
+import springfox.documentation.spi.DocumentationType;
+import springfox.documentation.swagger2.web.SwaggerTransformationContext;
+import springfox.documentation.swagger2.web.WebMvcSwaggerTransformationFilter;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Widgets of default board and of other boards share handler methods, so board id path variable
+ * is documented for both paths. Filter removes it from operations of paths without it.
+ */
+@Component
+public class BoardPathFilter implements WebMvcSwaggerTransformationFilter {
+
+    private static final String BOARD_ID = "boardId";
+
+    @Override
+    public Swagger transform(SwaggerTransformationContext<HttpServletRequest> context) {
+        Swagger swagger = context.getSpecification();
+        swagger.getPaths().forEach((path, operations) -> {
+            if (!path.contains("{" + BOARD_ID + "}")) {
+                operations.getOperations().forEach(operation ->
+                        operation.getParameters().removeIf(parameter -> BOARD_ID.equals(parameter.getName())));
+            }
+        });
+        return swagger;
+    }
+
+    @Override
+    public boolean supports(DocumentationType documentationType) {
+        return DocumentationType.SWAGGER_2.equals(documentationType);
+    }
+}
@@ -3,8 +3,12 @@ package com.miro.dev.widgets.api;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.miro.dev.widgets.controller.CustomErrorController;
+import com.miro.dev.widgets.model.BatchOperation;
+import com.miro.dev.widgets.model.BatchResult;
 import com.miro.dev.widgets.model.Limit;
 import com.miro.dev.widgets.model.Widget;
+import com.miro.dev.widgets.model.WidgetBinaryFormat;
+import com.miro.dev.widgets.repository.BoardRouter;
 import com.miro.dev.widgets.repository.WidgetRepository;
 import org.junit.Assert;
 import org.junit.Test;
@@ -13,20 +17,26 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.web.servlet.error.ErrorAttributes;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import static org.mockito.Mockito.mock;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @RunWith(SpringRunner.class)
-@SpringBootTest
+@SpringBootTest(properties = "widgets.events.duration-ms=200")
 @AutoConfigureMockMvc
 public class WidgetsApiTests {
     private static final String url = "/api/v1/widgets";
@@ -40,6 +50,9 @@ public class WidgetsApiTests {
     @Autowired
     private WidgetRepository widgetRepository;
 
+    @Autowired
+    private BoardRouter boardRouter;
+
     @Test
     public void testWhenSendPost_WidgetRepository_CreateWidget() throws Exception {
         // Arrange
@@ -729,6 +742,631 @@ public class WidgetsApiTests {
         Assert.assertNull(errorPath);
     }
 
+    @Test
+    public void testWhenSendGetAllWithArea_WidgetController_ResponseWithIntersectingWidgets() throws Exception {
+        // Arrange
+        widgetRepository.clear();
+        Widget widget = getWidget();
+        Widget widgetFar = getWidget();
+        widgetFar.setXIndex(5000);
+        widgetFar.setZIndex(56);
+
+        for (Widget toCreate : List.of(widget, widgetFar)) {
+            mockMvc.perform(post(url)
+                    .content(objectMapper.writeValueAsString(toCreate))
+                    .contentType(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isOk());
+        }
+
+        // Act
+        MockHttpServletResponse getResult = mockMvc.perform(get(url + "?x1=0&y1=0&x2=100&y2=100")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse();
+
+        // Assert
+        List<Widget> getResponded = objectMapper.readValue(getResult.getContentAsString(), new TypeReference<>(){});
+        Assert.assertEquals(1, getResponded.size());
+        Assert.assertEquals(1L, (long) getResponded.get(0).getId());
+    }
+
+    @Test
+    public void testWhenSendGetAllWithPartialArea_WidgetController_ResponseWithBadRequestStatus() throws Exception {
+        // Arrange
+        widgetRepository.clear();
+
+        // Act
+        int result = mockMvc.perform(get(url + "?x1=0&y1=0&x2=100")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andReturn()
+                .getResponse()
+                .getStatus();
+
+        // Assert
+        Assert.assertEquals(HttpStatus.BAD_REQUEST.value(), result);
+    }
+
+    @Test
+    public void testWhenSendGetAllWithCursor_WidgetController_ResponseWithNextPages() throws Exception {
+        // Arrange
+        widgetRepository.clear();
+        for (int i = 0; i < 3; i++) {
+            Widget widget = getWidget();
+            widget.setZIndex(null);
+            mockMvc.perform(post(url)
+                    .content(objectMapper.writeValueAsString(widget))
+                    .contentType(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isOk());
+        }
+
+        // Act
+        MockHttpServletResponse first = mockMvc.perform(get(url + "?limit=2")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse();
+        String cursor = first.getHeader("X-Next-Cursor");
+        MockHttpServletResponse second = mockMvc.perform(get(url + "?limit=2&cursor=" + cursor)
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse();
+
+        // Assert
+        List<Widget> firstResponded = objectMapper.readValue(first.getContentAsString(), new TypeReference<>(){});
+        List<Widget> secondResponded = objectMapper.readValue(second.getContentAsString(), new TypeReference<>(){});
+        Assert.assertNotNull(cursor);
+        Assert.assertEquals(2, firstResponded.size());
+        Assert.assertEquals(1, secondResponded.size());
+        Assert.assertEquals(3L, (long) secondResponded.get(0).getId());
+        Assert.assertNull(second.getHeader("X-Next-Cursor"));
+    }
+
+    @Test
+    public void testWhenSendGetAllWithInvalidCursor_WidgetController_ResponseWithBadRequestStatus() throws Exception {
+        // Arrange
+        widgetRepository.clear();
+
+        // Act
+        int result = mockMvc.perform(get(url + "?cursor=broken!")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andReturn()
+                .getResponse()
+                .getStatus();
+
+        // Assert
+        Assert.assertEquals(HttpStatus.BAD_REQUEST.value(), result);
+    }
+
+    @Test
+    public void testWhenSendBatch_WidgetRepository_ApplyOperations() throws Exception {
+        // Arrange
+        widgetRepository.clear();
+        Widget invalid = getWidget();
+        invalid.setHeight(-1);
+        List<BatchOperation> operations = List.of(
+                BatchOperation.builder().type(BatchOperation.Type.CREATE).widget(getWidget()).build(),
+                BatchOperation.builder().type(BatchOperation.Type.CREATE).widget(invalid).build(),
+                BatchOperation.builder().type(BatchOperation.Type.DELETE).id(100L).build());
+
+        // Act
+        MockHttpServletResponse result = mockMvc.perform(post(url + "/batch")
+                .content(objectMapper.writeValueAsString(operations))
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse();
+
+        // Assert
+        List<Map<String, Object>> responded = objectMapper.readValue(result.getContentAsString(), new TypeReference<>(){});
+        Assert.assertEquals(3, responded.size());
+        Assert.assertEquals(BatchResult.Status.OK.name(), responded.get(0).get("status"));
+        Assert.assertEquals(BatchResult.Status.INVALID.name(), responded.get(1).get("status"));
+        Assert.assertEquals(BatchResult.Status.NOT_FOUND.name(), responded.get(2).get("status"));
+        Assert.assertEquals(1, widgetRepository.getAll(Limit.defaultLimit()).size());
+    }
+
+    @Test
+    public void testWhenSendPostToBoards_WidgetController_KeepBoardsApart() throws Exception {
+        // Arrange
+        widgetRepository.clear();
+        Widget widget = getWidget();
+
+        // Act
+        Widget first = objectMapper.readValue(mockMvc.perform(post("/api/v1/boards/first/widgets")
+                .content(objectMapper.writeValueAsString(widget))
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString(), Widget.class);
+        Widget second = objectMapper.readValue(mockMvc.perform(post("/api/v1/boards/second/widgets")
+                .content(objectMapper.writeValueAsString(widget))
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString(), Widget.class);
+        MockHttpServletResponse result = mockMvc.perform(get("/api/v1/boards/first/widgets"))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse();
+
+        // Assert
+        List<Widget> responded = objectMapper.readValue(result.getContentAsString(), new TypeReference<>(){});
+        Assert.assertEquals(1L, (long) first.getId());
+        Assert.assertEquals(1L, (long) second.getId());
+        Assert.assertEquals(widget.getZIndex(), second.getZIndex());
+        Assert.assertEquals(List.of(first), responded);
+        Assert.assertEquals(0, widgetRepository.getAll(Limit.defaultLimit()).size());
+    }
+
+    @Test
+    public void testWhenSendDeleteToBoard_WidgetController_DeleteOnlyFromBoard() throws Exception {
+        // Arrange
+        widgetRepository.clear();
+        mockMvc.perform(post(url)
+                .content(objectMapper.writeValueAsString(getWidget()))
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/api/v1/boards/deleted/widgets")
+                .content(objectMapper.writeValueAsString(getWidget()))
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+
+        // Act
+        mockMvc.perform(delete("/api/v1/boards/deleted/widgets/1"))
+                .andExpect(status().isOk());
+
+        // Assert
+        mockMvc.perform(get("/api/v1/boards/deleted/widgets/1"))
+                .andExpect(status().isNotFound());
+        Assert.assertTrue(widgetRepository.getById(1L).isPresent());
+    }
+
+    @Test
+    public void testWhenSendReadsToUnknownBoard_WidgetController_ResponseWithNotFoundWithoutCreatingBoard() throws Exception {
+        // Act
+        int list = mockMvc.perform(get("/api/v1/boards/unknown/widgets"))
+                .andReturn()
+                .getResponse()
+                .getStatus();
+        int changes = mockMvc.perform(get("/api/v1/boards/unknown/widgets/changes?since=0"))
+                .andReturn()
+                .getResponse()
+                .getStatus();
+        int update = mockMvc.perform(put("/api/v1/boards/unknown/widgets")
+                .content(objectMapper.writeValueAsString(getWidget()))
+                .contentType(MediaType.APPLICATION_JSON))
+                .andReturn()
+                .getResponse()
+                .getStatus();
+
+        // Assert
+        Assert.assertEquals(HttpStatus.NOT_FOUND.value(), list);
+        Assert.assertEquals(HttpStatus.NOT_FOUND.value(), changes);
+        Assert.assertEquals(HttpStatus.NOT_FOUND.value(), update);
+        Assert.assertFalse(boardRouter.find("unknown").isPresent());
+    }
+
+    @Test
+    public void testWhenSendRequestWithInvalidBoard_WidgetController_ResponseWithBadRequestStatus() throws Exception {
+        // Act
+        int result = mockMvc.perform(get("/api/v1/boards/not.valid/widgets"))
+                .andExpect(status().isBadRequest())
+                .andReturn()
+                .getResponse()
+                .getStatus();
+
+        // Assert
+        Assert.assertEquals(HttpStatus.BAD_REQUEST.value(), result);
+    }
+
+    @Test
+    public void testWhenSendGetStream_WidgetController_StreamAllWidgetsAsLines() throws Exception {
+        // Arrange
+        widgetRepository.clear();
+        for (int i = 0; i < 600; i++) {
+            widgetRepository.create(getWidget());
+        }
+
+        // Act
+        MvcResult started = mockMvc.perform(get(url + "/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MockHttpServletResponse result = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse();
+
+        // Assert
+        Assert.assertEquals("application/x-ndjson", result.getContentType());
+        String[] lines = result.getContentAsString().split("\n");
+        Assert.assertEquals(600, lines.length);
+        Widget top = objectMapper.readValue(lines[599], Widget.class);
+        Assert.assertEquals(1L, (long) top.getId());
+        Assert.assertEquals(654, (int) top.getZIndex());
+    }
+
+    @Test
+    public void testWhenSendGetEventsWithoutSequence_WidgetController_ResetWithAllWidgets() throws Exception {
+        // Arrange
+        widgetRepository.clear();
+        widgetRepository.create(getWidget());
+        Widget bottom = widgetRepository.create(getWidget());
+        long sequence = widgetRepository.changes().sequence();
+
+        // Act
+        MvcResult started = mockMvc.perform(get(url + "/events"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MockHttpServletResponse result = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse();
+
+        // Assert
+        Assert.assertTrue(result.getContentType().startsWith("text/event-stream"));
+        List<Map<String, Object>> events = parseEvents(result.getContentAsString());
+        Assert.assertEquals(1, events.size());
+        Assert.assertEquals("RESET", events.get(0).get("type"));
+        Assert.assertEquals(sequence, ((Number) events.get(0).get("sequence")).longValue());
+        List<?> widgets = (List<?>) events.get(0).get("widgets");
+        Assert.assertEquals(2, widgets.size());
+        Assert.assertEquals(bottom.getId().intValue(), ((Map<?, ?>) widgets.get(0)).get("id"));
+        Assert.assertTrue(result.getContentAsString().contains("id: " + sequence + "\n"));
+    }
+
+    @Test
+    public void testWhenSendGetEventsWithLastEventId_WidgetController_StreamOnlyFollowingChanges() throws Exception {
+        // Arrange
+        widgetRepository.clear();
+        Widget widget = widgetRepository.create(getWidget());
+        long sequence = widgetRepository.changes().sequence();
+        widgetRepository.delete(widget.getId());
+
+        // Act
+        MvcResult started = mockMvc.perform(get(url + "/events").header("Last-Event-ID", sequence))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MockHttpServletResponse result = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse();
+
+        // Assert
+        List<Map<String, Object>> events = parseEvents(result.getContentAsString());
+        Assert.assertEquals(1, events.size());
+        Assert.assertEquals("DELETE", events.get(0).get("type"));
+        Assert.assertEquals(widget.getId().intValue(), events.get(0).get("id"));
+        Assert.assertTrue(result.getContentAsString().contains("id: " + (sequence + 1) + "\n"));
+    }
+
+    @Test
+    public void testWhenSendGetChangesSinceVersion_WidgetController_ResponseWithChangedAndDeletedWidgets() throws Exception {
+        // Arrange
+        widgetRepository.clear();
+        Widget deleted = widgetRepository.create(getWidget());
+        long version = widgetRepository.changes().sequence();
+        Widget created = widgetRepository.create(getWidget());
+        widgetRepository.delete(deleted.getId());
+
+        // Act
+        MockHttpServletResponse result = mockMvc.perform(get(url + "/changes?since=" + version))
+                .andReturn()
+                .getResponse();
+
+        // Assert
+        Assert.assertEquals(HttpStatus.OK.value(), result.getStatus());
+        Map<String, Object> changes = objectMapper.readValue(result.getContentAsString(),
+                new TypeReference<Map<String, Object>>() {});
+        Assert.assertEquals(widgetRepository.changes().sequence(), ((Number) changes.get("version")).longValue());
+        List<?> widgets = (List<?>) changes.get("widgets");
+        Assert.assertEquals(1, widgets.size());
+        Assert.assertEquals(created.getId().intValue(), ((Map<?, ?>) widgets.get(0)).get("id"));
+        Assert.assertEquals(List.of(deleted.getId().intValue()), changes.get("deleted"));
+        List<?> shifts = (List<?>) changes.get("shifts");
+        Assert.assertEquals(1, shifts.size());
+        Assert.assertEquals(created.getZIndex(), ((Map<?, ?>) shifts.get(0)).get("z"));
+        Assert.assertEquals(version + 1, ((Number) ((Map<?, ?>) shifts.get(0)).get("version")).longValue());
+    }
+
+    @Test
+    public void testWhenSendGetChangesSinceExpiredVersion_WidgetController_ResponseWithGoneStatus() throws Exception {
+        // Arrange
+        widgetRepository.create(getWidget());
+        long version = widgetRepository.changes().sequence();
+        widgetRepository.clear();
+
+        // Act
+        int result = mockMvc.perform(get(url + "/changes?since=" + version))
+                .andReturn()
+                .getResponse()
+                .getStatus();
+
+        // Assert
+        Assert.assertEquals(HttpStatus.GONE.value(), result);
+    }
+
+    @Test
+    public void testWhenSendGetByIdWithMatchingETag_WidgetController_ResponseWithNotModifiedStatus() throws Exception {
+        // Arrange
+        Widget widget = widgetRepository.create(getWidget());
+        String etag = mockMvc.perform(get(url + "/" + widget.getId()))
+                .andReturn()
+                .getResponse()
+                .getHeader(HttpHeaders.ETAG);
+
+        // Act
+        MockHttpServletResponse result = mockMvc.perform(get(url + "/" + widget.getId())
+                .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andReturn()
+                .getResponse();
+
+        // Assert
+        Assert.assertEquals("\"" + widget.getVersion() + "-" + widget.getZIndex() + "\"", etag);
+        Assert.assertEquals(HttpStatus.NOT_MODIFIED.value(), result.getStatus());
+        Assert.assertEquals(0, result.getContentLength());
+    }
+
+    @Test
+    public void testWhenSendGetByIdWithETagOfChangedWidget_WidgetController_ResponseWithWidget() throws Exception {
+        // Arrange
+        Widget widget = widgetRepository.create(getWidget());
+        String etag = "\"" + widget.getVersion() + "-" + widget.getZIndex() + "\"";
+        widget.setXIndex(100);
+        widgetRepository.update(widget);
+
+        // Act
+        MockHttpServletResponse result = mockMvc.perform(get(url + "/" + widget.getId())
+                .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andReturn()
+                .getResponse();
+
+        // Assert
+        Assert.assertEquals(HttpStatus.OK.value(), result.getStatus());
+        Assert.assertEquals(100, (int) objectMapper.readValue(result.getContentAsString(), Widget.class).getXIndex());
+        Assert.assertEquals("\"" + widget.getVersion() + "-" + widget.getZIndex() + "\"",
+                result.getHeader(HttpHeaders.ETAG));
+    }
+
+    @Test
+    public void testWhenSendGetByIdWithETagOfShiftedWidget_WidgetController_ResponseWithShiftedWidget() throws Exception {
+        // Arrange
+        Widget widget = widgetRepository.create(getWidget());
+        String etag = "\"" + widget.getVersion() + "-" + widget.getZIndex() + "\"";
+        widgetRepository.create(getWidget());
+
+        // Act
+        MockHttpServletResponse result = mockMvc.perform(get(url + "/" + widget.getId())
+                .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andReturn()
+                .getResponse();
+
+        // Assert
+        Assert.assertEquals(HttpStatus.OK.value(), result.getStatus());
+        Assert.assertEquals(widget.getZIndex() + 1,
+                (int) objectMapper.readValue(result.getContentAsString(), Widget.class).getZIndex());
+    }
+
+    @Test
+    public void testWhenSendGetAllWithETagOfBoard_WidgetController_ResponseWithNotModifiedUntilBoardChanged() throws Exception {
+        // Arrange
+        widgetRepository.create(getWidget());
+        String etag = mockMvc.perform(get(url + "?limit=10&offset=0"))
+                .andReturn()
+                .getResponse()
+                .getHeader(HttpHeaders.ETAG);
+
+        // Act
+        int notModified = mockMvc.perform(get(url + "?limit=10&offset=0").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andReturn()
+                .getResponse()
+                .getStatus();
+        widgetRepository.create(getWidget());
+        int changed = mockMvc.perform(get(url + "?limit=10&offset=0").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andReturn()
+                .getResponse()
+                .getStatus();
+
+        // Assert
+        Assert.assertEquals(HttpStatus.NOT_MODIFIED.value(), notModified);
+        Assert.assertEquals(HttpStatus.OK.value(), changed);
+    }
+
+    @Test
+    public void testWhenSendGetAllAcceptingBinary_WidgetController_ResponseWithBinaryWidgets() throws Exception {
+        // Arrange
+        widgetRepository.clear();
+        Widget widget = widgetRepository.create(getWidget());
+
+        // Act
+        MockHttpServletResponse result = mockMvc.perform(get(url + "?limit=10&offset=0")
+                .accept(WidgetBinaryFormat.MEDIA_TYPE))
+                .andReturn()
+                .getResponse();
+
+        // Assert
+        Assert.assertEquals(HttpStatus.OK.value(), result.getStatus());
+        Assert.assertEquals(WidgetBinaryFormat.MEDIA_TYPE, result.getContentType());
+        Assert.assertEquals(List.of(widget),
+                WidgetBinaryFormat.readList(new ByteArrayInputStream(result.getContentAsByteArray())));
+        Assert.assertEquals(HttpHeaders.ACCEPT, result.getHeader(HttpHeaders.VARY));
+    }
+
+    @Test
+    public void testWhenSendGetByIdAcceptingAnyType_WidgetController_ResponseWithJson() throws Exception {
+        // Arrange
+        Widget widget = widgetRepository.create(getWidget());
+
+        // Act
+        MockHttpServletResponse result = mockMvc.perform(get(url + "/" + widget.getId()).accept(MediaType.ALL))
+                .andReturn()
+                .getResponse();
+
+        // Assert
+        Assert.assertEquals(MediaType.APPLICATION_JSON_VALUE, result.getContentType());
+        Assert.assertEquals(widget.getId(), objectMapper.readValue(result.getContentAsString(), Widget.class).getId());
+    }
+
+    @Test
+    public void testWhenSendGetByIdWithJsonETagAcceptingBinary_WidgetController_ResponseWithBinaryWidget() throws Exception {
+        // Arrange
+        Widget widget = widgetRepository.create(getWidget());
+        String etag = mockMvc.perform(get(url + "/" + widget.getId()))
+                .andReturn()
+                .getResponse()
+                .getHeader(HttpHeaders.ETAG);
+
+        // Act
+        MockHttpServletResponse result = mockMvc.perform(get(url + "/" + widget.getId())
+                .accept(WidgetBinaryFormat.MEDIA_TYPE)
+                .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andReturn()
+                .getResponse();
+        int notModified = mockMvc.perform(get(url + "/" + widget.getId())
+                .accept(WidgetBinaryFormat.MEDIA_TYPE)
+                .header(HttpHeaders.IF_NONE_MATCH, result.getHeader(HttpHeaders.ETAG)))
+                .andReturn()
+                .getResponse()
+                .getStatus();
+
+        // Assert
+        Assert.assertEquals(HttpStatus.OK.value(), result.getStatus());
+        Assert.assertEquals(widget, WidgetBinaryFormat.read(new ByteArrayInputStream(result.getContentAsByteArray())));
+        Assert.assertNotEquals(etag, result.getHeader(HttpHeaders.ETAG));
+        Assert.assertEquals(HttpStatus.NOT_MODIFIED.value(), notModified);
+    }
+
+    @Test
+    public void testWhenSendGetByIdPreferringJsonOverBinary_WidgetController_ResponseWithJsonAndItsETag() throws Exception {
+        // Arrange
+        Widget widget = widgetRepository.create(getWidget());
+
+        // Act
+        MockHttpServletResponse json = mockMvc.perform(get(url + "/" + widget.getId())
+                .header(HttpHeaders.ACCEPT, "application/json, " + WidgetBinaryFormat.MEDIA_TYPE + ";q=0.1"))
+                .andReturn()
+                .getResponse();
+        MockHttpServletResponse binary = mockMvc.perform(get(url + "/" + widget.getId())
+                .header(HttpHeaders.ACCEPT, "application/json;q=0.5, " + WidgetBinaryFormat.MEDIA_TYPE))
+                .andReturn()
+                .getResponse();
+
+        // Assert
+        String etag = "\"" + widget.getVersion() + "-" + widget.getZIndex() + "\"";
+        Assert.assertEquals(MediaType.APPLICATION_JSON_VALUE, json.getContentType());
+        Assert.assertEquals(etag, json.getHeader(HttpHeaders.ETAG));
+        Assert.assertEquals(WidgetBinaryFormat.MEDIA_TYPE, binary.getContentType());
+        Assert.assertNotEquals(etag, binary.getHeader(HttpHeaders.ETAG));
+    }
+
+    @Test
+    public void testWhenSendBatchAcceptingOnlyBinary_WidgetController_ResponseWithNotAcceptableStatus() throws Exception {
+        // Arrange
+        List<BatchOperation> operations = List.of(BatchOperation.builder()
+                .type(BatchOperation.Type.CREATE).widget(getWidget()).build());
+
+        // Act
+        int result = mockMvc.perform(post(url + "/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(WidgetBinaryFormat.MEDIA_TYPE)
+                .content(objectMapper.writeValueAsString(operations)))
+                .andReturn()
+                .getResponse()
+                .getStatus();
+
+        // Assert
+        Assert.assertEquals(HttpStatus.NOT_ACCEPTABLE.value(), result);
+    }
+
+    @Test
+    public void testWhenSendPutWithStaleVersion_WidgetController_ResponseWithConflictStatus() throws Exception {
+        // Arrange
+        Widget widget = widgetRepository.create(getWidget());
+        Widget stale = widget.toBuilder().xIndex(200).build();
+        widget.setXIndex(100);
+        widgetRepository.update(widget.toBuilder().build());
+
+        // Act
+        int result = mockMvc.perform(put(url)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(stale)))
+                .andReturn()
+                .getResponse()
+                .getStatus();
+
+        // Assert
+        Assert.assertEquals(HttpStatus.CONFLICT.value(), result);
+        Assert.assertEquals(100, (int) widgetRepository.getById(widget.getId()).get().getXIndex());
+    }
+
+    @Test
+    public void testWhenSendPatch_WidgetController_ChangeOnlyGivenValues() throws Exception {
+        // Arrange
+        Widget widget = widgetRepository.create(getWidget());
+
+        // Act
+        MockHttpServletResponse result = mockMvc.perform(patch(url + "/" + widget.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"x\":100,\"y\":200}"))
+                .andReturn()
+                .getResponse();
+
+        // Assert
+        Assert.assertEquals(HttpStatus.OK.value(), result.getStatus());
+        Widget patched = objectMapper.readValue(result.getContentAsString(), Widget.class);
+        Assert.assertEquals(100, (int) patched.getXIndex());
+        Assert.assertEquals(200, (int) patched.getYIndex());
+        Assert.assertEquals(widget.getZIndex(), patched.getZIndex());
+        Assert.assertEquals(widget.getWidth(), patched.getWidth());
+        Assert.assertEquals(patched, widgetRepository.getById(widget.getId()).get());
+    }
+
+    @Test
+    public void testWhenSendPatchWithNegativeWidth_WidgetController_ResponseWithBadRequestStatus() throws Exception {
+        // Arrange
+        Widget widget = widgetRepository.create(getWidget());
+
+        // Act
+        int result = mockMvc.perform(patch(url + "/" + widget.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"width\":-1}"))
+                .andReturn()
+                .getResponse()
+                .getStatus();
+
+        // Assert
+        Assert.assertEquals(HttpStatus.BAD_REQUEST.value(), result);
+    }
+
+    @Test
+    public void testWhenSendPatchOfMissingWidget_WidgetController_ResponseWithNotFoundStatus() throws Exception {
+        // Act
+        int result = mockMvc.perform(patch(url + "/" + Long.MAX_VALUE)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"x\":1}"))
+                .andReturn()
+                .getResponse()
+                .getStatus();
+
+        // Assert
+        Assert.assertEquals(HttpStatus.NOT_FOUND.value(), result);
+    }
+
+    private List<Map<String, Object>> parseEvents(String stream) throws Exception {
+        List<Map<String, Object>> events = new ArrayList<>();
+        for (String line : stream.split("\n")) {
+            if (line.startsWith("data: ")) {
+                events.add(objectMapper.readValue(line.substring(6), new TypeReference<Map<String, Object>>() {}));
+            }
+        }
+        return events;
+    }
+
     private Widget getWidget() {
         return Widget.builder()
                 .height(1)
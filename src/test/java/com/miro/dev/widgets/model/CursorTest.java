@@ -0,0 +1,33 @@
+package com.miro.dev.widgets.model;
+
+import com.miro.dev.widgets.exceptions.InvalidCursorException;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CursorTest {
+    @Test
+    public void testCursor_EncodeAndParse() {
+        // Arrange
+        Cursor cursor = new Cursor(42L, -7);
+
+        // Act
+        Cursor parsed = Cursor.parse(cursor.encode());
+
+        // Assert
+        Assert.assertEquals(cursor, parsed);
+        Assert.assertEquals(42L, parsed.getVersion());
+        Assert.assertEquals(-7, parsed.getZIndex());
+    }
+
+    @Test(expected = InvalidCursorException.class)
+    public void testCursor_Parse_NotBase64() {
+        // Act
+        Cursor.parse("not a cursor!");
+    }
+
+    @Test(expected = InvalidCursorException.class)
+    public void testCursor_Parse_WrongLength() {
+        // Act
+        Cursor.parse("AAAA");
+    }
+}
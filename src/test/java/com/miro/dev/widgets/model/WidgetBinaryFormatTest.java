@@ -0,0 +1,72 @@
+package com.miro.dev.widgets.model;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+public class WidgetBinaryFormatTest {
+
+    @Test
+    public void testWidgetBinaryFormat_WhenWriteWidget_ThenReadTheSameWidget() throws Exception {
+        // Arrange
+        Widget widget = Widget.builder().id(1L).xIndex(-2).yIndex(Integer.MIN_VALUE).zIndex(Integer.MAX_VALUE)
+                .width(5).height(6).modifiedAt(LocalDateTime.of(2020, 10, 16, 19, 7, 43, 153376001))
+                .version(1760726400000000L).build();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // Act
+        WidgetBinaryFormat.write(widget, output);
+
+        // Assert
+        Assert.assertEquals(widget, WidgetBinaryFormat.read(new ByteArrayInputStream(output.toByteArray())));
+    }
+
+    @Test
+    public void testWidgetBinaryFormat_WhenWriteEmptyWidget_ThenWriteSingleByteAndReadNulls() throws Exception {
+        // Arrange
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // Act
+        WidgetBinaryFormat.write(Widget.builder().build(), output);
+
+        // Assert
+        Assert.assertArrayEquals(new byte[]{0}, output.toByteArray());
+        Assert.assertEquals(Widget.builder().build(),
+                WidgetBinaryFormat.read(new ByteArrayInputStream(output.toByteArray())));
+    }
+
+    @Test
+    public void testWidgetBinaryFormat_WhenWriteListLongerThanBuffer_ThenReadAllWidgetsInOrder() throws Exception {
+        // Arrange
+        LocalDateTime now = LocalDateTime.now();
+        List<Widget> widgets = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            widgets.add(Widget.builder().id((long) i + 1).xIndex(i * 16).yIndex(-i * 8).zIndex(i)
+                    .width(100).height(50).modifiedAt(now.plusNanos(i)).version(1760726400000000L + i).build());
+        }
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // Act
+        WidgetBinaryFormat.write(widgets, output);
+
+        // Assert
+        Assert.assertEquals(widgets, WidgetBinaryFormat.readList(new ByteArrayInputStream(output.toByteArray())));
+        Assert.assertTrue(output.size() < widgets.size() * 32);
+    }
+
+    @Test(expected = EOFException.class)
+    public void testWidgetBinaryFormat_WhenReadTruncatedWidget_ThenThrowException() throws Exception {
+        // Arrange
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        WidgetBinaryFormat.write(Widget.builder().id(1000L).build(), output);
+
+        // Act
+        WidgetBinaryFormat.read(new ByteArrayInputStream(output.toByteArray(), 0, output.size() - 1));
+    }
+}
@@ -0,0 +1,86 @@
+package com.miro.dev.widgets.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Random;
+
+public class WidgetSerializerTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    @Test
+    public void testWidgetSerializer_WhenWriteWidget_ThenWritePropertiesInOrderOfBeanSerializer() throws Exception {
+        // Arrange
+        Widget widget = Widget.builder().id(1L).xIndex(-2).yIndex(3).zIndex(4).width(5).height(6)
+                .modifiedAt(LocalDateTime.of(2020, 10, 16, 19, 7, 43, 153376000)).version(7L).build();
+
+        // Act
+        String result = objectMapper.writeValueAsString(widget);
+
+        // Assert
+        Assert.assertEquals("{\"id\":1,\"width\":5,\"height\":6,\"modifiedAt\":\"2020-10-16T19:07:43.153376\","
+                + "\"version\":7,\"x\":-2,\"y\":3,\"z\":4}", result);
+    }
+
+    @Test
+    public void testWidgetSerializer_WhenWriteEmptyWidget_ThenWriteNulls() throws Exception {
+        // Act
+        String result = objectMapper.writeValueAsString(Widget.builder().build());
+
+        // Assert
+        Assert.assertEquals("{\"id\":null,\"width\":null,\"height\":null,\"modifiedAt\":null,"
+                + "\"version\":null,\"x\":null,\"y\":null,\"z\":null}", result);
+    }
+
+    @Test
+    public void testWidgetSerializer_WhenFormatDates_ThenMatchIsoFormatter() {
+        // Arrange
+        Random random = new Random(42);
+        char[] buffer = new char[29];
+
+        for (int i = 0; i < 10_000; i++) {
+            LocalDateTime date = LocalDateTime.of(random.nextInt(10_000), 1 + random.nextInt(12), 1 + random.nextInt(28),
+                    random.nextInt(24), random.nextInt(60), random.nextInt(60),
+                    random.nextInt(4) == 0 ? 0 : random.nextInt(1_000_000) * (int) Math.pow(10, random.nextInt(4)));
+
+            // Act
+            int length = WidgetSerializer.format(date, buffer);
+
+            // Assert
+            Assert.assertEquals(DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(date), new String(buffer, 0, length));
+        }
+    }
+
+    @Test
+    public void testWidgetSerializer_WhenYearHasMoreDigits_ThenMatchIsoFormatter() throws Exception {
+        // Arrange
+        LocalDateTime date = LocalDateTime.of(12345, 1, 2, 3, 4);
+
+        // Act
+        String result = objectMapper.writeValueAsString(Widget.builder().modifiedAt(date).build());
+
+        // Assert
+        Assert.assertTrue(result.contains("\"+12345-01-02T03:04:00\""));
+    }
+
+    @Test
+    public void testWidgetSerializer_WhenDatesAsTimestamps_ThenLeaveDateToMapper() throws Exception {
+        // Arrange
+        ObjectMapper timestamps = new ObjectMapper().registerModule(new JavaTimeModule());
+
+        // Act
+        String result = timestamps.writeValueAsString(
+                Widget.builder().modifiedAt(LocalDateTime.of(2020, 1, 2, 3, 4)).build());
+
+        // Assert
+        Assert.assertTrue(result.contains("\"modifiedAt\":[2020,1,2,3,4]"));
+    }
+}
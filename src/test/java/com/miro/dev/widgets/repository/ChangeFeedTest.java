@@ -0,0 +1,129 @@
+package com.miro.dev.widgets.repository;
+
+import com.miro.dev.widgets.model.Widget;
+import com.miro.dev.widgets.model.WidgetEvent;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+public class ChangeFeedTest {
+
+    @Test
+    public void testChangeFeed_WhenReadAfterSequence_ThenReturnFollowingChangesInOrder() throws InterruptedException {
+        // Arrange
+        ChangeFeed feed = new ChangeFeed(100);
+        Widget widget = Widget.builder().id(1L).zIndex(5).build();
+        feed.created(widget);
+        feed.shifted(5);
+        feed.deleted(1L);
+
+        // Act
+        List<WidgetEvent> result = feed.read(101, 10, 0);
+
+        // Assert
+        Assert.assertEquals(2, result.size());
+        Assert.assertEquals(WidgetEvent.Type.SHIFT, result.get(0).getType());
+        Assert.assertEquals(102, result.get(0).getSequence());
+        Assert.assertEquals(5, (int) result.get(0).getZIndex());
+        Assert.assertEquals(WidgetEvent.Type.DELETE, result.get(1).getType());
+        Assert.assertEquals(1L, (long) result.get(1).getId());
+        Assert.assertEquals(103, feed.sequence());
+    }
+
+    @Test
+    public void testChangeFeed_WhenWidgetChangedAfterPublish_ThenKeepPublishedState() throws InterruptedException {
+        // Arrange
+        ChangeFeed feed = new ChangeFeed(0);
+        Widget widget = Widget.builder().id(1L).zIndex(5).build();
+        feed.updated(widget);
+
+        // Act
+        widget.setZIndex(6);
+
+        // Assert
+        Assert.assertEquals(5, (int) feed.read(0, 10, 0).get(0).getWidget().getZIndex());
+    }
+
+    @Test
+    public void testChangeFeed_WhenReadLimited_ThenReturnOnlyMaxChanges() throws InterruptedException {
+        // Arrange
+        ChangeFeed feed = new ChangeFeed(0);
+        for (int i = 0; i < 10; i++) {
+            feed.deleted(i);
+        }
+
+        // Act
+        List<WidgetEvent> result = feed.read(0, 3, 0);
+
+        // Assert
+        Assert.assertEquals(3, result.size());
+        Assert.assertEquals(3, result.get(2).getSequence());
+    }
+
+    @Test
+    public void testChangeFeed_WhenNoChangesCameInTime_ThenReturnEmptyList() throws InterruptedException {
+        // Arrange
+        ChangeFeed feed = new ChangeFeed(0);
+
+        // Act
+        List<WidgetEvent> result = feed.read(0, 10, 10);
+
+        // Assert
+        Assert.assertTrue(result.isEmpty());
+    }
+
+    @Test
+    public void testChangeFeed_WhenChangePublishedWhileWaiting_ThenReturnIt() throws Exception {
+        // Arrange
+        ChangeFeed feed = new ChangeFeed(0);
+        CompletableFuture<List<WidgetEvent>> read = CompletableFuture.supplyAsync(() -> {
+            try {
+                return feed.read(0, 10, TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        // Act
+        feed.deleted(7L);
+
+        // Assert
+        List<WidgetEvent> result = read.get(10, TimeUnit.SECONDS);
+        Assert.assertEquals(1, result.size());
+        Assert.assertEquals(7L, (long) result.get(0).getId());
+    }
+
+    @Test
+    public void testChangeFeed_WhenChangesAreNotKept_ThenReturnReset() throws InterruptedException {
+        // Arrange
+        ChangeFeed feed = new ChangeFeed(0);
+        for (int i = 0; i < ChangeFeed.CAPACITY + 1; i++) {
+            feed.deleted(i);
+        }
+
+        // Act
+        List<WidgetEvent> result = feed.read(0, 10, 0);
+
+        // Assert
+        Assert.assertEquals(1, result.size());
+        Assert.assertEquals(WidgetEvent.Type.RESET, result.get(0).getType());
+        Assert.assertEquals(ChangeFeed.CAPACITY + 1, result.get(0).getSequence());
+        Assert.assertEquals(10, feed.read(1, 10, 0).size());
+    }
+
+    @Test
+    public void testChangeFeed_WhenSequenceIsAheadOfFeed_ThenReturnReset() throws InterruptedException {
+        // Arrange
+        ChangeFeed feed = new ChangeFeed(100);
+
+        // Act
+        List<WidgetEvent> result = feed.read(500, 10, 1000);
+
+        // Assert
+        Assert.assertEquals(WidgetEvent.Type.RESET, result.get(0).getType());
+        Assert.assertEquals(100, result.get(0).getSequence());
+    }
+}
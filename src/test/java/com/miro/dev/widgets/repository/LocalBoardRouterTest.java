@@ -0,0 +1,111 @@
+package com.miro.dev.widgets.repository;
+
+import com.miro.dev.widgets.exceptions.BoardLimitException;
+import com.miro.dev.widgets.model.Widget;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class LocalBoardRouterTest {
+
+    @Test
+    public void testLocalBoardRouter_WhenRouteSameBoard_ThenReturnSameRepository() {
+        // Arrange
+        LocalBoardRouter router = new LocalBoardRouter(boardId -> new WidgetRepositoryArrayImpl());
+
+        // Act
+        WidgetRepository first = router.route("board");
+        WidgetRepository second = router.route("board");
+        WidgetRepository other = router.route("other");
+
+        // Assert
+        Assert.assertSame(first, second);
+        Assert.assertNotSame(first, other);
+    }
+
+    @Test
+    public void testLocalBoardRouter_WhenFindUnknownBoard_ThenReturnEmptyWithoutCreatingIt() {
+        // Arrange
+        AtomicInteger created = new AtomicInteger();
+        LocalBoardRouter router = new LocalBoardRouter(boardId -> {
+            created.incrementAndGet();
+            return new WidgetRepositoryInMemoryImpl();
+        });
+
+        // Act
+        Optional<WidgetRepository> result = router.find("board");
+
+        // Assert
+        Assert.assertFalse(result.isPresent());
+        Assert.assertEquals(0, created.get());
+        Assert.assertSame(router.route("board"), router.find("board").get());
+    }
+
+    @Test
+    public void testLocalBoardRouter_WhenFindBoardKeptInFiles_ThenOpenIt() {
+        // Arrange
+        LocalBoardRouter router = new LocalBoardRouter(boardId -> new WidgetRepositoryArrayImpl(),
+                "stored"::equals, 1);
+
+        // Act
+        Optional<WidgetRepository> result = router.find("stored");
+
+        // Assert
+        Assert.assertTrue(result.isPresent());
+        Assert.assertFalse(router.find("other").isPresent());
+    }
+
+    @Test(expected = BoardLimitException.class)
+    public void testLocalBoardRouter_WhenMaxBoardsReached_ThenThrowException() {
+        // Arrange
+        LocalBoardRouter router = new LocalBoardRouter(boardId -> new WidgetRepositoryArrayImpl(), boardId -> false, 2);
+        router.route("first");
+        router.route("second");
+        router.route("first");
+
+        // Act
+        router.route("third");
+    }
+
+    @Test
+    public void testLocalBoardRouter_WhenRouteNewBoardConcurrently_ThenCreateOneRepository() throws Exception {
+        // Arrange
+        AtomicInteger created = new AtomicInteger();
+        LocalBoardRouter router = new LocalBoardRouter(boardId -> {
+            created.incrementAndGet();
+            return new WidgetRepositoryInMemoryImpl();
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        // Act
+        List<Future<Widget>> futures = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            futures.add(executor.submit(() -> router.route("board").create(Widget.builder()
+                    .xIndex(1)
+                    .yIndex(2)
+                    .width(3)
+                    .height(4)
+                    .build())));
+        }
+        for (Future<Widget> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        // Assert
+        Assert.assertEquals(1, created.get());
+        Assert.assertEquals(101L, (long) router.route("board").create(Widget.builder()
+                .xIndex(1)
+                .yIndex(2)
+                .width(3)
+                .height(4)
+                .build()).getId());
+    }
+}
@@ -0,0 +1,49 @@
+package com.miro.dev.widgets.repository;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+public class LongIntHashMapTest {
+
+    @Test
+    public void testLongIntHashMap_WhenGetMissingKey_ThenReturnMissing() {
+        // Arrange
+        LongIntHashMap map = new LongIntHashMap();
+        map.put(1L, 10);
+
+        // Act and assert
+        Assert.assertEquals(10, map.get(1L));
+        Assert.assertEquals(LongIntHashMap.MISSING, map.get(2L));
+        Assert.assertEquals(LongIntHashMap.MISSING, map.remove(2L));
+    }
+
+    @Test
+    public void testLongIntHashMap_WhenRandomOperations_ThenMatchHashMap() {
+        // Arrange
+        Random random = new Random(3);
+        LongIntHashMap map = new LongIntHashMap();
+        Map<Long, Integer> expected = new HashMap<>();
+
+        // Act
+        for (int i = 0; i < 100000; i++) {
+            long key = random.nextInt(5000) + 1;
+            if (random.nextInt(3) == 0) {
+                Assert.assertEquals((int) expected.getOrDefault(key, LongIntHashMap.MISSING), map.remove(key));
+                expected.remove(key);
+            } else {
+                map.put(key, i);
+                expected.put(key, i);
+            }
+        }
+
+        // Assert
+        Assert.assertEquals(expected.size(), map.size());
+        for (long key = 1; key <= 5000; key++) {
+            Assert.assertEquals((int) expected.getOrDefault(key, LongIntHashMap.MISSING), map.get(key));
+        }
+    }
+}
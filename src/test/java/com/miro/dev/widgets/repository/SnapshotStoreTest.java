@@ -0,0 +1,108 @@
+package com.miro.dev.widgets.repository;
+
+import com.miro.dev.widgets.model.Limit;
+import com.miro.dev.widgets.model.Widget;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+public class SnapshotStoreTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path path;
+
+    private SnapshotStore snapshots;
+
+    @Before
+    public void init() {
+        path = folder.getRoot().toPath().resolve("widgets.snapshot");
+        snapshots = new SnapshotStore(path, Duration.ofMinutes(1));
+    }
+
+    @Test
+    public void testSnapshotStore_WhenLoadWithoutFile_ThenReturnEmptyOptional() {
+        // Act
+        Optional<WidgetSnapshot> result = snapshots.load();
+
+        // Assert
+        Assert.assertFalse(result.isPresent());
+    }
+
+    @Test
+    public void testSnapshotStore_WhenWriteAndLoad_ThenRestoreSameWidgets() {
+        // Arrange
+        WidgetRepository repository = filledRepository();
+        WidgetSnapshot snapshot = repository.snapshot();
+        snapshot.setLogPosition(4100);
+
+        // Act
+        snapshots.write(snapshot);
+        WidgetSnapshot loaded = snapshots.load().get();
+        WidgetRepository restored = new WidgetRepositoryArrayImpl();
+        restored.restore(loaded);
+
+        // Assert
+        Assert.assertEquals(4100, loaded.getLogPosition());
+        Assert.assertEquals(snapshot.getCounter(), loaded.getCounter());
+        long version = restored.changes().sequence();
+        List<Widget> expected = repository.getAll(new Limit(200, 0)).stream()
+                .map(widget -> widget.toBuilder().version(version).build())
+                .collect(Collectors.toList());
+        Assert.assertEquals(expected, restored.getAll(new Limit(200, 0)));
+    }
+
+    @Test
+    public void testSnapshotStore_WhenFileIsCorrupted_ThenReturnEmptyOptional() throws IOException {
+        // Arrange
+        snapshots.write(filledRepository().snapshot());
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{(byte) 0xff}), channel.size() / 2);
+        }
+
+        // Act
+        Optional<WidgetSnapshot> result = snapshots.load();
+
+        // Assert
+        Assert.assertFalse(result.isPresent());
+    }
+
+    @Test
+    public void testSnapshotStore_WhenClose_ThenTakeLastSnapshot() {
+        // Arrange
+        WidgetRepository repository = filledRepository();
+        snapshots.start(repository);
+
+        // Act
+        snapshots.close();
+
+        // Assert
+        Assert.assertEquals(100, snapshots.load().get().size());
+    }
+
+    private static WidgetRepository filledRepository() {
+        WidgetRepository repository = new WidgetRepositoryInMemoryImpl();
+        for (int i = 0; i < 100; i++) {
+            repository.create(Widget.builder()
+                    .height(1)
+                    .width(2)
+                    .xIndex(i)
+                    .yIndex(-i)
+                    .zIndex(i % 7)
+                    .build());
+        }
+        return repository;
+    }
+}
@@ -0,0 +1,92 @@
+package com.miro.dev.widgets.repository;
+
+import com.miro.dev.widgets.model.Area;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Collectors;
+
+public class SpatialIndexTest {
+    private SpatialIndex index;
+
+    @Before
+    public void init() {
+        index = new SpatialIndex();
+    }
+
+    @Test
+    public void testSpatialIndex_WhenLookupOnEmptyIndex_ThenFindNothing() {
+        // Act
+        Set<Long> result = lookup(new Area(-1000, -1000, 1000, 1000));
+
+        // Assert
+        Assert.assertTrue(result.isEmpty());
+    }
+
+    @Test
+    public void testSpatialIndex_WhenLookupRandomAreas_ThenFindAllIntersectingWidgets() {
+        // Arrange
+        Random random = new Random(11);
+        List<WidgetRecord> records = new ArrayList<>();
+        for (long id = 1; id <= 2000; id++) {
+            int size = random.nextInt(10) == 0 ? random.nextInt(100000) : random.nextInt(200);
+            WidgetRecord record = record(id, random.nextInt(20000) - 10000, random.nextInt(20000) - 10000,
+                    size, random.nextInt(200));
+            records.add(record);
+            index.add(record);
+        }
+
+        for (int i = 0; i < 200; i++) {
+            int x1 = random.nextInt(20000) - 10000;
+            int y1 = random.nextInt(20000) - 10000;
+            Area area = new Area(x1, y1, x1 + random.nextInt(3000), y1 + random.nextInt(3000));
+
+            // Act
+            Set<Long> result = lookup(area);
+
+            // Assert
+            Set<Long> expected = records.stream()
+                    .filter(r -> area.intersects(r.getXIndex(), r.getYIndex(), r.getWidth(), r.getHeight()))
+                    .map(WidgetRecord::getId)
+                    .collect(Collectors.toSet());
+            Assert.assertTrue(result.containsAll(expected));
+        }
+    }
+
+    @Test
+    public void testSpatialIndex_WhenRemove_ThenNotFindWidget() {
+        // Arrange
+        WidgetRecord record = record(1L, 10, 10, 5, 5);
+        index.add(record);
+
+        // Act
+        index.remove(record);
+
+        // Assert
+        Assert.assertTrue(lookup(new Area(0, 0, 100, 100)).isEmpty());
+    }
+
+    @Test
+    public void testSpatialIndex_WhenSmallMove_ThenKeepSameCells() {
+        // Arrange
+        WidgetRecord record = record(1L, 10, 10, 5, 5);
+
+        // Act and assert
+        Assert.assertTrue(index.sameCells(record, record(1L, 11, 12, 5, 5)));
+        Assert.assertFalse(index.sameCells(record, record(1L, 1000, 12, 5, 5)));
+        Assert.assertFalse(index.sameCells(record, record(1L, 10, 10, 500, 5)));
+    }
+
+    private Set<Long> lookup(Area area) {
+        Set<Long> result = new HashSet<>();
+        index.forEachCandidate(area, result::add);
+        return result;
+    }
+
+    private WidgetRecord record(Long id, int x, int y, int width, int height) {
+        return new WidgetRecord(id, x, y, width, height, LocalDateTime.now(), 1L);
+    }
+}
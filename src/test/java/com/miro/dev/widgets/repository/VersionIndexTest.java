@@ -0,0 +1,124 @@
+package com.miro.dev.widgets.repository;
+
+import com.miro.dev.widgets.model.ZIndexShift;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+public class VersionIndexTest {
+
+    @Test
+    public void testVersionIndex_WhenWidgetsChanged_ThenReturnIdsOfLatestChangesInOrder() {
+        // Arrange
+        VersionIndex index = new VersionIndex(100);
+        index.put(1, 101);
+        index.put(2, 102);
+        index.put(1, 103);
+        index.delete(3, 104);
+
+        // Act
+        long[] result = index.since(101);
+
+        // Assert
+        Assert.assertArrayEquals(new long[]{2, 1, -3}, result);
+        Assert.assertArrayEquals(new long[]{2, 1, -3}, index.since(100));
+        Assert.assertArrayEquals(new long[0], index.since(104));
+    }
+
+    @Test
+    public void testVersionIndex_WhenDeletedWidgetCreatedAgain_ThenReturnOnlyCreation() {
+        // Arrange
+        VersionIndex index = new VersionIndex(0);
+        index.delete(1, 1);
+
+        // Act
+        index.put(1, 2);
+
+        // Assert
+        Assert.assertArrayEquals(new long[]{1}, index.since(0));
+    }
+
+    @Test
+    public void testVersionIndex_WhenManyChangesOfSameWidgets_ThenKeepOrderAfterCompaction() {
+        // Arrange
+        VersionIndex index = new VersionIndex(0);
+
+        // Act
+        for (int version = 1; version <= 10_000; version++) {
+            index.put(version % 3 + 1, version);
+        }
+
+        // Assert
+        Assert.assertArrayEquals(new long[]{3, 1, 2}, index.since(0));
+        Assert.assertArrayEquals(new long[]{2}, index.since(9_999));
+    }
+
+    @Test
+    public void testVersionIndex_WhenTooManyDeletions_ThenDropTheOldestAndMoveHorizon() {
+        // Arrange
+        VersionIndex index = new VersionIndex(0);
+
+        // Act
+        for (int i = 1; i <= VersionIndex.TOMBSTONES + 1; i++) {
+            index.delete(i, i);
+        }
+
+        // Assert
+        Assert.assertEquals(VersionIndex.TOMBSTONES / 4, index.horizon());
+        long[] result = index.since(index.horizon());
+        Assert.assertEquals(-(VersionIndex.TOMBSTONES / 4 + 1), result[0]);
+        Assert.assertEquals(VersionIndex.TOMBSTONES - VersionIndex.TOMBSTONES / 4 + 1, result.length);
+    }
+
+    @Test
+    public void testVersionIndex_WhenCleared_ThenForgetChangesAndMoveHorizon() {
+        // Arrange
+        VersionIndex index = new VersionIndex(0);
+        index.put(1, 1);
+        index.delete(2, 2);
+
+        // Act
+        index.clear(3);
+
+        // Assert
+        Assert.assertEquals(3, index.horizon());
+        Assert.assertArrayEquals(new long[0], index.since(3));
+    }
+
+    @Test
+    public void testVersionIndex_WhenZIndexesShifted_ThenReturnShiftsAfterVersionInOrder() {
+        // Arrange
+        VersionIndex index = new VersionIndex(0);
+        index.shift(5, 1);
+        index.put(1, 2);
+        index.shift(3, 3);
+
+        // Act
+        List<ZIndexShift> result = index.shiftsSince(1);
+
+        // Assert
+        Assert.assertEquals(1, result.size());
+        Assert.assertEquals(3, result.get(0).getVersion());
+        Assert.assertEquals(3, result.get(0).getZIndex());
+        Assert.assertEquals(2, index.shiftsSince(0).size());
+        Assert.assertArrayEquals(new long[]{1}, index.since(0));
+    }
+
+    @Test
+    public void testVersionIndex_WhenTooManyShifts_ThenDropTheOldestAndMoveHorizon() {
+        // Arrange
+        VersionIndex index = new VersionIndex(0);
+
+        // Act
+        for (int i = 1; i <= VersionIndex.SHIFTS + 1; i++) {
+            index.shift(i, i);
+        }
+
+        // Assert
+        Assert.assertEquals(VersionIndex.SHIFTS / 4, index.horizon());
+        List<ZIndexShift> result = index.shiftsSince(index.horizon());
+        Assert.assertEquals(VersionIndex.SHIFTS / 4 + 1, result.get(0).getZIndex());
+        Assert.assertEquals(VersionIndex.SHIFTS - VersionIndex.SHIFTS / 4 + 1, result.size());
+    }
+}
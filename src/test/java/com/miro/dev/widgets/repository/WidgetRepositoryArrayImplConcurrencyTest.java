@@ -0,0 +1,11 @@
+package com.miro.dev.widgets.repository;
+
+/**
+ * Runs concurrency tests against store of primitive arrays
+ */
+public class WidgetRepositoryArrayImplConcurrencyTest extends WidgetRepositoryInMemoryImplConcurrencyTest {
+    @Override
+    protected WidgetRepository createRepository() {
+        return new WidgetRepositoryArrayImpl();
+    }
+}
@@ -0,0 +1,11 @@
+package com.miro.dev.widgets.repository;
+
+/**
+ * Runs all repository tests against store of primitive arrays
+ */
+public class WidgetRepositoryArrayImplTest extends WidgetRepositoryInMemoryImplTest {
+    @Override
+    protected WidgetRepository createRepository() {
+        return new WidgetRepositoryArrayImpl();
+    }
+}
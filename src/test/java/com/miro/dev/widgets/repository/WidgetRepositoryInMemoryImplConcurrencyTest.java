@@ -0,0 +1,270 @@
+package com.miro.dev.widgets.repository;
+
+import com.miro.dev.widgets.exceptions.VersionConflictException;
+import com.miro.dev.widgets.exceptions.WidgetNotFoundException;
+import com.miro.dev.widgets.model.Limit;
+import com.miro.dev.widgets.model.Widget;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.*;
+
+public class WidgetRepositoryInMemoryImplConcurrencyTest {
+    private static final int THREADS = 8;
+    private static final int OPERATIONS = 5000;
+    private static final int INITIAL_WIDGETS = 200;
+
+    private WidgetRepository repository;
+
+    @Before
+    public void init() {
+        repository = createRepository();
+        for (int i = 1; i <= INITIAL_WIDGETS; i++) {
+            repository.create(getWidget(i));
+        }
+    }
+
+    protected WidgetRepository createRepository() {
+        return new WidgetRepositoryInMemoryImpl();
+    }
+
+    @Test
+    public void testWidgetRepositoryInMemoryImpl_WhenConcurrentWrites_ThenZIndexesStayUniqueAndOrdered() throws Exception {
+        // Arrange
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+
+        // Act
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < OPERATIONS; i++) {
+                    long id = 1 + random.nextInt(INITIAL_WIDGETS * 2);
+                    switch (random.nextInt(6)) {
+                        case 0:
+                            repository.create(getWidget(random.nextInt(1, 300)));
+                            break;
+                        case 1:
+                            repository.create(getWidget(null));
+                            break;
+                        case 2:
+                            repository.getById(id).ifPresent(widget -> {
+                                widget.setXIndex(random.nextInt());
+                                try {
+                                    repository.update(widget);
+                                } catch (VersionConflictException ignored) {}
+                            });
+                            break;
+                        case 3:
+                            repository.getById(id).ifPresent(widget -> {
+                                widget.setZIndex(random.nextInt(1, 300));
+                                try {
+                                    repository.update(widget);
+                                } catch (VersionConflictException ignored) {}
+                            });
+                            break;
+                        case 4:
+                            try {
+                                repository.delete(id);
+                            } catch (WidgetNotFoundException ignored) {}
+                            break;
+                        default:
+                            assertOrdered(repository.getAll(new Limit(50, random.nextInt(100))));
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(1, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        // Assert
+        List<Widget> widgets = new ArrayList<>();
+        for (int offset = 0; ; offset += 500) {
+            List<Widget> page = repository.getAll(new Limit(500, offset));
+            if (page.isEmpty()) break;
+            widgets.addAll(page);
+        }
+        assertOrdered(widgets);
+        Set<Long> ids = new HashSet<>();
+        for (Widget widget : widgets) {
+            Assert.assertTrue(ids.add(widget.getId()));
+            Optional<Widget> result = repository.getById(widget.getId());
+            Assert.assertTrue(result.isPresent());
+            Assert.assertEquals(widget.getZIndex(), result.get().getZIndex());
+        }
+        Widget foreground = repository.create(getWidget(null));
+        Assert.assertEquals(widgets.get(widgets.size() - 1).getZIndex() + 1, (int) foreground.getZIndex());
+    }
+
+    @Test
+    public void testWidgetRepositoryInMemoryImpl_WhenConcurrentUpdatesOfVersion_ThenApplyEveryRetriedUpdateOnce() throws Exception {
+        // Arrange
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        int increments = OPERATIONS / 10;
+        int initial = repository.getById(1L).get().getXIndex();
+
+        // Act
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < increments; i++) {
+                    while (true) {
+                        Widget widget = repository.getById(1L).get();
+                        widget.setXIndex(widget.getXIndex() + 1);
+                        try {
+                            repository.update(widget);
+                            break;
+                        } catch (VersionConflictException ignored) {}
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(1, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        // Assert
+        Assert.assertEquals(initial + THREADS * increments, (int) repository.getById(1L).get().getXIndex());
+    }
+
+    @Test
+    public void testWidgetRepositoryInMemoryImpl_WhenConcurrentPatchesOfDifferentValues_ThenKeepAllOfThem() throws Exception {
+        // Arrange
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        int patches = OPERATIONS / 10;
+
+        // Act
+        for (int t = 0; t < THREADS; t++) {
+            boolean x = t % 2 == 0;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 1; i <= patches; i++) {
+                    repository.patch(1L, x ? Widget.builder().xIndex(i).build() : Widget.builder().yIndex(-i).build());
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(1, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        // Assert
+        Widget result = repository.getById(1L).get();
+        Assert.assertEquals(patches, (int) result.getXIndex());
+        Assert.assertEquals(-patches, (int) result.getYIndex());
+    }
+
+    @Test
+    public void testWidgetRepositoryInMemoryImpl_WhenReadDuringShifts_ThenReturnConsistentPages() throws Exception {
+        // Arrange
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+
+        // Act
+        for (int t = 0; t < THREADS; t++) {
+            boolean writer = t % 2 == 0;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < OPERATIONS; i++) {
+                    if (writer) {
+                        repository.create(getWidget(1));
+                    } else {
+                        // widgets are always inserted at the bottom, so any consistent page holds Z indexes 1..50
+                        List<Widget> page = repository.getAll(new Limit(50, 0));
+                        Assert.assertEquals(50, page.size());
+                        for (int j = 0; j < page.size(); j++) {
+                            Assert.assertEquals(j + 1, (int) page.get(j).getZIndex());
+                        }
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(1, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        // Assert
+        Optional<Widget> first = repository.getById(1L);
+        Assert.assertTrue(first.isPresent());
+        Assert.assertEquals(1 + THREADS / 2 * OPERATIONS, (int) first.get().getZIndex());
+    }
+
+    @Test
+    public void testWidgetRepositoryInMemoryImpl_WhenSnapshotDuringUpdatesKeepingZIndex_ThenCopyNoLaterChanges() throws Exception {
+        // Arrange
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+
+        // Act
+        for (int t = 0; t < THREADS; t++) {
+            boolean writer = t > 0;
+            futures.add(executor.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < OPERATIONS; i++) {
+                    if (writer) {
+                        repository.patch(1L + random.nextInt(INITIAL_WIDGETS), Widget.builder().xIndex(11 + i % 2).build());
+                    } else if (i % 10 == 0) {
+                        // every copied widget has to be changed before sequence of snapshot
+                        WidgetSnapshot snapshot = repository.snapshot();
+                        for (int j = 0; j < snapshot.size(); j++) {
+                            Assert.assertTrue(snapshot.toWidget(j).getVersion() <= snapshot.getSequence());
+                        }
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(1, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        // Assert
+        WidgetSnapshot snapshot = repository.snapshot();
+        Assert.assertEquals(INITIAL_WIDGETS, snapshot.size());
+    }
+
+    private void assertOrdered(List<Widget> widgets) {
+        for (int i = 1; i < widgets.size(); i++) {
+            Assert.assertTrue(widgets.get(i - 1).getZIndex() < widgets.get(i).getZIndex());
+        }
+    }
+
+    private Widget getWidget(Integer zIndex) {
+        return Widget.builder()
+                .height(1)
+                .width(2)
+                .xIndex(11)
+                .yIndex(22)
+                .zIndex(zIndex)
+                .build();
+    }
+}
@@ -1,22 +1,36 @@
 package com.miro.dev.widgets.repository;
 
+import com.miro.dev.widgets.exceptions.InvalidCursorException;
+import com.miro.dev.widgets.exceptions.VersionConflictException;
 import com.miro.dev.widgets.exceptions.WidgetNotFoundException;
+import com.miro.dev.widgets.model.Area;
+import com.miro.dev.widgets.model.BatchOperation;
+import com.miro.dev.widgets.model.BatchResult;
+import com.miro.dev.widgets.model.Cursor;
 import com.miro.dev.widgets.model.Limit;
 import com.miro.dev.widgets.model.Widget;
+import com.miro.dev.widgets.model.WidgetChanges;
+import com.miro.dev.widgets.model.WidgetEvent;
+import com.miro.dev.widgets.model.WidgetPage;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
 public class WidgetRepositoryInMemoryImplTest {
-    private WidgetRepositoryInMemoryImpl repository;
+    protected WidgetRepository repository;
 
     @Before
     public void init() {
-        repository = new WidgetRepositoryInMemoryImpl();
+        repository = createRepository();
+    }
+
+    protected WidgetRepository createRepository() {
+        return new WidgetRepositoryInMemoryImpl();
     }
 
     @Test
@@ -165,6 +179,114 @@ public class WidgetRepositoryInMemoryImplTest {
         Assert.assertEquals(2, (int) resultThird.get().getZIndex());
     }
 
+    @Test
+    public void testWidgetRepositoryInMemoryImpl_WhenCreateAtBottom_ThenShiftAllZIndexes() {
+        // Arrange
+        List<Widget> created = new ArrayList<>();
+        for (int i = 1; i <= 100; i++) {
+            Widget widget = getWidget();
+            widget.setZIndex(i);
+            created.add(repository.create(widget));
+        }
+        Widget bottom = getWidget();
+        bottom.setZIndex(1);
+
+        // Act
+        Widget createdBottom = repository.create(bottom);
+
+        // Assert
+        List<Widget> widgets = repository.getAll(new Limit(200, 0));
+        Assert.assertEquals(101, widgets.size());
+        Assert.assertEquals(createdBottom.getId(), widgets.get(0).getId());
+        for (int i = 0; i < widgets.size(); i++) {
+            Assert.assertEquals(i + 1, (int) widgets.get(i).getZIndex());
+        }
+        for (int i = 0; i < created.size(); i++) {
+            Optional<Widget> result = repository.getById(created.get(i).getId());
+            Assert.assertTrue(result.isPresent());
+            Assert.assertEquals(i + 2, (int) result.get().getZIndex());
+        }
+    }
+
+    @Test
+    public void testWidgetRepositoryInMemoryImpl_WhenCreateAfterDeleteOfTopWidget_ThenTakeZIndexAboveRemaining() {
+        // Arrange
+        Widget widget = getWidget();
+        widget.setZIndex(5);
+        Widget widgetTop = getWidget();
+        widgetTop.setZIndex(9);
+        Widget widgetSecond = getWidget();
+        widgetSecond.setZIndex(null);
+        repository.create(widget);
+        Widget createdTop = repository.create(widgetTop);
+        repository.delete(createdTop.getId());
+
+        // Act
+        Widget createdSecond = repository.create(widgetSecond);
+
+        // Assert
+        Assert.assertEquals(6, (int) createdSecond.getZIndex());
+    }
+
+    @Test
+    public void testWidgetRepositoryInMemoryImpl_WhenCreateAfterUpdateOfTopWidget_ThenTakeZIndexAboveRemaining() {
+        // Arrange
+        Widget widget = getWidget();
+        widget.setZIndex(5);
+        Widget widgetTop = getWidget();
+        widgetTop.setZIndex(9);
+        Widget widgetSecond = getWidget();
+        widgetSecond.setZIndex(null);
+        repository.create(widget);
+        Widget createdTop = repository.create(widgetTop);
+        Widget clonedTopWidget = getWidget();
+        clonedTopWidget.setId(createdTop.getId());
+        clonedTopWidget.setZIndex(1);
+        repository.update(clonedTopWidget);
+
+        // Act
+        Widget createdSecond = repository.create(widgetSecond);
+
+        // Assert
+        Assert.assertEquals(6, (int) createdSecond.getZIndex());
+    }
+
+    @Test
+    public void testWidgetRepositoryInMemoryImpl_WhenCreateAfterShiftOfTopWidget_ThenTakeZIndexAboveShifted() {
+        // Arrange
+        Widget widget = getWidget();
+        widget.setZIndex(5);
+        Widget widgetBottom = getWidget();
+        widgetBottom.setZIndex(5);
+        Widget widgetSecond = getWidget();
+        widgetSecond.setZIndex(null);
+        repository.create(widget);
+        repository.create(widgetBottom);
+
+        // Act
+        Widget createdSecond = repository.create(widgetSecond);
+
+        // Assert
+        Assert.assertEquals(7, (int) createdSecond.getZIndex());
+    }
+
+    @Test
+    public void testWidgetRepositoryInMemoryImpl_WhenCreateAfterClear_ThenStartZIndexFromOne() {
+        // Arrange
+        Widget widget = getWidget();
+        widget.setZIndex(5);
+        Widget widgetSecond = getWidget();
+        widgetSecond.setZIndex(null);
+        repository.create(widget);
+        repository.clear();
+
+        // Act
+        Widget createdSecond = repository.create(widgetSecond);
+
+        // Assert
+        Assert.assertEquals(1, (int) createdSecond.getZIndex());
+    }
+
     @Test
     public void testWidgetRepositoryInMemoryImpl_WhenGetAllOnEmptyRepository_ThenReturnEmptyList() {
         // Act
@@ -214,6 +336,25 @@ public class WidgetRepositoryInMemoryImplTest {
         Assert.assertEquals(created.getId(), widgets.get(2).getId());
     }
 
+    @Test
+    public void testWidgetRepositoryInMemoryImpl_WhenGetAllWithOffset_ThenReturnPageSortedByZIndex() {
+        // Arrange
+        for (int i = 100; i > 0; i--) {
+            Widget widget = getWidget();
+            widget.setZIndex(i * 2);
+            repository.create(widget);
+        }
+
+        // Act
+        List<Widget> widgets = repository.getAll(new Limit(5, 40));
+
+        // Assert
+        Assert.assertEquals(5, widgets.size());
+        for (int i = 0; i < 5; i++) {
+            Assert.assertEquals(82 + i * 2, (int) widgets.get(i).getZIndex());
+        }
+    }
+
     @Test
     public void testWidgetRepositoryInMemoryImpl_WhenClear_ThenReturnEmptyList() {
         // Arrange
@@ -381,6 +522,564 @@ public class WidgetRepositoryInMemoryImplTest {
         Assert.assertEquals(2, (int) resultAfterUpdate.get().getZIndex());
     }
 
+    @Test
+    public void testWidgetRepositoryInMemoryImpl_WhenUpdateKeepingZIndex_ThenNotShiftZIndex() {
+        // Arrange
+        Widget widget = getWidget();
+        widget.setZIndex(1);
+        Widget widgetSecond = getWidget();
+        widgetSecond.setZIndex(2);
+        Widget created = repository.create(widget);
+        Widget createdSecond = repository.create(widgetSecond);
+        Widget clonedFirstWidget = getWidget();
+        clonedFirstWidget.setId(created.getId());
+        clonedFirstWidget.setZIndex(1);
+        clonedFirstWidget.setXIndex(100);
+
+        // Act
+        repository.update(clonedFirstWidget);
+
+        // Assert
+        Optional<Widget> resultFirst = repository.getById(created.getId());
+        Optional<Widget> resultSecond = repository.getById(createdSecond.getId());
+        Assert.assertTrue(resultFirst.isPresent());
+        Assert.assertTrue(resultSecond.isPresent());
+        Assert.assertEquals(100, (int) resultFirst.get().getXIndex());
+        Assert.assertEquals(1, (int) resultFirst.get().getZIndex());
+        Assert.assertEquals(2, (int) resultSecond.get().getZIndex());
+    }
+
+    @Test
+    public void testWidgetRepositoryInMemoryImpl_WhenShiftAfterGetById_ThenReturnedWidgetNotChanged() {
+        // Arrange
+        Widget widget = getWidget();
+        widget.setZIndex(1);
+        Widget created = repository.create(widget);
+        Optional<Widget> result = repository.getById(created.getId());
+        Assert.assertTrue(result.isPresent());
+        Widget widgetSecond = getWidget();
+        widgetSecond.setZIndex(1);
+
+        // Act
+        repository.create(widgetSecond);
+        result.get().setXIndex(100);
+
+        // Assert
+        Optional<Widget> resultAfterShift = repository.getById(created.getId());
+        Assert.assertTrue(resultAfterShift.isPresent());
+        Assert.assertEquals(1, (int) result.get().getZIndex());
+        Assert.assertEquals(2, (int) resultAfterShift.get().getZIndex());
+        Assert.assertEquals(widget.getXIndex(), resultAfterShift.get().getXIndex());
+    }
+
+    @Test
+    public void testWidgetRepositoryInMemoryImpl_WhenGetAllInArea_ThenReturnIntersectingSortedByZIndex() {
+        // Arrange
+        Widget inside = getWidget();
+        inside.setZIndex(3);
+        Widget crossing = getWidget();
+        crossing.setXIndex(-50);
+        crossing.setYIndex(-50);
+        crossing.setWidth(60);
+        crossing.setHeight(60);
+        crossing.setZIndex(1);
+        Widget outside = getWidget();
+        outside.setXIndex(500);
+        outside.setZIndex(2);
+        Widget large = getWidget();
+        large.setXIndex(-100000);
+        large.setYIndex(-100000);
+        large.setWidth(200000);
+        large.setHeight(200000);
+        large.setZIndex(4);
+        Widget createdInside = repository.create(inside);
+        Widget createdCrossing = repository.create(crossing);
+        repository.create(outside);
+        Widget createdLarge = repository.create(large);
+
+        // Act
+        List<Widget> widgets = repository.getAllInArea(new Area(0, 0, 100, 100), Limit.defaultLimit());
+
+        // Assert
+        Assert.assertEquals(3, widgets.size());
+        Assert.assertEquals(createdCrossing.getId(), widgets.get(0).getId());
+        Assert.assertEquals(createdInside.getId(), widgets.get(1).getId());
+        Assert.assertEquals(createdLarge.getId(), widgets.get(2).getId());
+    }
+
+    @Test
+    public void testWidgetRepositoryInMemoryImpl_WhenGetAllInAreaAfterMoveAndDelete_ThenReturnActualWidgets() {
+        // Arrange
+        Widget widget = getWidget();
+        Widget widgetSecond = getWidget();
+        Widget created = repository.create(widget);
+        Widget createdSecond = repository.create(widgetSecond);
+        Widget moved = getWidget();
+        moved.setId(created.getId());
+        moved.setXIndex(10000);
+        moved.setZIndex(null);
+        repository.update(moved);
+        repository.delete(createdSecond.getId());
+
+        // Act
+        List<Widget> widgetsOld = repository.getAllInArea(new Area(0, 0, 100, 100), Limit.defaultLimit());
+        List<Widget> widgetsNew = repository.getAllInArea(new Area(9000, 0, 11000, 100), Limit.defaultLimit());
+
+        // Assert
+        Assert.assertTrue(widgetsOld.isEmpty());
+        Assert.assertEquals(1, widgetsNew.size());
+        Assert.assertEquals(created.getId(), widgetsNew.get(0).getId());
+    }
+
+    @Test
+    public void testWidgetRepositoryInMemoryImpl_WhenGetPagesByCursor_ThenReturnAllWidgetsOnce() {
+        // Arrange
+        List<Long> expected = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            expected.add(repository.create(getWidgetWithoutZIndex()).getId());
+        }
+
+        // Act
+        List<Long> result = new ArrayList<>();
+        Cursor cursor = null;
+        int pages = 0;
+        do {
+            WidgetPage page = repository.getPage(cursor, new Limit(10, 0));
+            page.getWidgets().forEach(widget -> result.add(widget.getId()));
+            cursor = page.getNext();
+            pages++;
+        } while (cursor != null);
+
+        // Assert
+        Assert.assertEquals(3, pages);
+        Assert.assertEquals(expected, result);
+    }
+
+    @Test
+    public void testWidgetRepositoryInMemoryImpl_WhenShiftBetweenPages_ThenNoWidgetRepeatedOrSkipped() {
+        // Arrange
+        List<Long> expected = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            expected.add(repository.create(getWidgetWithoutZIndex()).getId());
+        }
+        WidgetPage first = repository.getPage(null, new Limit(10, 0));
+
+        // Act
+        Widget below = getWidget();
+        below.setZIndex(1);
+        repository.create(below);
+        Widget atCursor = getWidget();
+        atCursor.setZIndex(first.getNext().getZIndex());
+        repository.create(atCursor);
+        WidgetPage second = repository.getPage(first.getNext(), new Limit(10, 0));
+
+        // Assert
+        List<Long> result = new ArrayList<>();
+        first.getWidgets().forEach(widget -> result.add(widget.getId()));
+        second.getWidgets().forEach(widget -> result.add(widget.getId()));
+        Assert.assertEquals(expected, result);
+        Assert.assertNull(second.getNext());
+    }
+
+    @Test(expected = InvalidCursorException.class)
+    public void testWidgetRepositoryInMemoryImpl_WhenCursorIsOlderThanShiftLog_ThenThrowException() {
+        // Arrange
+        repository.create(getWidgetWithoutZIndex());
+        repository.create(getWidgetWithoutZIndex());
+        Cursor cursor = repository.getPage(null, new Limit(1, 0)).getNext();
+        for (int i = 0; i <= ShiftLog.CAPACITY; i++) {
+            Widget widget = getWidget();
+            widget.setZIndex(1);
+            repository.create(widget);
+        }
+
+        // Act
+        repository.getPage(cursor, new Limit(1, 0));
+    }
+
+    @Test
+    public void testWidgetRepositoryInMemoryImpl_WhenBatch_ThenApplyOperationsInOrder() {
+        // Arrange
+        Widget existing = repository.create(getWidget());
+        Widget toCreate = getWidget();
+        Widget toUpdate = getWidget();
+        toUpdate.setId(existing.getId());
+        toUpdate.setXIndex(1000);
+        toUpdate.setZIndex(1);
+        List<BatchOperation> operations = List.of(
+                BatchOperation.builder().type(BatchOperation.Type.CREATE).widget(toCreate).build(),
+                BatchOperation.builder().type(BatchOperation.Type.UPDATE).widget(toUpdate).build(),
+                BatchOperation.builder().type(BatchOperation.Type.DELETE).id(100L).build(),
+                BatchOperation.builder().type(BatchOperation.Type.DELETE).id(existing.getId()).build());
+
+        // Act
+        List<BatchResult> results = repository.batch(operations);
+
+        // Assert
+        Assert.assertEquals(4, results.size());
+        Assert.assertEquals(BatchResult.Status.OK, results.get(0).getStatus());
+        Assert.assertEquals(2L, (long) results.get(0).getWidget().getId());
+        Assert.assertEquals(BatchResult.Status.OK, results.get(1).getStatus());
+        Assert.assertEquals(1000, (int) results.get(1).getWidget().getXIndex());
+        Assert.assertEquals(BatchResult.Status.NOT_FOUND, results.get(2).getStatus());
+        Assert.assertEquals(BatchResult.Status.OK, results.get(3).getStatus());
+        Assert.assertFalse(repository.getById(existing.getId()).isPresent());
+        Assert.assertEquals(1, repository.getAll(Limit.defaultLimit()).size());
+    }
+
+    @Test
+    public void testWidgetRepositoryInMemoryImpl_WhenBatchCreatesOnSameZIndex_ThenShiftLikeSingleCreates() {
+        // Arrange
+        List<BatchOperation> operations = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Widget widget = getWidget();
+            widget.setZIndex(1);
+            operations.add(BatchOperation.builder().type(BatchOperation.Type.CREATE).widget(widget).build());
+        }
+
+        // Act
+        repository.batch(operations);
+
+        // Assert
+        List<Widget> widgets = repository.getAll(Limit.defaultLimit());
+        Assert.assertEquals(3L, (long) widgets.get(0).getId());
+        Assert.assertEquals(1, (int) widgets.get(0).getZIndex());
+        Assert.assertEquals(2L, (long) widgets.get(1).getId());
+        Assert.assertEquals(2, (int) widgets.get(1).getZIndex());
+        Assert.assertEquals(1L, (long) widgets.get(2).getId());
+        Assert.assertEquals(3, (int) widgets.get(2).getZIndex());
+    }
+
+    @Test
+    public void testWidgetRepositoryInMemoryImpl_WhenRestore_ThenKeepIdZIndexAndModificationDate() {
+        // Arrange
+        Widget widget = getWidget();
+        widget.setId(7L);
+        widget.setModifiedAt(LocalDateTime.of(2020, 1, 2, 3, 4, 5, 6));
+
+        // Act
+        repository.restore(widget);
+        Widget created = repository.create(getWidgetWithoutZIndex());
+
+        // Assert
+        Widget restored = repository.getById(7L).get();
+        Assert.assertEquals(55, (int) restored.getZIndex());
+        Assert.assertEquals(widget.getModifiedAt(), restored.getModifiedAt());
+        Assert.assertEquals(8L, (long) created.getId());
+        Assert.assertEquals(56, (int) created.getZIndex());
+    }
+
+    @Test
+    public void testWidgetRepositoryInMemoryImpl_WhenRestoreExistingWidgetWithTakenZIndex_ThenReplaceItAndShiftOthers() {
+        // Arrange
+        Widget first = repository.create(getWidget());
+        Widget second = getWidget();
+        second.setZIndex(56);
+        repository.create(second);
+        Widget restored = getWidget();
+        restored.setId(second.getId());
+        restored.setZIndex(55);
+        restored.setXIndex(100);
+        restored.setModifiedAt(LocalDateTime.now());
+
+        // Act
+        repository.restore(restored);
+
+        // Assert
+        List<Widget> widgets = repository.getAll(Limit.defaultLimit());
+        Assert.assertEquals(2, widgets.size());
+        Assert.assertEquals(second.getId(), widgets.get(0).getId());
+        Assert.assertEquals(55, (int) widgets.get(0).getZIndex());
+        Assert.assertEquals(100, (int) widgets.get(0).getXIndex());
+        Assert.assertEquals(first.getId(), widgets.get(1).getId());
+        Assert.assertEquals(56, (int) widgets.get(1).getZIndex());
+    }
+
+    @Test
+    public void testWidgetRepositoryInMemoryImpl_WhenRestoreSnapshot_ThenReturnSameWidgets() {
+        // Arrange
+        for (int i = 0; i < 100; i++) {
+            Widget widget = getWidget();
+            widget.setZIndex(i % 10);
+            widget.setXIndex(i);
+            repository.create(widget);
+        }
+        repository.delete(50L);
+        List<Widget> expected = repository.getAll(new Limit(200, 0));
+        Area area = new Area(30, 0, 60, 50);
+        List<Widget> expectedInArea = repository.getAllInArea(area, Limit.defaultLimit());
+        WidgetSnapshot snapshot = repository.snapshot();
+
+        // Act
+        repository.clear();
+        repository.restore(snapshot);
+
+        // Assert
+        long version = repository.changes().sequence();
+        expected = withVersion(expected, version);
+        Assert.assertEquals(99, snapshot.size());
+        Assert.assertEquals(expected, repository.getAll(new Limit(200, 0)));
+        Assert.assertEquals(expected.get(30), repository.getById(expected.get(30).getId()).get());
+        Assert.assertFalse(expectedInArea.isEmpty());
+        Assert.assertEquals(withVersion(expectedInArea, version), repository.getAllInArea(area, Limit.defaultLimit()));
+        Widget created = repository.create(getWidget());
+        Assert.assertEquals(101L, (long) created.getId());
+        Widget bottom = getWidget();
+        bottom.setZIndex(expected.get(0).getZIndex());
+        repository.create(bottom);
+        Assert.assertEquals(bottom.getId(), repository.getAll(Limit.defaultLimit()).get(0).getId());
+        Assert.assertEquals(expected.get(0).getZIndex() + 1, (int) repository.getById(expected.get(0).getId()).get().getZIndex());
+    }
+
+    @Test
+    public void testWidgetRepositoryInMemoryImpl_WhenWidgetsChanged_ThenPublishChangesInOrder() throws InterruptedException {
+        // Arrange
+        long before = repository.changes().sequence();
+        Widget first = repository.create(getWidget());
+        Widget second = repository.create(getWidget());
+        second.setXIndex(100);
+
+        // Act
+        repository.update(second);
+        repository.delete(first.getId());
+
+        // Assert
+        List<WidgetEvent> changes = repository.changes().read(before, 10, 0);
+        Assert.assertEquals(5, changes.size());
+        Assert.assertEquals(WidgetEvent.Type.CREATE, changes.get(0).getType());
+        Assert.assertEquals(first.getId(), changes.get(0).getWidget().getId());
+        Assert.assertEquals(WidgetEvent.Type.SHIFT, changes.get(1).getType());
+        Assert.assertEquals(first.getZIndex(), changes.get(1).getZIndex());
+        Assert.assertEquals(WidgetEvent.Type.CREATE, changes.get(2).getType());
+        Assert.assertEquals(WidgetEvent.Type.UPDATE, changes.get(3).getType());
+        Assert.assertEquals(100, (int) changes.get(3).getWidget().getXIndex());
+        Assert.assertEquals(WidgetEvent.Type.DELETE, changes.get(4).getType());
+        Assert.assertEquals(first.getId(), changes.get(4).getId());
+        Assert.assertEquals(before + 5, changes.get(4).getSequence());
+    }
+
+    @Test
+    public void testWidgetRepositoryInMemoryImpl_WhenSnapshotTaken_ThenHoldSequenceOfLastChange() throws InterruptedException {
+        // Arrange
+        repository.create(getWidget());
+        repository.create(getWidget());
+
+        // Act
+        WidgetSnapshot snapshot = repository.snapshot();
+        repository.clear();
+
+        // Assert
+        Assert.assertEquals(repository.changes().sequence() - 1, snapshot.getSequence());
+        Assert.assertEquals(WidgetEvent.Type.RESET,
+                repository.changes().read(snapshot.getSequence(), 10, 0).get(0).getType());
+    }
+
+    @Test
+    public void testWidgetRepositoryInMemoryImpl_WhenWidgetsChanged_ThenSetVersionsAndIndexChangedIds() {
+        // Arrange
+        long before = repository.changes().sequence();
+        Widget first = repository.create(getWidget());
+        Widget second = repository.create(getWidget());
+        Widget third = repository.create(getWidget());
+        long version = repository.changes().sequence();
+
+        // Act
+        first.setXIndex(100);
+        repository.update(first);
+        long updated = repository.changes().sequence();
+        repository.delete(second.getId());
+
+        // Assert
+        ChangeFeed.ChangedIds result = repository.changes().changedSince(version);
+        Assert.assertEquals(updated + 1, result.getVersion());
+        Assert.assertArrayEquals(new long[]{first.getId(), -second.getId()}, result.getIds());
+        Assert.assertEquals(updated, (long) repository.getById(first.getId()).get().getVersion());
+        Assert.assertEquals(third.getVersion(), repository.getById(third.getId()).get().getVersion());
+        Assert.assertEquals(3, repository.changes().changedSince(before).getIds().length);
+        Assert.assertNull(repository.changes().changedSince(updated + 2));
+    }
+
+    @Test
+    public void testWidgetRepositoryInMemoryImpl_WhenRestoreSnapshot_ThenExpireEarlierVersions() {
+        // Arrange
+        repository.create(getWidget());
+        long version = repository.changes().sequence();
+
+        // Act
+        repository.restore(repository.snapshot());
+
+        // Assert
+        Assert.assertNull(repository.changes().changedSince(version));
+        Assert.assertArrayEquals(new long[0],
+                repository.changes().changedSince(repository.changes().sequence()).getIds());
+    }
+
+    @Test
+    public void testWidgetRepositoryInMemoryImpl_WhenWidgetCreatedOnTakenZIndex_ThenReportShiftAsRange() {
+        // Arrange
+        Widget shifted = repository.create(getWidget());
+        long version = repository.changes().sequence();
+
+        // Act
+        Widget created = repository.create(getWidget());
+
+        // Assert
+        WidgetChanges result = repository.getChangesSince(version).get();
+        Assert.assertEquals(repository.changes().sequence(), result.getVersion());
+        Assert.assertEquals(1, result.getShifts().size());
+        Assert.assertEquals(created.getZIndex(), (Integer) result.getShifts().get(0).getZIndex());
+        Assert.assertEquals(1, result.getWidgets().size());
+        Assert.assertEquals(created.getId(), result.getWidgets().get(0).getId());
+        Widget stored = repository.getById(shifted.getId()).get();
+        Assert.assertEquals(shifted.getZIndex() + 1, (int) stored.getZIndex());
+        Assert.assertEquals(shifted.getVersion(), stored.getVersion());
+        Assert.assertEquals(shifted.getModifiedAt(), stored.getModifiedAt());
+    }
+
+    @Test
+    public void testWidgetRepositoryInMemoryImpl_WhenGetChangesSinceExpiredVersion_ThenReturnEmptyOptional() {
+        // Arrange
+        repository.create(getWidget());
+        long version = repository.changes().sequence();
+
+        // Act
+        repository.clear();
+
+        // Assert
+        Assert.assertFalse(repository.getChangesSince(version).isPresent());
+        Assert.assertTrue(repository.getChangesSince(repository.changes().sequence()).get().getWidgets().isEmpty());
+    }
+
+    @Test
+    public void testWidgetRepositoryInMemoryImpl_WhenUpdateWithCurrentVersion_ThenUpdateWidget() {
+        // Arrange
+        Widget widget = repository.create(getWidget());
+        Widget read = repository.getById(widget.getId()).get();
+        read.setXIndex(100);
+
+        // Act
+        Widget result = repository.update(read);
+
+        // Assert
+        Assert.assertTrue(result.getVersion() > widget.getVersion());
+        Assert.assertEquals(100, (int) repository.getById(widget.getId()).get().getXIndex());
+    }
+
+    @Test
+    public void testWidgetRepositoryInMemoryImpl_WhenUpdateWithStaleVersion_ThenThrowAndKeepWidget() {
+        // Arrange
+        Widget widget = repository.create(getWidget());
+        Widget stale = repository.getById(widget.getId()).get();
+        Widget current = repository.getById(widget.getId()).get();
+        current.setXIndex(100);
+        repository.update(current);
+        stale.setXIndex(200);
+        stale.setZIndex(1000);
+
+        // Act
+        try {
+            repository.update(stale);
+            Assert.fail();
+        } catch (VersionConflictException ignored) {}
+
+        // Assert
+        Widget result = repository.getById(widget.getId()).get();
+        Assert.assertEquals(100, (int) result.getXIndex());
+        Assert.assertEquals(current.getVersion(), result.getVersion());
+        Assert.assertEquals(widget.getZIndex(), result.getZIndex());
+        Assert.assertEquals(current.getVersion(), (Long) repository.changes().sequence());
+    }
+
+    @Test
+    public void testWidgetRepositoryInMemoryImpl_WhenBatchUpdatesWithStaleVersion_ThenReturnConflict() {
+        // Arrange
+        Widget widget = repository.create(getWidget());
+        Widget stale = widget.toBuilder().version(widget.getVersion() - 1).xIndex(100).build();
+        Widget current = widget.toBuilder().xIndex(200).build();
+
+        // Act
+        List<BatchResult> result = repository.batch(List.of(
+                BatchOperation.builder().type(BatchOperation.Type.UPDATE).widget(stale).build(),
+                BatchOperation.builder().type(BatchOperation.Type.UPDATE).widget(current).build()));
+
+        // Assert
+        Assert.assertEquals(BatchResult.Status.CONFLICT, result.get(0).getStatus());
+        Assert.assertEquals(BatchResult.Status.OK, result.get(1).getStatus());
+        Assert.assertEquals(200, (int) repository.getById(widget.getId()).get().getXIndex());
+    }
+
+    @Test
+    public void testWidgetRepositoryInMemoryImpl_WhenPatchGeometry_ThenKeepZIndexAndOtherValues() {
+        // Arrange
+        Widget widget = repository.create(getWidget());
+        Widget above = repository.create(getWidget().toBuilder().zIndex(widget.getZIndex() + 1).build());
+        long sequence = repository.changes().sequence();
+
+        // Act
+        Widget result = repository.patch(widget.getId(), Widget.builder().xIndex(12).yIndex(5000).build()).get();
+
+        // Assert
+        Assert.assertEquals(widget.getZIndex(), result.getZIndex());
+        Assert.assertEquals(widget.getWidth(), result.getWidth());
+        Assert.assertEquals(5000, (int) result.getYIndex());
+        Assert.assertEquals(sequence + 1, (long) result.getVersion());
+        Assert.assertEquals(result, repository.getById(widget.getId()).get());
+        Assert.assertEquals(above.getZIndex(), repository.getById(above.getId()).get().getZIndex());
+        Assert.assertEquals(List.of(result),
+                repository.getAllInArea(new Area(0, 4990, 100, 5010), Limit.defaultLimit()));
+    }
+
+    @Test
+    public void testWidgetRepositoryInMemoryImpl_WhenPatchZIndex_ThenShiftOtherWidgets() {
+        // Arrange
+        Widget bottom = repository.create(getWidget().toBuilder().zIndex(1).build());
+        Widget top = repository.create(getWidget().toBuilder().zIndex(2).build());
+
+        // Act
+        Widget result = repository.patch(top.getId(), Widget.builder().zIndex(1).build()).get();
+
+        // Assert
+        Assert.assertEquals(1, (int) result.getZIndex());
+        Assert.assertEquals(top.getXIndex(), result.getXIndex());
+        Assert.assertEquals(2, (int) repository.getById(bottom.getId()).get().getZIndex());
+    }
+
+    @Test
+    public void testWidgetRepositoryInMemoryImpl_WhenPatchMissingWidget_ThenReturnEmptyOptional() {
+        // Act
+        Optional<Widget> result = repository.patch(100L, Widget.builder().xIndex(1).build());
+
+        // Assert
+        Assert.assertFalse(result.isPresent());
+    }
+
+    @Test(expected = VersionConflictException.class)
+    public void testWidgetRepositoryInMemoryImpl_WhenPatchWithStaleVersion_ThenThrowVersionConflictException() {
+        // Arrange
+        Widget widget = repository.create(getWidget());
+        repository.patch(widget.getId(), Widget.builder().xIndex(1).build());
+
+        // Act
+        repository.patch(widget.getId(), Widget.builder().xIndex(2).version(widget.getVersion()).build());
+    }
+
+    /**
+     * Copies widgets setting version, widgets restored from snapshot get version of restore
+     */
+    private static List<Widget> withVersion(List<Widget> widgets, long version) {
+        List<Widget> result = new ArrayList<>(widgets.size());
+        for (Widget widget : widgets) {
+            result.add(widget.toBuilder().version(version).build());
+        }
+        return result;
+    }
+
+    private Widget getWidgetWithoutZIndex() {
+        Widget widget = getWidget();
+        widget.setZIndex(null);
+        return widget;
+    }
+
     private Widget getWidget() {
         return Widget.builder()
                 .height(1)
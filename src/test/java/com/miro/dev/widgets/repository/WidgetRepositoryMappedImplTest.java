@@ -0,0 +1,142 @@
+package com.miro.dev.widgets.repository;
+
+import com.miro.dev.widgets.model.Limit;
+import com.miro.dev.widgets.model.Widget;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+/**
+ * Runs all repository tests against store kept in memory-mapped files
+ * and checks that store is opened again from them
+ */
+public class WidgetRepositoryMappedImplTest extends WidgetRepositoryInMemoryImplTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Override
+    protected WidgetRepository createRepository() {
+        return open();
+    }
+
+    @After
+    public void close() {
+        ((WidgetRepositoryMappedImpl) repository).close();
+    }
+
+    @Test
+    public void testWidgetRepositoryMappedImpl_WhenReopen_ThenKeepWidgetsAndCounter() {
+        // Arrange
+        Random random = new Random(1);
+        for (int i = 0; i < 100; i++) {
+            repository.create(widget(random.nextInt(50)));
+        }
+        repository.delete(10L);
+        Widget updated = repository.getById(20L).orElseThrow();
+        updated.setZIndex(1);
+        repository.update(updated);
+        List<Widget> expected = repository.getAll(new Limit(500, 0));
+
+        // Act
+        close();
+        repository = open();
+
+        // Assert
+        Assert.assertEquals(expected, repository.getAll(new Limit(500, 0)));
+        Assert.assertEquals(101L, (long) repository.create(widget(null)).getId());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testWidgetRepositoryMappedImpl_WhenRestartedWithWriteAheadLog_ThenRejectStart() {
+        // Arrange
+        repository.create(widget(1));
+        repository.create(widget(1));
+        close();
+        repository = open();
+
+        try (WriteAheadLog log = new WriteAheadLog(folder.getRoot().toPath().resolve("widgets.wal"),
+                WriteAheadLog.Durability.SYNC, Duration.ofMillis(5))) {
+            // Act
+            new PersistenceConfig().persistentWidgetRepository(repository, Optional.of(log), Optional.empty());
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testWidgetRepositoryMappedImpl_WhenRestartedWithSnapshots_ThenRejectStart() {
+        // Arrange
+        SnapshotStore snapshots = new SnapshotStore(folder.getRoot().toPath().resolve("widgets.snapshot"),
+                Duration.ofMinutes(1));
+
+        // Act
+        new PersistenceConfig().persistentWidgetRepository(repository, Optional.empty(), Optional.of(snapshots));
+    }
+
+    @Test
+    public void testWidgetRepositoryMappedImpl_WhenReopenAfterClear_ThenStoreIsEmpty() {
+        // Arrange
+        repository.create(widget(1));
+        repository.clear();
+
+        // Act
+        close();
+        repository = open();
+
+        // Assert
+        Assert.assertTrue(repository.getAll(Limit.defaultLimit()).isEmpty());
+        Assert.assertEquals(1L, (long) repository.create(widget(null)).getId());
+    }
+
+    @Test
+    public void testWidgetRepositoryMappedImpl_WhenStoreWasNotClosed_ThenCheckAndKeepWidgets() {
+        // Arrange
+        repository.create(widget(1));
+        repository.create(widget(1));
+        List<Widget> expected = repository.getAll(Limit.defaultLimit());
+
+        // Act
+        WidgetRepository reopened = open();
+
+        // Assert
+        Assert.assertEquals(expected, reopened.getAll(Limit.defaultLimit()));
+        ((WidgetRepositoryMappedImpl) reopened).close();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testWidgetRepositoryMappedImpl_WhenTreeIsCorruptedAndStoreWasNotClosed_ThenThrowException() throws IOException {
+        // Arrange
+        repository.create(widget(1));
+        repository.create(widget(2));
+        try (FileChannel channel = FileChannel.open(folder.getRoot().toPath().resolve("tree"),
+                StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(64), 0);
+        }
+
+        // Act
+        open();
+    }
+
+    private WidgetRepositoryMappedImpl open() {
+        return new WidgetRepositoryMappedImpl(folder.getRoot().getPath());
+    }
+
+    private static Widget widget(Integer zIndex) {
+        return Widget.builder()
+                .height(1)
+                .width(2)
+                .xIndex(11)
+                .yIndex(22)
+                .zIndex(zIndex)
+                .build();
+    }
+}
@@ -0,0 +1,11 @@
+package com.miro.dev.widgets.repository;
+
+/**
+ * Runs all repository tests against off-heap store
+ */
+public class WidgetRepositoryOffHeapImplTest extends WidgetRepositoryInMemoryImplTest {
+    @Override
+    protected WidgetRepository createRepository() {
+        return new WidgetRepositoryOffHeapImpl();
+    }
+}
@@ -0,0 +1,305 @@
+package com.miro.dev.widgets.repository;
+
+import com.miro.dev.widgets.model.BatchOperation;
+import com.miro.dev.widgets.model.Limit;
+import com.miro.dev.widgets.model.Widget;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Runs all repository tests against store with write-ahead log
+ * and checks that store is restored from log
+ */
+public class WidgetRepositoryWalImplTest extends WidgetRepositoryInMemoryImplTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private WriteAheadLog log;
+
+    @Override
+    protected WidgetRepository createRepository() {
+        return open(new WidgetRepositoryInMemoryImpl());
+    }
+
+    @After
+    public void close() {
+        log.close();
+    }
+
+    @Test
+    public void testWidgetRepositoryWalImpl_WhenReopen_ThenRestoreWidgets() {
+        // Arrange
+        Widget first = repository.create(widget(1));
+        Widget second = repository.create(widget(1));
+        Widget third = repository.create(widget(null));
+        second.setXIndex(100);
+        repository.update(second);
+        repository.delete(first.getId());
+        List<Widget> expected = repository.getAll(Limit.defaultLimit());
+
+        // Act
+        WidgetRepository reopened = reopen(new WidgetRepositoryArrayImpl());
+
+        // Assert
+        Assert.assertEquals(withoutVersions(expected), withoutVersions(reopened.getAll(Limit.defaultLimit())));
+        Assert.assertEquals(third.getId() + 1, (long) reopened.create(widget(null)).getId());
+    }
+
+    @Test
+    public void testWidgetRepositoryWalImpl_WhenReopenAfterPatch_ThenRestorePatchedWidget() {
+        // Arrange
+        Widget widget = repository.create(widget(1));
+        repository.patch(widget.getId(), Widget.builder().xIndex(100).build());
+        repository.patch(100L, Widget.builder().xIndex(100).build());
+
+        // Act
+        WidgetRepository reopened = reopen(new WidgetRepositoryArrayImpl());
+
+        // Assert
+        Assert.assertEquals(withoutVersions(repository.getAll(Limit.defaultLimit())),
+                withoutVersions(reopened.getAll(Limit.defaultLimit())));
+        Assert.assertEquals(100, (int) reopened.getById(widget.getId()).get().getXIndex());
+    }
+
+    @Test
+    public void testWidgetRepositoryWalImpl_WhenReopenAfterClearAndBatch_ThenRestoreWidgets() {
+        // Arrange
+        repository.create(widget(1));
+        repository.clear();
+        Widget created = repository.create(widget(5));
+        repository.batch(Arrays.asList(
+                BatchOperation.builder().type(BatchOperation.Type.CREATE).widget(widget(5)).build(),
+                BatchOperation.builder().type(BatchOperation.Type.DELETE).id(created.getId()).build(),
+                BatchOperation.builder().type(BatchOperation.Type.DELETE).id(100L).build()));
+        List<Widget> expected = repository.getAll(Limit.defaultLimit());
+
+        // Act
+        WidgetRepository reopened = reopen(new WidgetRepositoryInMemoryImpl());
+
+        // Assert
+        Assert.assertEquals(1, expected.size());
+        Assert.assertEquals(withoutVersions(expected), withoutVersions(reopened.getAll(Limit.defaultLimit())));
+    }
+
+    @Test
+    public void testWidgetRepositoryWalImpl_WhenUpdateMissingWidget_ThenDoNotRestoreIt() {
+        // Arrange
+        Widget missing = widget(1);
+        missing.setId(10L);
+        repository.update(missing);
+
+        // Act
+        WidgetRepository reopened = reopen(new WidgetRepositoryInMemoryImpl());
+
+        // Assert
+        Assert.assertTrue(reopened.getAll(Limit.defaultLimit()).isEmpty());
+    }
+
+    @Test
+    public void testWidgetRepositoryWalImpl_WhenTailIsTorn_ThenRestoreWidgetsBeforeItAndAppendAfterThem() throws IOException {
+        // Arrange
+        repository.create(widget(1));
+        repository.create(widget(2));
+        log.close();
+        try (FileChannel channel = FileChannel.open(logPath(), StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        // Act
+        repository = open(new WidgetRepositoryInMemoryImpl());
+        repository.create(widget(3));
+        WidgetRepository reopened = reopen(new WidgetRepositoryInMemoryImpl());
+
+        // Assert
+        List<Widget> widgets = reopened.getAll(Limit.defaultLimit());
+        Assert.assertEquals(2, widgets.size());
+        Assert.assertEquals(1L, (long) widgets.get(0).getId());
+        Assert.assertEquals(2L, (long) widgets.get(1).getId());
+        Assert.assertEquals(3, (int) widgets.get(1).getZIndex());
+    }
+
+    @Test
+    public void testWidgetRepositoryWalImpl_WhenRecordIsCorrupted_ThenRestoreWidgetsBeforeIt() throws IOException {
+        // Arrange
+        repository.create(widget(1));
+        repository.create(widget(2));
+        repository.create(widget(3));
+        log.close();
+        try (FileChannel channel = FileChannel.open(logPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{(byte) 0xff}), channel.size() / 2);
+        }
+
+        // Act
+        repository = open(new WidgetRepositoryInMemoryImpl());
+
+        // Assert
+        List<Widget> widgets = repository.getAll(Limit.defaultLimit());
+        Assert.assertEquals(1, widgets.size());
+        Assert.assertEquals(1L, (long) widgets.get(0).getId());
+    }
+
+    @Test
+    public void testWidgetRepositoryWalImpl_WhenDurabilityIsBatch_ThenRestoreWidgets() {
+        // Arrange
+        log.close();
+        log = new WriteAheadLog(logPath(), WriteAheadLog.Durability.BATCH, Duration.ofMillis(1));
+        log.replay(new WidgetRepositoryInMemoryImpl());
+        repository = new WidgetRepositoryWalImpl(new WidgetRepositoryInMemoryImpl(), log);
+        repository.create(widget(1));
+
+        // Act
+        WidgetRepository reopened = reopen(new WidgetRepositoryInMemoryImpl());
+
+        // Assert
+        Assert.assertEquals(1, reopened.getAll(Limit.defaultLimit()).size());
+    }
+
+    @Test(expected = UncheckedIOException.class, timeout = 10_000)
+    public void testWidgetRepositoryWalImpl_WhenDurabilityIsBatchAndWriteFails_ThenFailWriter() {
+        // Arrange
+        Path full = Paths.get("/dev/full");
+        Assume.assumeTrue(Files.isWritable(full));
+        try (WriteAheadLog failing = new WriteAheadLog(full, WriteAheadLog.Durability.BATCH, Duration.ofMillis(1))) {
+            WidgetRepository failingRepository = new WidgetRepositoryWalImpl(new WidgetRepositoryInMemoryImpl(), failing);
+
+            // Act
+            failingRepository.create(widget(1));
+        }
+    }
+
+    @Test
+    public void testWidgetRepositoryWalImpl_WhenRestoreSnapshotAndReplayLogAfterIt_ThenRestoreWidgets() {
+        // Arrange
+        repository.create(widget(1));
+        repository.create(widget(1));
+        WidgetSnapshot snapshot = repository.snapshot();
+        repository.create(widget(1));
+        repository.delete(1L);
+        List<Widget> expected = repository.getAll(Limit.defaultLimit());
+
+        // Act
+        log.close();
+        WidgetRepository store = new WidgetRepositoryArrayImpl();
+        store.restore(snapshot);
+        log = new WriteAheadLog(logPath(), WriteAheadLog.Durability.SYNC, Duration.ofMillis(5));
+        long replayed = log.replay(store, snapshot.getLogPosition());
+
+        // Assert
+        Assert.assertEquals(2, replayed);
+        Assert.assertEquals(withoutVersions(expected), withoutVersions(store.getAll(Limit.defaultLimit())));
+    }
+
+    @Test
+    public void testWidgetRepositoryWalImpl_WhenRestoreAfterRotationBySnapshot_ThenRestoreWidgetsAndDropOldSegments()
+            throws IOException {
+        // Arrange
+        SnapshotStore snapshots = new SnapshotStore(folder.getRoot().toPath().resolve("widgets.snapshot"),
+                Duration.ofMinutes(1), log);
+        for (int i = 0; i < 10; i++) {
+            repository.create(widget(1));
+        }
+        snapshots.take(repository);
+        repository.create(widget(1));
+        repository.delete(2L);
+        snapshots.take(repository);
+        Widget moved = repository.getById(3L).get();
+        moved.setZIndex(1);
+        repository.update(moved);
+        List<Widget> expected = repository.getAll(Limit.defaultLimit());
+
+        // Act
+        log.close();
+        WidgetSnapshot snapshot = snapshots.load().get();
+        WidgetRepository store = new WidgetRepositoryArrayImpl();
+        store.restore(snapshot);
+        log = new WriteAheadLog(logPath(), WriteAheadLog.Durability.SYNC, Duration.ofMillis(5));
+        long replayed = log.replay(store, snapshot.getLogPosition());
+
+        // Assert
+        Assert.assertEquals(1, replayed);
+        Assert.assertEquals(withoutVersions(expected), withoutVersions(store.getAll(Limit.defaultLimit())));
+        Assert.assertFalse(Files.exists(logPath()));
+        try (Stream<Path> files = Files.list(folder.getRoot().toPath())) {
+            Assert.assertEquals(1, files.filter(file -> file.getFileName().toString().startsWith("widgets.wal")).count());
+        }
+    }
+
+    @Test
+    public void testWidgetRepositoryWalImpl_WhenRotatedBeforeNeededPosition_ThenReplayAcrossSegments() {
+        // Arrange
+        repository.create(widget(1));
+        WidgetSnapshot snapshot = repository.snapshot();
+        repository.create(widget(1));
+        log.rotate(snapshot.getLogPosition());
+        repository.create(widget(null));
+        List<Widget> expected = repository.getAll(Limit.defaultLimit());
+
+        // Act
+        log.close();
+        WidgetRepository store = new WidgetRepositoryInMemoryImpl();
+        store.restore(snapshot);
+        log = new WriteAheadLog(logPath(), WriteAheadLog.Durability.SYNC, Duration.ofMillis(5));
+        long replayed = log.replay(store, snapshot.getLogPosition());
+        new WidgetRepositoryWalImpl(store, log).create(widget(null));
+        WidgetRepository reopened = reopen(new WidgetRepositoryInMemoryImpl());
+
+        // Assert
+        Assert.assertEquals(2, replayed);
+        Assert.assertEquals(withoutVersions(expected), withoutVersions(store.getAll(Limit.defaultLimit()).subList(0, 3)));
+        Assert.assertEquals(4, reopened.getAll(Limit.defaultLimit()).size());
+    }
+
+    /**
+     * Copies widgets without versions, versions are not logged and widgets get new ones on replay
+     */
+    private static List<Widget> withoutVersions(List<Widget> widgets) {
+        List<Widget> result = new ArrayList<>(widgets.size());
+        for (Widget widget : widgets) {
+            result.add(widget.toBuilder().version(null).build());
+        }
+        return result;
+    }
+
+    private WidgetRepository reopen(WidgetRepository store) {
+        log.close();
+        return open(store);
+    }
+
+    private WidgetRepository open(WidgetRepository store) {
+        log = new WriteAheadLog(logPath(), WriteAheadLog.Durability.SYNC, Duration.ofMillis(5));
+        log.replay(store);
+        return new WidgetRepositoryWalImpl(store, log);
+    }
+
+    private Path logPath() {
+        return folder.getRoot().toPath().resolve("widgets.wal");
+    }
+
+    private static Widget widget(Integer zIndex) {
+        return Widget.builder()
+                .height(1)
+                .width(2)
+                .xIndex(11)
+                .yIndex(22)
+                .zIndex(zIndex)
+                .build();
+    }
+}
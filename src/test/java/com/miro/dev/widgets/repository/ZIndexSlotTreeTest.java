@@ -0,0 +1,137 @@
+package com.miro.dev.widgets.repository;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class ZIndexSlotTreeTest {
+    private ZIndexSlotTree tree;
+
+    @Before
+    public void init() {
+        tree = new ZIndexSlotTree();
+    }
+
+    @Test
+    public void testZIndexSlotTree_WhenForEachWithOffsetAndAfterZIndex_ThenPassSlotsInOrder() {
+        // Arrange
+        List<Integer> slots = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            slots.add(tree.insert(i * 3));
+        }
+
+        // Act
+        List<Integer> page = new ArrayList<>();
+        tree.forEach(50, 5, (slot, zIndex) -> page.add(zIndex));
+        List<Integer> after = new ArrayList<>();
+        tree.forEachAfter(151, 2, (slot, zIndex) -> after.add(slot));
+
+        // Assert
+        Assert.assertEquals(List.of(150, 153, 156, 159, 162), page);
+        Assert.assertEquals(List.of(slots.get(51), slots.get(52)), after);
+    }
+
+    @Test
+    public void testZIndexSlotTree_WhenRemove_ThenReuseSlot() {
+        // Arrange
+        int first = tree.insert(1);
+        tree.insert(2);
+
+        // Act
+        tree.remove(first);
+        int reused = tree.insert(3);
+
+        // Assert
+        Assert.assertEquals(first, reused);
+        Assert.assertEquals(2, tree.size());
+        Assert.assertEquals(2, tree.used());
+        Assert.assertFalse(tree.contains(1));
+        Assert.assertEquals(3, tree.maxZIndex().getAsInt());
+    }
+
+    @Test
+    public void testZIndexSlotTree_WhenBuild_ThenGiveSlotsInOrderAndSupportChanges() {
+        // Arrange
+        int[] zIndexes = new int[1000];
+        for (int i = 0; i < zIndexes.length; i++) {
+            zIndexes[i] = i * 2;
+        }
+        tree.insert(5);
+
+        // Act
+        tree.build(zIndexes, zIndexes.length);
+        tree.shift(500);
+        int inserted = tree.insert(500);
+        tree.remove(0);
+
+        // Assert
+        Assert.assertEquals(1000, tree.size());
+        Assert.assertEquals(1001, tree.used());
+        Assert.assertEquals(1000, inserted);
+        Assert.assertEquals(501, tree.zIndexOf(250));
+        Assert.assertEquals(498, tree.zIndexOf(249));
+        Assert.assertEquals(1999, tree.maxZIndex().getAsInt());
+        List<Integer> page = new ArrayList<>();
+        tree.forEach(247, 4, (slot, zIndex) -> page.add(slot));
+        Assert.assertEquals(List.of(248, 249, 1000, 250), page);
+    }
+
+    @Test
+    public void testZIndexSlotTree_WhenRandomOperations_ThenMatchPlainSortedList() {
+        // Arrange
+        Random random = new Random(7);
+        List<int[]> expected = new ArrayList<>();
+        List<Integer> slots = new ArrayList<>();
+        List<Integer> values = new ArrayList<>();
+        int[] valueBySlot = new int[10000];
+
+        // Act
+        for (int i = 0; i < 5000; i++) {
+            int operation = random.nextInt(10);
+            if (operation < 5 || slots.isEmpty()) {
+                int zIndex = random.nextInt(2000);
+                if (tree.contains(zIndex)) {
+                    tree.shift(zIndex);
+                    expected.forEach(entry -> {
+                        if (entry[0] >= zIndex) entry[0]++;
+                    });
+                }
+                int slot = tree.insert(zIndex);
+                valueBySlot[slot] = i;
+                slots.add(slot);
+                values.add(i);
+                expected.add(new int[]{zIndex, i});
+            } else if (operation < 8) {
+                int position = random.nextInt(slots.size());
+                int slot = slots.remove(position);
+                int value = values.remove(position);
+                tree.remove(slot);
+                expected.removeIf(entry -> entry[1] == value);
+            } else {
+                int zIndex = random.nextInt(2000);
+                tree.shift(zIndex);
+                expected.forEach(entry -> {
+                    if (entry[0] >= zIndex) entry[0]++;
+                });
+            }
+        }
+
+        // Assert
+        expected.sort((a, b) -> Integer.compare(a[0], b[0]));
+        List<int[]> result = new ArrayList<>();
+        tree.forEach(0, expected.size(), (slot, zIndex) -> result.add(new int[]{zIndex, valueBySlot[slot]}));
+        Assert.assertEquals(expected.size(), tree.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Assert.assertArrayEquals(expected.get(i), result.get(i));
+        }
+        for (int i = 0; i < slots.size(); i++) {
+            int value = values.get(i);
+            int zIndex = tree.zIndexOf(slots.get(i));
+            Assert.assertTrue(expected.stream().anyMatch(entry -> entry[0] == zIndex && entry[1] == value));
+        }
+    }
+}
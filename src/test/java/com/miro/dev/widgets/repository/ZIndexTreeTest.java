@@ -0,0 +1,209 @@
+package com.miro.dev.widgets.repository;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+public class ZIndexTreeTest {
+    private ZIndexTree<Integer> tree;
+
+    @Before
+    public void init() {
+        tree = new ZIndexTree<>();
+    }
+
+    @Test
+    public void testZIndexTree_WhenForEachOnEmptyTree_ThenPassNothing() {
+        // Act
+        List<Integer> result = new ArrayList<>();
+        tree.forEach(0, 10, (value, zIndex) -> result.add(value));
+
+        // Assert
+        Assert.assertTrue(result.isEmpty());
+        Assert.assertEquals(0, tree.size());
+    }
+
+    @Test
+    public void testZIndexTree_WhenForEach_ThenPassValuesOrderedByZIndex() {
+        // Arrange
+        List<Integer> expected = insertShuffled(1000);
+
+        // Act
+        List<Integer> result = new ArrayList<>();
+        tree.forEach(0, 1000, (value, zIndex) -> result.add(value));
+
+        // Assert
+        Assert.assertEquals(1000, tree.size());
+        Assert.assertEquals(expected, result);
+    }
+
+    @Test
+    public void testZIndexTree_WhenForEachWithOffsetAndLimit_ThenPassPage() {
+        // Arrange
+        List<Integer> expected = insertShuffled(1000);
+
+        // Act
+        List<Integer> result = new ArrayList<>();
+        tree.forEach(500, 20, (value, zIndex) -> result.add(value));
+        List<Integer> tail = new ArrayList<>();
+        tree.forEach(990, 20, (value, zIndex) -> tail.add(value));
+
+        // Assert
+        Assert.assertEquals(expected.subList(500, 520), result);
+        Assert.assertEquals(expected.subList(990, 1000), tail);
+    }
+
+    @Test
+    public void testZIndexTree_WhenForEachAfter_ThenPassValuesAboveZIndex() {
+        // Arrange
+        List<Integer> expected = insertShuffled(1000);
+        tree.shift(1500);
+
+        // Act
+        List<Integer> result = new ArrayList<>();
+        tree.forEachAfter(300, 20, (value, zIndex) -> result.add(value));
+        List<Integer> shifted = new ArrayList<>();
+        tree.forEachAfter(1499, 2, (value, zIndex) -> shifted.add(zIndex));
+        List<Integer> tail = new ArrayList<>();
+        tree.forEachAfter(5000, 20, (value, zIndex) -> tail.add(value));
+
+        // Assert
+        Assert.assertEquals(expected.subList(101, 121), result);
+        Assert.assertEquals(List.of(1501, 1504), shifted);
+        Assert.assertTrue(tail.isEmpty());
+    }
+
+    @Test
+    public void testZIndexTree_WhenRemove_ThenKeepOrderOfOthers() {
+        // Arrange
+        List<Integer> expected = new ArrayList<>();
+        List<ZIndexTree.Node<Integer>> nodes = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            nodes.add(tree.insert(i * 2, i * 2));
+            expected.add(i * 2);
+        }
+
+        // Act
+        for (int i = 0; i < 100; i += 3) {
+            tree.remove(nodes.get(i));
+            expected.remove(Integer.valueOf(i * 2));
+        }
+
+        // Assert
+        List<Integer> result = new ArrayList<>();
+        tree.forEach(0, 100, (value, zIndex) -> result.add(value));
+        Assert.assertEquals(expected, result);
+        Assert.assertEquals(expected.size(), tree.size());
+        Assert.assertFalse(tree.contains(0));
+        Assert.assertTrue(tree.contains(2));
+    }
+
+    @Test
+    public void testZIndexTree_WhenShift_ThenIncrementZIndexFromGivenOne() {
+        // Arrange
+        ZIndexTree.Node<Integer> first = tree.insert(1, 1);
+        ZIndexTree.Node<Integer> second = tree.insert(2, 2);
+        ZIndexTree.Node<Integer> third = tree.insert(5, 5);
+
+        // Act
+        tree.shift(2);
+
+        // Assert
+        Assert.assertEquals(1, tree.zIndexOf(first));
+        Assert.assertEquals(3, tree.zIndexOf(second));
+        Assert.assertEquals(6, tree.zIndexOf(third));
+        Assert.assertFalse(tree.contains(2));
+        Assert.assertTrue(tree.contains(3));
+    }
+
+    @Test
+    public void testZIndexTree_WhenBuild_ThenKeepOrderAndSupportChanges() {
+        // Arrange
+        int[] zIndexes = new int[1000];
+        List<Integer> values = new ArrayList<>();
+        for (int i = 0; i < zIndexes.length; i++) {
+            zIndexes[i] = i * 2;
+            values.add(i);
+        }
+
+        // Act
+        List<ZIndexTree.Node<Integer>> nodes = tree.build(zIndexes, values);
+        tree.shift(500);
+        tree.insert(500, 1000);
+        tree.remove(nodes.get(0));
+
+        // Assert
+        Assert.assertEquals(1000, tree.size());
+        Assert.assertEquals(501, tree.zIndexOf(nodes.get(250)));
+        Assert.assertEquals(498, tree.zIndexOf(nodes.get(249)));
+        Assert.assertEquals(1999, tree.maxZIndex().getAsInt());
+        List<Integer> page = new ArrayList<>();
+        tree.forEach(247, 4, (value, zIndex) -> page.add(value));
+        Assert.assertEquals(List.of(248, 249, 1000, 250), page);
+    }
+
+    @Test
+    public void testZIndexTree_WhenRandomOperations_ThenMatchPlainSortedList() {
+        // Arrange
+        Random random = new Random(7);
+        List<int[]> expected = new ArrayList<>();
+        List<ZIndexTree.Node<Integer>> nodes = new ArrayList<>();
+
+        // Act
+        for (int i = 0; i < 5000; i++) {
+            int operation = random.nextInt(10);
+            if (operation < 5 || nodes.isEmpty()) {
+                int zIndex = random.nextInt(2000);
+                if (tree.contains(zIndex)) {
+                    tree.shift(zIndex);
+                    expected.forEach(entry -> {
+                        if (entry[0] >= zIndex) entry[0]++;
+                    });
+                }
+                nodes.add(tree.insert(zIndex, i));
+                expected.add(new int[]{zIndex, i});
+            } else if (operation < 8) {
+                int position = random.nextInt(nodes.size());
+                ZIndexTree.Node<Integer> node = nodes.remove(position);
+                tree.remove(node);
+                expected.removeIf(entry -> entry[1] == node.getValue());
+            } else {
+                int zIndex = random.nextInt(2000);
+                tree.shift(zIndex);
+                expected.forEach(entry -> {
+                    if (entry[0] >= zIndex) entry[0]++;
+                });
+            }
+        }
+
+        // Assert
+        expected.sort((a, b) -> Integer.compare(a[0], b[0]));
+        List<int[]> result = new ArrayList<>();
+        tree.forEach(0, expected.size(), (value, zIndex) -> result.add(new int[]{zIndex, value}));
+        Assert.assertEquals(expected.size(), tree.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Assert.assertArrayEquals(expected.get(i), result.get(i));
+        }
+        for (ZIndexTree.Node<Integer> node : nodes) {
+            int value = node.getValue();
+            int zIndex = tree.zIndexOf(node);
+            Assert.assertTrue(expected.stream().anyMatch(entry -> entry[0] == zIndex && entry[1] == value));
+        }
+    }
+
+    private List<Integer> insertShuffled(int count) {
+        List<Integer> values = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            values.add(i * 3);
+        }
+        List<Integer> shuffled = new ArrayList<>(values);
+        Collections.shuffle(shuffled, new Random(42));
+        shuffled.forEach(value -> tree.insert(value, value));
+        return values;
+    }
+}
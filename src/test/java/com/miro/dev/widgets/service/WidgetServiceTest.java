@@ -1,15 +1,27 @@
 package com.miro.dev.widgets.service;
 
+import com.miro.dev.widgets.exceptions.InvalidAreaException;
+import com.miro.dev.widgets.exceptions.InvalidBatchException;
 import com.miro.dev.widgets.exceptions.InvalidWidgetException;
 import com.miro.dev.widgets.exceptions.WidgetNotFoundException;
+import com.miro.dev.widgets.model.Area;
+import com.miro.dev.widgets.model.BatchOperation;
+import com.miro.dev.widgets.model.BatchResult;
+import com.miro.dev.widgets.model.Cursor;
 import com.miro.dev.widgets.model.Limit;
 import com.miro.dev.widgets.model.Widget;
+import com.miro.dev.widgets.model.WidgetPage;
 import com.miro.dev.widgets.repository.WidgetRepository;
 import com.miro.dev.widgets.repository.WidgetRepositoryInMemoryImpl;
+import com.miro.dev.widgets.repository.WidgetRepositoryMappedImpl;
 import org.junit.Assert;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
@@ -17,6 +29,9 @@ import java.util.Optional;
 import static org.mockito.Mockito.*;
 
 public class WidgetServiceTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     private WidgetRepository widgetRepository;
 
     @Before
@@ -42,6 +57,166 @@ public class WidgetServiceTest {
         Assert.assertEquals(1L, (long) widgetsReturned.get(0).getId());
     }
 
+    @Test
+    public void testWidgetService_WhenBatchWithInvalidItems_ApplyOnlyValidOnes() {
+        // Arrange
+        WidgetService widgetService = new WidgetService(widgetRepository);
+        Widget invalid = getWidget();
+        invalid.setWidth(-1);
+        BatchOperation create = BatchOperation.builder().type(BatchOperation.Type.CREATE).widget(getWidget()).build();
+        BatchOperation delete = BatchOperation.builder().type(BatchOperation.Type.DELETE).id(1L).build();
+        List<BatchOperation> operations = List.of(
+                BatchOperation.builder().type(BatchOperation.Type.CREATE).widget(invalid).build(),
+                create,
+                BatchOperation.builder().type(BatchOperation.Type.UPDATE).widget(getWidget()).build(),
+                BatchOperation.builder().type(BatchOperation.Type.DELETE).build(),
+                delete);
+        doReturn(List.of(BatchResult.ok(getWidget()), BatchResult.notFound()))
+                .when(widgetRepository).batch(List.of(create, delete));
+
+        // Act
+        List<BatchResult> results = widgetService.batch(operations);
+
+        // Assert
+        verify(widgetRepository, times(1)).batch(List.of(create, delete));
+        Assert.assertEquals(5, results.size());
+        Assert.assertEquals(BatchResult.Status.INVALID, results.get(0).getStatus());
+        Assert.assertEquals(BatchResult.Status.OK, results.get(1).getStatus());
+        Assert.assertEquals(BatchResult.Status.INVALID, results.get(2).getStatus());
+        Assert.assertEquals(BatchResult.Status.INVALID, results.get(3).getStatus());
+        Assert.assertEquals(BatchResult.Status.NOT_FOUND, results.get(4).getStatus());
+    }
+
+    @Test(expected = InvalidBatchException.class)
+    public void testWidgetService_WhenBatchIsTooLarge_ThrowsException() {
+        // Arrange
+        WidgetService widgetService = new WidgetService(widgetRepository);
+        List<BatchOperation> operations = new ArrayList<>();
+        for (int i = 0; i <= WidgetService.BATCH_MAX; i++) {
+            operations.add(BatchOperation.builder().type(BatchOperation.Type.DELETE).id(1L).build());
+        }
+
+        // Act
+        widgetService.batch(operations);
+    }
+
+    @Test
+    public void testWidgetService_WhenGetPage_ReturnResult() {
+        // Arrange
+        WidgetService widgetService = new WidgetService(widgetRepository);
+        Widget widget = getWidget();
+        widget.setId(1L);
+        Cursor cursor = new Cursor(0L, 1);
+        Limit limit = Limit.defaultLimit();
+        WidgetPage page = new WidgetPage(Collections.singletonList(widget), new Cursor(0L, 2));
+        doReturn(page).when(widgetRepository).getPage(cursor, limit);
+
+        // Act
+        WidgetPage pageReturned = widgetService.getPage(cursor, limit);
+
+        // Assert
+        Assert.assertEquals(1, pageReturned.getWidgets().size());
+        Assert.assertEquals(new Cursor(0L, 2), pageReturned.getNext());
+    }
+
+    @Test
+    public void testWidgetService_WhenForEachPage_FollowCursorsToLastPage() {
+        // Arrange
+        WidgetService widgetService = new WidgetService(widgetRepository);
+        Widget first = getWidget();
+        first.setId(1L);
+        Widget second = getWidget();
+        second.setId(2L);
+        Cursor cursor = new Cursor(0L, 1);
+        doReturn(new WidgetPage(Collections.singletonList(first), cursor))
+                .when(widgetRepository).getPage(isNull(), any(Limit.class));
+        doReturn(new WidgetPage(Collections.singletonList(second), null))
+                .when(widgetRepository).getPage(eq(cursor), any(Limit.class));
+
+        // Act
+        List<Widget> widgets = new ArrayList<>();
+        widgetService.forEachPage(widgets::addAll);
+
+        // Assert
+        Assert.assertEquals(List.of(first, second), widgets);
+    }
+
+    @Test
+    public void testWidgetService_WhenForEachWidgetTwiceWithoutChanges_ShareOneCopy() throws IOException {
+        // Arrange
+        WidgetRepository repository = spy(new WidgetRepositoryMappedImpl(folder.newFolder().toString()));
+        WidgetService widgetService = new WidgetService(repository);
+        Widget widget = repository.create(getWidget());
+
+        // Act
+        List<Widget> first = new ArrayList<>();
+        long firstSequence = widgetService.forEachWidget(0, first::add);
+        List<Widget> second = new ArrayList<>();
+        long secondSequence = widgetService.forEachWidget(0, second::add);
+
+        // Assert
+        Assert.assertEquals(List.of(widget), first);
+        Assert.assertEquals(first, second);
+        Assert.assertEquals(firstSequence, secondSequence);
+        verify(repository, times(1)).copy();
+        verify(repository, times(1)).snapshot();
+    }
+
+    @Test
+    public void testWidgetService_WhenForEachWidgetAfterLaterChange_CopyAgain() throws IOException {
+        // Arrange
+        WidgetRepository repository = spy(new WidgetRepositoryMappedImpl(folder.newFolder().toString()));
+        WidgetService widgetService = new WidgetService(repository);
+        widgetService.forEachWidget(0, widget -> {});
+        Widget widget = repository.create(getWidget());
+
+        // Act
+        List<Widget> widgets = new ArrayList<>();
+        long sequence = widgetService.forEachWidget(widget.getVersion(), widgets::add);
+
+        // Assert
+        Assert.assertEquals(List.of(widget), widgets);
+        Assert.assertEquals((long) widget.getVersion(), sequence);
+        verify(repository, times(2)).copy();
+    }
+
+    @Test
+    public void testWidgetService_WhenGetAllInArea_ReturnResult() {
+        // Arrange
+        WidgetService widgetService = new WidgetService(widgetRepository);
+        Widget widget = getWidget();
+        widget.setId(1L);
+        List<Widget> widgets = Collections.singletonList(widget);
+        Area area = new Area(0, 0, 100, 100);
+        Limit limit = Limit.defaultLimit();
+        doReturn(widgets).when(widgetRepository).getAllInArea(area, limit);
+
+        // Act
+        List<Widget> widgetsReturned = widgetService.getAllInArea(area, limit);
+
+        // Assert
+        Assert.assertEquals(1, widgetsReturned.size());
+        Assert.assertEquals(1L, (long) widgetsReturned.get(0).getId());
+    }
+
+    @Test(expected = InvalidAreaException.class)
+    public void testWidgetService_WhenGetAllInAreaWithNullCorner_ThrowsException() {
+        // Arrange
+        WidgetService widgetService = new WidgetService(widgetRepository);
+
+        // Act
+        widgetService.getAllInArea(new Area(0, null, 100, 100), Limit.defaultLimit());
+    }
+
+    @Test(expected = InvalidAreaException.class)
+    public void testWidgetService_WhenGetAllInAreaWithSwappedCorners_ThrowsException() {
+        // Arrange
+        WidgetService widgetService = new WidgetService(widgetRepository);
+
+        // Act
+        widgetService.getAllInArea(new Area(100, 0, 0, 100), Limit.defaultLimit());
+    }
+
     @Test(expected = InvalidWidgetException.class)
     public void testWidgetService_WhenGetByIdWithNullArgument_ThrowsException() {
         // Arrange